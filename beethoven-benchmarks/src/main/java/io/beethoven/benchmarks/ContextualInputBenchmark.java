@@ -0,0 +1,115 @@
+/**
+ * The MIT License
+ * Copyright © 2018 Davi Monteiro
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.beethoven.benchmarks;
+
+import io.beethoven.benchmarks.support.EngineConfiguration;
+import io.beethoven.benchmarks.support.Workflows;
+import io.beethoven.dsl.ContextualInput;
+import io.beethoven.repository.ContextualInputRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Looks up and writes the contextual inputs of a request while many workflow instances hold
+ * their task responses.
+ *
+ * @author Davi Monteiro
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ContextualInputBenchmark {
+
+    private static final String WORKFLOW_NAME = "contextualInput";
+    private static final String RESPONSE_KEY = Workflows.responseKey(Workflows.taskName(0));
+
+    @Param({"1000", "100000"})
+    private int instanceCount;
+
+    @Param({"1024"})
+    private int responseSize;
+
+    private AnnotationConfigApplicationContext context;
+    private ContextualInputRepository contextualInputRepository;
+    private List<String> requestKeys;
+    private String[] instanceNames;
+    private String response;
+
+    @Setup
+    public void setup() {
+        context = EngineConfiguration.start();
+        contextualInputRepository = context.getBean(ContextualInputRepository.class);
+        contextualInputRepository.saveGlobalInputs(WORKFLOW_NAME,
+                Collections.singleton(new ContextualInput(Workflows.ACCESS_TOKEN, "Bearer benchmark")));
+
+        char[] characters = new char[responseSize];
+        Arrays.fill(characters, 'x');
+        response = new String(characters);
+
+        instanceNames = new String[instanceCount];
+        for (int i = 0; i < instanceCount; i++) {
+            instanceNames[i] = "instance-" + i;
+            contextualInputRepository.saveLocalInput(instanceNames[i], new ContextualInput(RESPONSE_KEY, response));
+        }
+
+        requestKeys = Arrays.asList(Workflows.ACCESS_TOKEN, RESPONSE_KEY);
+    }
+
+    @TearDown
+    public void tearDown() {
+        EngineConfiguration.stop(context);
+    }
+
+    private String randomInstanceName() {
+        return instanceNames[ThreadLocalRandom.current().nextInt(instanceNames.length)];
+    }
+
+    @Benchmark
+    public Map<String, String> findInputs() {
+        return contextualInputRepository.findInputs(WORKFLOW_NAME, randomInstanceName(), requestKeys);
+    }
+
+    @Benchmark
+    public Optional<ContextualInput> findLocalInput() {
+        return contextualInputRepository.findLocalContextualInput(randomInstanceName(), RESPONSE_KEY);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void saveLocalInput() {
+        // Replaces an existing response, so the repository keeps its size
+        contextualInputRepository.saveLocalInput(randomInstanceName(), new ContextualInput(RESPONSE_KEY, response));
+    }
+
+}
@@ -0,0 +1,115 @@
+/**
+ * The MIT License
+ * Copyright © 2018 Davi Monteiro
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.beethoven.benchmarks;
+
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.routing.ConsistentHashingPool;
+import io.beethoven.benchmarks.support.EngineConfiguration;
+import io.beethoven.benchmarks.support.LatchActor;
+import io.beethoven.benchmarks.support.Workflows;
+import io.beethoven.config.SpringExtension;
+import io.beethoven.engine.core.ActorName;
+import io.beethoven.engine.core.ActorRegistry;
+import io.beethoven.engine.core.DeciderActor.TaskCompletedEvent;
+import io.beethoven.engine.core.TaskActor.StartTaskCommand;
+import io.beethoven.engine.core.support.MonitoredMailbox;
+import io.beethoven.repository.WorkflowRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Measures how many task completed events the decider pool turns into start task commands.
+ * The other engine actors are replaced by a {@link LatchActor}, so every invocation sends a batch
+ * of events for distinct instances and waits until all of their commands have been delivered.
+ *
+ * @author Davi Monteiro
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DeciderBenchmark {
+
+    private static final String WORKFLOW_NAME = "decider";
+    private static final int BATCH_SIZE = 10000;
+    private static final int INSTANCE_COUNT = 1024;
+
+    @Param({"5", "50"})
+    private int taskCount;
+
+    @Param({"1", "4"})
+    private int poolSize;
+
+    private AnnotationConfigApplicationContext context;
+    private ActorRegistry actorRegistry;
+    private TaskCompletedEvent[] events;
+    private final AtomicReference<CountDownLatch> latch = new AtomicReference<>(new CountDownLatch(0));
+
+    @Setup
+    public void setup() {
+        context = EngineConfiguration.start();
+        context.getBean(WorkflowRepository.class).save(Workflows.chain(WORKFLOW_NAME, taskCount));
+
+        ActorSystem actorSystem = context.getBean(ActorSystem.class);
+        ActorRef deciderActor = actorSystem.actorOf(new ConsistentHashingPool(poolSize)
+                .props(SpringExtension.SpringExtProvider.get(actorSystem).props(ActorName.DECIDER_ACTOR)
+                        .withMailbox(MonitoredMailbox.MAILBOX)), ActorName.DECIDER_ACTOR);
+        ActorRef latchActor = actorSystem.actorOf(LatchActor.props(StartTaskCommand.class, latch));
+
+        actorRegistry = context.getBean(ActorRegistry.class);
+        actorRegistry.register(latchActor, deciderActor, latchActor, latchActor);
+
+        // Every event completes a task that is followed by exactly one other task
+        events = new TaskCompletedEvent[INSTANCE_COUNT];
+        for (int i = 0; i < events.length; i++) {
+            String taskName = Workflows.taskName(i % (taskCount - 1));
+            events[i] = new TaskCompletedEvent(WORKFLOW_NAME, "instance-" + i, taskName);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        EngineConfiguration.stop(context);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void decide() throws InterruptedException {
+        CountDownLatch batch = new CountDownLatch(BATCH_SIZE);
+        latch.set(batch);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            actorRegistry.tellDecider(events[i % events.length]);
+        }
+        if (!batch.await(1, TimeUnit.MINUTES)) {
+            throw new IllegalStateException("The decider did not send " + BATCH_SIZE + " commands in time");
+        }
+    }
+
+}
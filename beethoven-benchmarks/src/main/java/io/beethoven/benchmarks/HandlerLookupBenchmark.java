@@ -0,0 +1,92 @@
+/**
+ * The MIT License
+ * Copyright © 2018 Davi Monteiro
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.beethoven.benchmarks;
+
+import io.beethoven.benchmarks.support.EngineConfiguration;
+import io.beethoven.benchmarks.support.Workflows;
+import io.beethoven.dsl.CompiledHandler;
+import io.beethoven.dsl.Handler;
+import io.beethoven.dsl.Handler.EventType;
+import io.beethoven.engine.core.DeciderActor.TaskCompletedEvent;
+import io.beethoven.repository.WorkflowRepository;
+import io.beethoven.service.HandlerService;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Looks up the handlers of a task completed event in a chain workflow, through the list scan
+ * of {@link HandlerService} and through the dispatch index used by the decider.
+ *
+ * @author Davi Monteiro
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HandlerLookupBenchmark {
+
+    private static final String WORKFLOW_NAME = "handlerLookup";
+
+    @Param({"5", "50", "500"})
+    private int taskCount;
+
+    private AnnotationConfigApplicationContext context;
+    private HandlerService handlerService;
+    private TaskCompletedEvent event;
+
+    @Setup
+    public void setup() {
+        context = EngineConfiguration.start();
+        context.getBean(WorkflowRepository.class).save(Workflows.chain(WORKFLOW_NAME, taskCount));
+        handlerService = context.getBean(HandlerService.class);
+
+        String taskName = Workflows.taskName(taskCount / 2);
+        event = new TaskCompletedEvent(WORKFLOW_NAME, "instance", taskName);
+    }
+
+    @TearDown
+    public void tearDown() {
+        EngineConfiguration.stop(context);
+    }
+
+    @Benchmark
+    public List<Handler> scan() {
+        return handlerService.findByWorkflowNameAndEventType(WORKFLOW_NAME, EventType.TASK_COMPLETED);
+    }
+
+    @Benchmark
+    public void index(Blackhole blackhole) {
+        List<CompiledHandler> handlers = handlerService.findByWorkflowNameAndEventType(
+                WORKFLOW_NAME, EventType.TASK_COMPLETED, event.getTaskName());
+        for (int i = 0; i < handlers.size(); i++) {
+            blackhole.consume(handlers.get(i).matches(event));
+        }
+    }
+
+}
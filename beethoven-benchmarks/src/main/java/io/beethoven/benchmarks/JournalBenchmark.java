@@ -0,0 +1,98 @@
+/**
+ * The MIT License
+ * Copyright © 2018 Davi Monteiro
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.beethoven.benchmarks;
+
+import io.beethoven.engine.TaskInstance;
+import io.beethoven.engine.journal.Journal;
+import io.beethoven.engine.journal.JournalRecord;
+import io.beethoven.engine.journal.MappedFileJournal;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Appends task completions to the journal from several threads, as the http client threads do,
+ * to compare the cost of journaling with a disabled journal.
+ *
+ * @author Davi Monteiro
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JournalBenchmark {
+
+    @Param({"none", "mapped"})
+    private String journalType;
+
+    @Param({"1", "5"})
+    private int groupCommitWindowMillis;
+
+    @Param({"1024"})
+    private int responseSize;
+
+    private Path directory;
+    private Journal journal;
+    private TaskInstance taskInstance;
+
+    @Setup
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("beethoven-journal");
+        journal = "none".equals(journalType)
+                ? Journal.NONE
+                : new MappedFileJournal(directory, 64 * 1024 * 1024, Duration.ofMillis(groupCommitWindowMillis));
+
+        char[] characters = new char[responseSize];
+        Arrays.fill(characters, 'x');
+        taskInstance = new TaskInstance();
+        taskInstance.setWorkflowName("journal");
+        taskInstance.setWorkflowInstanceName("journal-1");
+        taskInstance.setTaskName("task0");
+        taskInstance.setTaskInstanceName("c6b1c3f0-5d0e-4a7e-9d41-0e4a3c9f2b17");
+        taskInstance.setResponse(new String(characters));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        journal.close();
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void appendTaskCompleted() {
+        journal.append(JournalRecord.taskCompleted(taskInstance));
+    }
+
+}
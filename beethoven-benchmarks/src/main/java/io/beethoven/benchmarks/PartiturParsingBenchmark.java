@@ -0,0 +1,82 @@
+/**
+ * The MIT License
+ * Copyright © 2018 Davi Monteiro
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.beethoven.benchmarks;
+
+import io.beethoven.PartiturParser;
+import io.beethoven.benchmarks.support.Workflows;
+import io.beethoven.dsl.PartiturWorkflowSerializer;
+import io.beethoven.dsl.Workflow;
+import io.beethoven.partitur.partitur.PartiturWorkflow;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parses Partitur workflows with {@link PartiturParser} and converts them with
+ * {@link PartiturWorkflowSerializer}. A task count of zero stands for <code>checkoutProcess</code>.
+ *
+ * @author Davi Monteiro
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PartiturParsingBenchmark {
+
+    @Param({"0", "50", "500"})
+    private int taskCount;
+
+    private PartiturParser parser;
+    private PartiturWorkflowSerializer serializer;
+    private String source;
+    private PartiturWorkflow partiturWorkflow;
+
+    @Setup
+    public void setup() throws Exception {
+        parser = new PartiturParser();
+        serializer = new PartiturWorkflowSerializer();
+        source = taskCount == 0
+                ? Workflows.checkoutProcessSource()
+                : Workflows.chainSource("partiturParsing", taskCount);
+        partiturWorkflow = parser.parse(new StringReader(source));
+    }
+
+    @Benchmark
+    public PartiturWorkflow parse() throws Exception {
+        return parser.parse(new StringReader(source));
+    }
+
+    @Benchmark
+    public Workflow serialize() {
+        return serializer.to(partiturWorkflow);
+    }
+
+    @Benchmark
+    public Workflow parseAndSerialize() throws Exception {
+        return serializer.to(parser.parse(new StringReader(source)));
+    }
+
+}
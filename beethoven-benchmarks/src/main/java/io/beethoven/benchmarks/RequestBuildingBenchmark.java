@@ -0,0 +1,94 @@
+/**
+ * The MIT License
+ * Copyright © 2018 Davi Monteiro
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.beethoven.benchmarks;
+
+import io.beethoven.benchmarks.support.EngineConfiguration;
+import io.beethoven.benchmarks.support.Workflows;
+import io.beethoven.dsl.ContextualInput;
+import io.beethoven.dsl.RequestTemplate;
+import io.beethoven.dsl.Task;
+import io.beethoven.dsl.Workflow;
+import io.beethoven.repository.ContextualInputRepository;
+import io.beethoven.repository.WorkflowRepository;
+import io.beethoven.service.TaskExecutorService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds the http request of a task the way {@link TaskExecutorService} does before sending it,
+ * and compiles the request template the way it is done when a workflow is loaded.
+ *
+ * @author Davi Monteiro
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RequestBuildingBenchmark {
+
+    private static final String WORKFLOW_NAME = "requestBuilding";
+    private static final String INSTANCE_NAME = "instance";
+
+    private AnnotationConfigApplicationContext context;
+    private TaskExecutorService taskExecutorService;
+    private Task task;
+
+    @Setup
+    public void setup() {
+        context = EngineConfiguration.start();
+        Workflow workflow = Workflows.chain(WORKFLOW_NAME, 2);
+        context.getBean(WorkflowRepository.class).save(workflow);
+
+        // The second task sends the response of the first one with the access token
+        task = workflow.findTaskByName(Workflows.taskName(1));
+        ContextualInputRepository contextualInputRepository = context.getBean(ContextualInputRepository.class);
+        contextualInputRepository.saveGlobalInputs(WORKFLOW_NAME,
+                Collections.singleton(new ContextualInput(Workflows.ACCESS_TOKEN, "Bearer benchmark")));
+        contextualInputRepository.saveLocalInput(INSTANCE_NAME,
+                new ContextualInput(Workflows.responseKey(Workflows.taskName(0)), "{\"items\":[1,2,3]}"));
+
+        taskExecutorService = context.getBean(TaskExecutorService.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        EngineConfiguration.stop(context);
+    }
+
+    @Benchmark
+    public WebClient.RequestHeadersSpec buildRequest() {
+        return taskExecutorService.buildHttpRequest(task, INSTANCE_NAME);
+    }
+
+    @Benchmark
+    public RequestTemplate compileTemplate() {
+        return new RequestTemplate(task);
+    }
+
+}
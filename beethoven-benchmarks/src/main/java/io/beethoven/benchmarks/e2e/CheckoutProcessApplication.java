@@ -0,0 +1,60 @@
+/**
+ * The MIT License
+ * Copyright © 2018 Davi Monteiro
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.beethoven.benchmarks.e2e;
+
+import io.beethoven.config.EnableBeethoven;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.cloud.netflix.eureka.EurekaClientAutoConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.util.UriComponentsBuilder;
+
+/**
+ * A Beethoven application whose task requests are all sent to the stub server, whatever the
+ * service named in the workflow.
+ *
+ * @author Davi Monteiro
+ */
+@EnableBeethoven
+@SpringBootApplication(exclude = EurekaClientAutoConfiguration.class)
+public class CheckoutProcessApplication {
+
+    public static final String STUB_PORT = "benchmark.stub-port";
+
+    @Value("${" + STUB_PORT + "}")
+    private int stubPort;
+
+    @Bean
+    public WebClient.Builder webClientBuilder() {
+        return WebClient.builder().filter((request, next) -> next.exchange(ClientRequest.from(request)
+                .url(UriComponentsBuilder.fromUri(request.url())
+                        .host("localhost")
+                        .port(stubPort)
+                        .build(true)
+                        .toUri())
+                .build()));
+    }
+
+}
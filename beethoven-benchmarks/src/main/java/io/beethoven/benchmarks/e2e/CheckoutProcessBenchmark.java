@@ -0,0 +1,160 @@
+/**
+ * The MIT License
+ * Copyright © 2018 Davi Monteiro
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.beethoven.benchmarks.e2e;
+
+import akka.actor.AbstractActor;
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.Props;
+import io.beethoven.Beethoven;
+import io.beethoven.PartiturParser;
+import io.beethoven.api.dto.BeethovenOperation;
+import io.beethoven.benchmarks.support.Workflows;
+import io.beethoven.dsl.ContextualInput;
+import io.beethoven.engine.WorkflowInstanceSummary;
+import io.beethoven.repository.WorkflowRepository;
+import io.beethoven.service.WorkflowService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import reactor.core.publisher.Mono;
+import reactor.ipc.netty.NettyContext;
+import reactor.ipc.netty.http.server.HttpServer;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs <code>checkoutProcess</code> end to end against an in-process stub HTTP server that
+ * answers every task request, optionally after a fixed latency. Every invocation schedules a
+ * batch of instances and waits for the summaries published by the reporters.
+ *
+ * @author Davi Monteiro
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CheckoutProcessBenchmark {
+
+    private static final int BATCH_SIZE = 100;
+    private static final String RESPONSE = "{\"status\":\"OK\"}";
+
+    @Param({"0", "10"})
+    private int latencyMillis;
+
+    private NettyContext stubServer;
+    private ConfigurableApplicationContext context;
+    private WorkflowService workflowService;
+    private BeethovenOperation scheduleOperation;
+
+    private final AtomicReference<CountDownLatch> latch = new AtomicReference<>(new CountDownLatch(0));
+    private final AtomicInteger failures = new AtomicInteger();
+
+    @Setup
+    public void setup() throws Exception {
+        stubServer = HttpServer.create("localhost", 0)
+                .newHandler((request, response) -> request.receive().then()
+                        .then(Mono.delay(Duration.ofMillis(latencyMillis)))
+                        .then(response.header("Content-Type", "application/json")
+                                .sendString(Mono.just(RESPONSE))
+                                .then()))
+                .block();
+
+        context = new SpringApplicationBuilder(CheckoutProcessApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        CheckoutProcessApplication.STUB_PORT + "=" + stubServer.address().getPort(),
+                        "eureka.client.enabled=false",
+                        "logging.level.root=WARN")
+                .run();
+
+        ActorSystem actorSystem = context.getBean(ActorSystem.class);
+        Beethoven.initialize(actorSystem);
+        context.getBean(WorkflowRepository.class)
+                .save(Workflows.parse(new PartiturParser(), Workflows.checkoutProcessSource()));
+
+        ActorRef listener = actorSystem.actorOf(Props.create(SummaryListener.class, latch, failures));
+        actorSystem.eventStream().subscribe(listener, WorkflowInstanceSummary.class);
+
+        workflowService = context.getBean(WorkflowService.class);
+        scheduleOperation = new BeethovenOperation();
+        scheduleOperation.setOperation(BeethovenOperation.Operation.SCHEDULE.getId());
+        scheduleOperation.getInputs().add(new ContextualInput(Workflows.ACCESS_TOKEN, "Bearer benchmark"));
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.getBean(ActorSystem.class).terminate();
+        context.close();
+        stubServer.dispose();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void checkoutProcess() throws InterruptedException {
+        CountDownLatch batch = new CountDownLatch(BATCH_SIZE);
+        latch.set(batch);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            workflowService.execute(Workflows.CHECKOUT_PROCESS, scheduleOperation);
+        }
+        if (!batch.await(1, TimeUnit.MINUTES)) {
+            throw new IllegalStateException("Only " + (BATCH_SIZE - batch.getCount()) + " of "
+                    + BATCH_SIZE + " instances finished in time");
+        }
+        if (failures.get() > 0) {
+            throw new IllegalStateException(failures.get() + " instances did not complete successfully");
+        }
+    }
+
+    public static class SummaryListener extends AbstractActor {
+
+        private final AtomicReference<CountDownLatch> latch;
+        private final AtomicInteger failures;
+
+        public SummaryListener(AtomicReference<CountDownLatch> latch, AtomicInteger failures) {
+            this.latch = latch;
+            this.failures = failures;
+        }
+
+        @Override
+        public Receive createReceive() {
+            return receiveBuilder()
+                    .match(WorkflowInstanceSummary.class, summary -> {
+                        if (!summary.isSuccessfullyExecuted()) {
+                            failures.incrementAndGet();
+                        }
+                        latch.get().countDown();
+                    })
+                    .build();
+        }
+
+    }
+
+}
@@ -0,0 +1,124 @@
+/**
+ * The MIT License
+ * Copyright © 2018 Davi Monteiro
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.beethoven.benchmarks.support;
+
+import akka.actor.ActorSystem;
+import io.beethoven.config.AkkaConfiguration;
+import io.beethoven.config.BeethovenProperties;
+import io.beethoven.engine.journal.Journal;
+import io.beethoven.engine.metrics.EngineMetrics;
+import io.beethoven.engine.resilience.BulkheadRegistry;
+import io.beethoven.engine.resilience.CircuitBreakerRegistry;
+import io.beethoven.repository.ContextualInputRepository;
+import io.beethoven.repository.WorkflowRepository;
+import io.beethoven.service.HandlerService;
+import io.beethoven.service.TaskExecutorService;
+import io.beethoven.service.TimeoutService;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.client.reactive.ClientHttpConnector;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+
+/**
+ * The engine beans used by the component benchmarks, without the web server, the discovery
+ * client and the auto-configuration of a Spring Boot application.
+ *
+ * @author Davi Monteiro
+ */
+@Configuration
+@Import(AkkaConfiguration.class)
+public class EngineConfiguration {
+
+    public static AnnotationConfigApplicationContext start() {
+        return new AnnotationConfigApplicationContext(EngineConfiguration.class);
+    }
+
+    public static void stop(AnnotationConfigApplicationContext context) {
+        context.getBean(ActorSystem.class).terminate();
+        context.close();
+    }
+
+    @Bean
+    public BeethovenProperties beethovenProperties() {
+        return new BeethovenProperties();
+    }
+
+    @Bean
+    public EngineMetrics engineMetrics() {
+        return new EngineMetrics();
+    }
+
+    @Bean
+    public Journal journal() {
+        return Journal.NONE;
+    }
+
+    @Bean
+    public CircuitBreakerRegistry circuitBreakerRegistry(BeethovenProperties beethovenProperties) {
+        return new CircuitBreakerRegistry(beethovenProperties.getCircuitBreakers());
+    }
+
+    @Bean
+    public BulkheadRegistry bulkheadRegistry(BeethovenProperties beethovenProperties) {
+        return new BulkheadRegistry(beethovenProperties.getBulkheads());
+    }
+
+    @Bean
+    public ContextualInputRepository contextualInputRepository() {
+        return new ContextualInputRepository();
+    }
+
+    @Bean
+    public WorkflowRepository workflowRepository(BeethovenProperties beethovenProperties) {
+        return new WorkflowRepository(beethovenProperties.getParallelization());
+    }
+
+    @Bean
+    public HandlerService handlerService() {
+        return new HandlerService();
+    }
+
+    @Bean
+    public TaskExecutorService taskExecutorService() {
+        return new TaskExecutorService();
+    }
+
+    @Bean
+    public TimeoutService timeoutService() {
+        return new TimeoutService();
+    }
+
+    @Bean
+    public WebClient.Builder webClientBuilder() {
+        return WebClient.builder();
+    }
+
+    @Bean
+    public ClientHttpConnector clientHttpConnector() {
+        return new ReactorClientHttpConnector();
+    }
+
+}
@@ -0,0 +1,59 @@
+/**
+ * The MIT License
+ * Copyright © 2018 Davi Monteiro
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.beethoven.benchmarks.support;
+
+import akka.actor.AbstractActor;
+import akka.actor.Props;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Stands in for an engine actor and counts down the current latch on every message of the
+ * given type, so a benchmark can wait until a batch of messages has been delivered.
+ *
+ * @author Davi Monteiro
+ */
+public class LatchActor extends AbstractActor {
+
+    private final Class<?> messageType;
+    private final AtomicReference<CountDownLatch> latch;
+
+    public LatchActor(Class<?> messageType, AtomicReference<CountDownLatch> latch) {
+        this.messageType = messageType;
+        this.latch = latch;
+    }
+
+    public static Props props(Class<?> messageType, AtomicReference<CountDownLatch> latch) {
+        return Props.create(LatchActor.class, messageType, latch);
+    }
+
+    @Override
+    public Receive createReceive() {
+        return receiveBuilder()
+                .match(messageType, message -> latch.get().countDown())
+                .matchAny(message -> { })
+                .build();
+    }
+
+}
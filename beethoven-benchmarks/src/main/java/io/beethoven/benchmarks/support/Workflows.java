@@ -0,0 +1,148 @@
+/**
+ * The MIT License
+ * Copyright © 2018 Davi Monteiro
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.beethoven.benchmarks.support;
+
+import io.beethoven.PartiturParser;
+import io.beethoven.dsl.Command;
+import io.beethoven.dsl.Handler;
+import io.beethoven.dsl.Handler.EventType;
+import io.beethoven.dsl.Header;
+import io.beethoven.dsl.HttpRequest;
+import io.beethoven.dsl.PartiturWorkflowSerializer;
+import io.beethoven.dsl.Task;
+import io.beethoven.dsl.Workflow;
+import org.springframework.http.HttpMethod;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+
+import static io.beethoven.dsl.ConditionFunctionFactory.TASK_NAME_EQUALS_TO;
+import static io.beethoven.dsl.ConditionFunctionFactory.WORKFLOW_NAME_EQUALS_TO;
+import static io.beethoven.dsl.ConditionFunctionFactory.createCondition;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Workflows used by the benchmarks. A chain workflow has the shape of <code>checkoutProcess</code>:
+ * the first task starts when the workflow is scheduled and every other task starts when the
+ * previous one completes, sending its response as the request body.
+ *
+ * @author Davi Monteiro
+ */
+public class Workflows {
+
+    public static final String CHECKOUT_PROCESS = "checkoutProcess";
+    public static final String ACCESS_TOKEN = "${access_token}";
+
+    public static String checkoutProcessSource() {
+        try (InputStream inputStream = Workflows.class.getResourceAsStream("/workflows/checkoutProcess.partitur")) {
+            return StreamUtils.copyToString(inputStream, UTF_8);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static Workflow parse(PartiturParser parser, String source) throws Exception {
+        return new PartiturWorkflowSerializer().to(parser.parse(new StringReader(source)));
+    }
+
+    public static String taskName(int index) {
+        return "task" + index;
+    }
+
+    public static String responseKey(String taskName) {
+        return "${" + taskName + ".response}";
+    }
+
+    public static Workflow chain(String workflowName, int taskCount) {
+        Workflow workflow = new Workflow();
+        workflow.setName(workflowName);
+
+        for (int i = 0; i < taskCount; i++) {
+            Header header = new Header();
+            header.setName("Authorization");
+            header.setValue(ACCESS_TOKEN);
+
+            HttpRequest httpRequest = new HttpRequest();
+            httpRequest.setMethod(HttpMethod.POST);
+            httpRequest.setUrl("http://service-" + i + "/v1/resources/orchestrated");
+            httpRequest.setHeaders(Collections.singletonList(header));
+            httpRequest.setParams(new ArrayList<>());
+            httpRequest.setUriVariables(new ArrayList<>());
+            httpRequest.setBody(i > 0 ? responseKey(taskName(i - 1)) : null);
+
+            Task task = new Task();
+            task.setName(taskName(i));
+            task.setWorkflowName(workflowName);
+            task.setHttpRequest(httpRequest);
+            workflow.createTask(task);
+
+            Handler handler = new Handler();
+            handler.setName("h" + i);
+            if (i == 0) {
+                handler.setEventType(EventType.WORKFLOW_SCHEDULED);
+                handler.setConditions(Collections.singletonList(createCondition(WORKFLOW_NAME_EQUALS_TO, workflowName)));
+            } else {
+                handler.setEventType(EventType.TASK_COMPLETED);
+                handler.setConditions(Collections.singletonList(createCondition(TASK_NAME_EQUALS_TO, taskName(i - 1))));
+            }
+            handler.setCommands(Collections.singletonList(Command.startTask(taskName(i))));
+            workflow.createHandler(handler);
+        }
+
+        return workflow;
+    }
+
+    /**
+     * The Partitur source of {@link #chain(String, int)}.
+     */
+    public static String chainSource(String workflowName, int taskCount) {
+        StringBuilder source = new StringBuilder("workflow ").append(workflowName).append(" {\n");
+        for (int i = 0; i < taskCount; i++) {
+            source.append("\ttask ").append(taskName(i)).append(" {\n")
+                    .append("\t\tpost(\"http://service-").append(i).append("/v1/resources/orchestrated\")\n")
+                    .append("\t\t\t.header(\"Authorization\", \"").append(ACCESS_TOKEN).append("\")\n");
+            if (i > 0) {
+                source.append("\t\t\t.body(\"").append(responseKey(taskName(i - 1))).append("\")\n");
+            }
+            source.append("\t}\n");
+        }
+        for (int i = 0; i < taskCount; i++) {
+            source.append("\thandler h").append(i).append(" {\n");
+            if (i == 0) {
+                source.append("\t\ton WORKFLOW_SCHEDULED\n")
+                        .append("\t\twhen workflowNameEqualsTo(\"").append(workflowName).append("\")\n");
+            } else {
+                source.append("\t\ton TASK_COMPLETED\n")
+                        .append("\t\twhen taskNameEqualsTo(\"").append(taskName(i - 1)).append("\")\n");
+            }
+            source.append("\t\tthen startTask(\"").append(taskName(i)).append("\")\n")
+                    .append("\t}\n");
+        }
+        return source.append("}\n").toString();
+    }
+
+}
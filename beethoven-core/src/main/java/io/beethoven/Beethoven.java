@@ -22,13 +22,21 @@
  */
 package io.beethoven;
 
+import akka.actor.ActorRef;
 import akka.actor.ActorSystem;
+import akka.routing.ConsistentHashingPool;
+import io.beethoven.config.BeethovenContext;
+import io.beethoven.config.BeethovenProperties;
 import io.beethoven.config.SpringExtension;
 import io.beethoven.dsl.Workflow;
 import io.beethoven.engine.core.ActorName;
+import io.beethoven.engine.core.ActorRegistry;
+import io.beethoven.engine.core.support.MonitoredMailbox;
 import io.beethoven.partitur.partitur.PartiturWorkflow;
 import io.beethoven.dsl.PartiturWorkflowSerializer;
+import io.beethoven.service.RecoveryService;
 import org.apache.commons.io.FilenameUtils;
+import org.springframework.context.ApplicationContext;
 
 import java.io.Reader;
 import java.nio.file.Files;
@@ -47,11 +55,25 @@ public class Beethoven {
     public static final String PARTITUR_EXTENSION = "partitur";
 
     public static void initialize(ActorSystem actorSystem) {
+        ApplicationContext context = BeethovenContext.getApplicationContext();
+        initialize(actorSystem, context.getBean(BeethovenProperties.class), context.getBean(ActorRegistry.class));
+        context.getBean(RecoveryService.class).recover();
+    }
+
+    public static void initialize(ActorSystem actorSystem, BeethovenProperties properties, ActorRegistry actorRegistry) {
         // Initialize the main actors
-        actorSystem.actorOf(SpringExtension.SpringExtProvider.get(actorSystem).props(ActorName.WORKFLOW_ACTOR), ActorName.WORKFLOW_ACTOR);
-        actorSystem.actorOf(SpringExtension.SpringExtProvider.get(actorSystem).props(ActorName.DECIDER_ACTOR), ActorName.DECIDER_ACTOR);
-        actorSystem.actorOf(SpringExtension.SpringExtProvider.get(actorSystem).props(ActorName.TASK_ACTOR), ActorName.TASK_ACTOR);
-        actorSystem.actorOf(SpringExtension.SpringExtProvider.get(actorSystem).props(ActorName.REPORTER_ACTOR), ActorName.REPORTER_ACTOR);
+        ActorRef workflowActor = actorSystem.actorOf(SpringExtension.SpringExtProvider.get(actorSystem).props(ActorName.WORKFLOW_ACTOR)
+                .withMailbox(MonitoredMailbox.MAILBOX), ActorName.WORKFLOW_ACTOR);
+        ActorRef deciderActor = actorSystem.actorOf(new ConsistentHashingPool(properties.getDecider().getPoolSize())
+                .props(SpringExtension.SpringExtProvider.get(actorSystem).props(ActorName.DECIDER_ACTOR)
+                        .withMailbox(MonitoredMailbox.MAILBOX)), ActorName.DECIDER_ACTOR);
+        ActorRef taskActor = actorSystem.actorOf(SpringExtension.SpringExtProvider.get(actorSystem).props(ActorName.TASK_ACTOR)
+                .withMailbox(MonitoredMailbox.MAILBOX), ActorName.TASK_ACTOR);
+        ActorRef reporterActor = actorSystem.actorOf(new ConsistentHashingPool(properties.getReporter().getPoolSize())
+                .props(SpringExtension.SpringExtProvider.get(actorSystem).props(ActorName.REPORTER_ACTOR)
+                        .withMailbox(MonitoredMailbox.MAILBOX)), ActorName.REPORTER_ACTOR);
+
+        actorRegistry.register(workflowActor, deciderActor, taskActor, reporterActor);
     }
 
     public static List<Workflow> loadWorkflows() throws Exception {
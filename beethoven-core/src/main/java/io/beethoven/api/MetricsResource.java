@@ -22,11 +22,86 @@
  */
 package io.beethoven.api;
 
+import io.beethoven.engine.core.support.MonitoredMailbox;
+import io.beethoven.engine.metrics.EngineMetrics;
+import io.beethoven.engine.metrics.EngineMetrics.WorkflowSnapshot;
+import io.beethoven.engine.resilience.BulkheadRegistry;
+import io.beethoven.engine.resilience.CircuitBreakerRegistry;
+import io.beethoven.repository.ContextualInputRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.Map;
+
+import static java.util.Objects.isNull;
+import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
+import static org.springframework.http.ResponseEntity.notFound;
+import static org.springframework.http.ResponseEntity.ok;
+
 @RestController
 @RequestMapping(value = "api/metrics")
 public class MetricsResource {
 
+    @Autowired
+    private ContextualInputRepository contextualInputRepository;
+
+    @Autowired
+    private EngineMetrics engineMetrics;
+
+    @Autowired
+    private CircuitBreakerRegistry circuitBreakerRegistry;
+
+    @Autowired
+    private BulkheadRegistry bulkheadRegistry;
+
+    @GetMapping(produces = APPLICATION_JSON_VALUE)
+    public ResponseEntity findEngineMetrics() {
+        return ok(engineMetrics.engineSnapshot());
+    }
+
+    @GetMapping(value = "/workflows", produces = APPLICATION_JSON_VALUE)
+    public ResponseEntity findWorkflowMetrics() {
+        Map<String, WorkflowSnapshot> workflows = engineMetrics.snapshot();
+        return ok(workflows);
+    }
+
+    @GetMapping(value = "/workflows/{workflowName}", produces = APPLICATION_JSON_VALUE)
+    public ResponseEntity findWorkflowMetrics(@PathVariable String workflowName) {
+        WorkflowSnapshot workflow = engineMetrics.snapshot(workflowName);
+        if (isNull(workflow)) {
+            return notFound().build();
+        }
+        return ok(workflow);
+    }
+
+    @GetMapping(value = "/mailboxes", produces = APPLICATION_JSON_VALUE)
+    public ResponseEntity findMailboxDepths() {
+        Map<String, Integer> depths = MonitoredMailbox.queueDepths();
+        return ok(depths);
+    }
+
+    @GetMapping(value = "/recovery", produces = APPLICATION_JSON_VALUE)
+    public ResponseEntity findRecoveryMetrics() {
+        return ok(engineMetrics.recovery());
+    }
+
+    @GetMapping(value = "/circuit-breakers", produces = APPLICATION_JSON_VALUE)
+    public ResponseEntity findCircuitBreakers() {
+        return ok(circuitBreakerRegistry.snapshot());
+    }
+
+    @GetMapping(value = "/bulkheads", produces = APPLICATION_JSON_VALUE)
+    public ResponseEntity findBulkheads() {
+        return ok(bulkheadRegistry.snapshot());
+    }
+
+    @GetMapping(value = "/inputs", produces = APPLICATION_JSON_VALUE)
+    public ResponseEntity findContextualInputStatistics() {
+        return ok(contextualInputRepository.statistics());
+    }
+
 }
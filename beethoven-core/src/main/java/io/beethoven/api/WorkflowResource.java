@@ -25,6 +25,7 @@ package io.beethoven.api;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import io.beethoven.api.dto.BeethovenOperation;
 import io.beethoven.dsl.Workflow;
+import io.beethoven.dsl.WorkflowAnalysis;
 import io.beethoven.service.WorkflowService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
@@ -33,7 +34,9 @@ import org.springframework.web.bind.annotation.*;
 import java.util.List;
 
 import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
+import static java.util.Objects.isNull;
 import static org.springframework.http.ResponseEntity.noContent;
+import static org.springframework.http.ResponseEntity.notFound;
 import static org.springframework.http.ResponseEntity.ok;
 
 /**
@@ -78,6 +81,15 @@ public class WorkflowResource {
         return ok(workflow);
     }
 
+    @GetMapping(value = "/{workflowName}/analysis", produces = APPLICATION_JSON_VALUE)
+    public ResponseEntity analyzeWorkflow(@PathVariable String workflowName) {
+        WorkflowAnalysis analysis = workflowService.analyze(workflowName);
+        if (isNull(analysis)) {
+            return notFound().build();
+        }
+        return ok(analysis);
+    }
+
     //------------------------------------------------------------ //
 
 
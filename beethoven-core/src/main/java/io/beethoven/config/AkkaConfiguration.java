@@ -23,6 +23,7 @@
 package io.beethoven.config;
 
 import akka.actor.ActorSystem;
+import io.beethoven.engine.core.ActorRegistry;
 import io.beethoven.engine.core.DeciderActor;
 import io.beethoven.engine.core.ReporterActor;
 import io.beethoven.engine.core.TaskActor;
@@ -55,6 +56,11 @@ public class AkkaConfiguration {
         return actorSystem;
     }
 
+    @Bean
+    public ActorRegistry actorRegistry() {
+        return new ActorRegistry();
+    }
+
     @Bean
     @Scope(SCOPE_PROTOTYPE)
     public WorkflowActor workflowActor() {
@@ -32,12 +32,30 @@ import io.beethoven.api.HandlerResource;
 import io.beethoven.api.MetricsResource;
 import io.beethoven.api.TaskResource;
 import io.beethoven.api.WorkflowResource;
+import io.beethoven.engine.journal.Journal;
+import io.beethoven.engine.journal.MappedFileJournal;
+import io.beethoven.engine.metrics.EngineMetrics;
+import io.beethoven.engine.report.AsyncReportSink;
+import io.beethoven.engine.report.InMemoryReportSink;
+import io.beethoven.engine.report.JsonLinesFileSink;
+import io.beethoven.engine.report.ReportSink;
+import io.beethoven.engine.report.SamplingReportSink;
+import io.beethoven.engine.resilience.BulkheadRegistry;
+import io.beethoven.engine.resilience.CircuitBreakerRegistry;
 import io.beethoven.repository.ContextualInputRepository;
 import io.beethoven.repository.WorkflowRepository;
 import io.beethoven.service.HandlerService;
+import io.beethoven.service.RecoveryService;
 import io.beethoven.service.TaskExecutorService;
 import io.beethoven.service.TaskService;
+import io.beethoven.service.TimeoutService;
 import io.beethoven.service.WorkflowService;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOption;
+import io.netty.handler.timeout.IdleStateEvent;
+import io.netty.handler.timeout.IdleStateHandler;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
@@ -47,7 +65,17 @@ import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Import;
 import org.springframework.core.annotation.Order;
+import org.springframework.http.client.reactive.ClientHttpConnector;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.ipc.netty.resources.PoolResources;
+
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
 
 /**
  * @author Davi Monteiro
@@ -59,6 +87,8 @@ import org.springframework.web.reactive.function.client.WebClient;
 @Import(AkkaConfiguration.class)
 public class BeethovenAutoConfiguration {
 
+    public static final String HTTP_CLIENT_POOL = "beethoven";
+
     @Bean
     @LoadBalanced
     @ConditionalOnMissingBean
@@ -66,6 +96,90 @@ public class BeethovenAutoConfiguration {
         return WebClient.builder();
     }
 
+    @Bean
+    @ConditionalOnMissingBean
+    public ClientHttpConnector clientHttpConnector(BeethovenProperties beethovenProperties) {
+        BeethovenProperties.HttpClient httpClient = beethovenProperties.getHttpClient();
+        PoolResources poolResources = PoolResources.fixed(HTTP_CLIENT_POOL,
+                httpClient.getMaxConnections(), httpClient.getAcquireTimeout().toMillis());
+
+        return new ReactorClientHttpConnector(options -> {
+            options.poolResources(poolResources)
+                    .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) httpClient.getConnectTimeout().toMillis())
+                    .option(ChannelOption.SO_KEEPALIVE, httpClient.getKeepAlive());
+
+            Duration maxIdleTime = httpClient.getMaxIdleTime();
+            if (nonNull(maxIdleTime) && !maxIdleTime.isZero() && !maxIdleTime.isNegative()) {
+                options.afterChannelInit(channel -> closeWhenIdle(channel, maxIdleTime));
+            }
+        });
+    }
+
+    private static void closeWhenIdle(Channel channel, Duration maxIdleTime) {
+        if (isNull(channel.pipeline().get(IdleStateHandler.class))) {
+            channel.pipeline()
+                    .addFirst(new ChannelDuplexHandler() {
+                        @Override
+                        public void userEventTriggered(ChannelHandlerContext ctx, Object event) throws Exception {
+                            if (event instanceof IdleStateEvent) {
+                                ctx.close();
+                            } else {
+                                super.userEventTriggered(ctx, event);
+                            }
+                        }
+                    })
+                    .addFirst(new IdleStateHandler(0, 0, maxIdleTime.toMillis(), TimeUnit.MILLISECONDS));
+        }
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public EngineMetrics engineMetrics() {
+        return new EngineMetrics();
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public ReportSink reportSink(BeethovenProperties beethovenProperties) {
+        BeethovenProperties.Reporting reporting = beethovenProperties.getReporting();
+        ReportSink reportSink;
+        switch (reporting.getSink()) {
+            case MEMORY:
+                reportSink = new InMemoryReportSink(reporting.getBufferSize());
+                break;
+            case NONE:
+                return ReportSink.NONE;
+            default:
+                reportSink = new AsyncReportSink(new JsonLinesFileSink(Paths.get(reporting.getFile()),
+                        reporting.getMaxFileSize(), reporting.getMaxFiles()), reporting.getBufferSize());
+                break;
+        }
+        return reporting.getSampleRate() < 1 ? new SamplingReportSink(reportSink, reporting.getSampleRate()) : reportSink;
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public Journal journal(BeethovenProperties beethovenProperties) {
+        BeethovenProperties.Journal journal = beethovenProperties.getJournal();
+        if (!journal.getEnabled()) {
+            return Journal.NONE;
+        }
+        return new MappedFileJournal(Paths.get(journal.getDirectory()), journal.getSegmentSize(),
+                journal.getGroupCommitWindow(), journal.getSnapshotInterval());
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public CircuitBreakerRegistry circuitBreakerRegistry(BeethovenProperties beethovenProperties) {
+        return new CircuitBreakerRegistry(beethovenProperties.getCircuitBreakers());
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public BulkheadRegistry bulkheadRegistry(BeethovenProperties beethovenProperties) {
+        return new BulkheadRegistry(beethovenProperties.getBulkheads());
+    }
+
     @Bean
     @ConditionalOnMissingBean
     public ObjectMapper mapper() {
@@ -103,8 +217,8 @@ public class BeethovenAutoConfiguration {
 
     @Bean
     @ConditionalOnMissingBean
-    public WorkflowRepository workflowRepository() throws Exception {
-        WorkflowRepository workflowRepository = new WorkflowRepository();
+    public WorkflowRepository workflowRepository(BeethovenProperties beethovenProperties) throws Exception {
+        WorkflowRepository workflowRepository = new WorkflowRepository(beethovenProperties.getParallelization());
         workflowRepository.saveAll(Beethoven.loadWorkflows());
         return workflowRepository;
     }
@@ -139,6 +253,18 @@ public class BeethovenAutoConfiguration {
         return new TaskExecutorService();
     }
 
+    @Bean
+    @ConditionalOnMissingBean
+    public RecoveryService recoveryService() {
+        return new RecoveryService();
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public TimeoutService timeoutService() {
+        return new TimeoutService();
+    }
+
     @Bean
     @Order
     @ConditionalOnMissingBean
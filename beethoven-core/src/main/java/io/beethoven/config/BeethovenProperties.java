@@ -23,10 +23,20 @@
 package io.beethoven.config;
 
 
+import io.beethoven.dsl.RetryPolicy;
 import lombok.Data;
+import lombok.AllArgsConstructor;
 import lombok.Getter;
+import lombok.NoArgsConstructor;
 import lombok.Setter;
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import reactor.ipc.netty.resources.PoolResources;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * @author Davi Monteiro
@@ -39,4 +49,477 @@ public class BeethovenProperties {
 
     private Integer port;
 
+    private Decider decider = new Decider();
+
+    private Reporter reporter = new Reporter();
+
+    private HttpClient httpClient = new HttpClient();
+
+    private Instances instances = new Instances();
+
+    private Inputs inputs = new Inputs();
+
+    private Reporting reporting = new Reporting();
+
+    private Journal journal = new Journal();
+
+    private Timeouts timeouts = new Timeouts();
+
+    private Retries retries = new Retries();
+
+    private CircuitBreakers circuitBreakers = new CircuitBreakers();
+
+    private Bulkheads bulkheads = new Bulkheads();
+
+    private Hedging hedging = new Hedging();
+
+    private Parallelization parallelization = new Parallelization();
+
+    @Getter @Setter
+    public static class Decider {
+
+        /**
+         * Number of decider actors. Events of the same workflow instance are always routed
+         * to the same decider, so they are decided in order.
+         */
+        private Integer poolSize = Runtime.getRuntime().availableProcessors();
+
+        /**
+         * Maximum number of workflow instances whose joins are tracked by all deciders together,
+         * and of terminated instances they remember. When a decider is full, the instances that
+         * start joining tasks are failed.
+         */
+        private Integer maxJoins = 10000;
+
+    }
+
+    @Getter @Setter
+    public static class Reporter {
+
+        /**
+         * Number of reporter actors. Events of the same workflow instance are always routed
+         * to the same reporter.
+         */
+        private Integer poolSize = Runtime.getRuntime().availableProcessors();
+
+        /**
+         * Maximum number of in-flight workflow instances tracked by all reporters together.
+         * When a reporter is full, the instances it is given are failed.
+         */
+        private Integer maxInstances = 10000;
+
+        /**
+         * Maximum number of summaries of finished workflow instances kept by all reporters together.
+         */
+        private Integer maxSummaries = 1000;
+
+    }
+
+    @Getter @Setter
+    public static class HttpClient {
+
+        /**
+         * Maximum number of pooled connections per target host.
+         */
+        private Integer maxConnections = PoolResources.DEFAULT_POOL_MAX_CONNECTION;
+
+        /**
+         * Maximum time to wait for a pooled connection when all of them are in use.
+         */
+        private Duration acquireTimeout = Duration.ofMillis(PoolResources.DEFAULT_POOL_ACQUIRE_TIMEOUT);
+
+        private Duration connectTimeout = Duration.ofSeconds(10);
+
+        /**
+         * Time without any traffic after which a pooled connection is closed. It must be longer
+         * than the slowest expected response. Disabled when not set.
+         */
+        private Duration maxIdleTime;
+
+        /**
+         * Enables TCP keep-alive on the pooled connections.
+         */
+        private Boolean keepAlive = Boolean.TRUE;
+
+        /**
+         * Length, in characters, from which a request body is streamed in chunks of pooled buffers
+         * instead of being encoded at once on the heap.
+         */
+        private Integer streamingThreshold = 256 * 1024;
+
+    }
+
+    @Getter @Setter
+    public static class Instances {
+
+        /**
+         * Time without any command after which the actor of a workflow instance is passivated:
+         * its state is kept in a compact serialized form until the next command for the instance.
+         * Disabled when not set.
+         */
+        private Duration passivateAfter = Duration.ofMinutes(1);
+
+        /**
+         * Maximum number of passivated workflow instances. Beyond it, the oldest passivated
+         * instance fails, as if it had timed out. Unbounded when not set.
+         */
+        private Integer maxPassivated = 100_000;
+
+    }
+
+    @Getter @Setter
+    public static class Inputs {
+
+        /**
+         * Time after the last access to the inputs of a workflow instance after which its values
+         * kept on the heap are spilled to the spill directory.
+         */
+        private Duration ttl = Duration.ofHours(1);
+
+        /**
+         * Time after the last access to the inputs of a workflow instance after which they are
+         * released, even though the instance did not terminate. An instance resumed afterwards
+         * no longer finds the responses of its previous tasks.
+         */
+        private Duration maxIdleTime = Duration.ofHours(24);
+
+        /**
+         * Interval between two sweeps of the expired inputs.
+         */
+        private Duration sweepInterval = Duration.ofMinutes(1);
+
+        /**
+         * Maximum estimated heap size, in bytes, of the inputs of all workflow instances. When it
+         * is exceeded, the values of the least recently used instances are spilled.
+         */
+        private Long maxBytes = 64L * 1024 * 1024;
+
+        /**
+         * Size in bytes from which an input value is written to the spill directory instead of
+         * being kept on the heap. Disabled when not set.
+         */
+        private Long spillThreshold;
+
+        /**
+         * Size in bytes from which an input value is kept as UTF-8 bytes in pooled direct memory
+         * instead of on the heap, until its workflow instance is released. Disabled when not set.
+         */
+        private Long offHeapThreshold;
+
+        /**
+         * Maximum size in bytes of the input values kept off the heap. Beyond it, values are
+         * spilled or kept on the heap.
+         */
+        private Long maxOffHeapBytes = 256L * 1024 * 1024;
+
+        /**
+         * Maximum size in bytes of the input values written to the spill directory. Beyond it,
+         * values are kept on the heap.
+         */
+        private Long maxSpilledBytes = 1024L * 1024 * 1024;
+
+        /**
+         * Number of released workflow instances whose names are remembered, so that the task
+         * responses arriving after they terminated are dropped.
+         */
+        private Integer maxReleasedInstances = 10000;
+
+        private String spillDirectory = System.getProperty("java.io.tmpdir") + "/beethoven-inputs";
+
+    }
+
+    @Getter @Setter
+    public static class Reporting {
+
+        /**
+         * Destination of the records of terminated tasks and workflow instances.
+         */
+        private Sink sink = Sink.FILE;
+
+        /**
+         * Fraction, between 0 and 1, of the successful records that are written. Failed records
+         * are always written.
+         */
+        private Double sampleRate = 1.0;
+
+        /**
+         * Number of records buffered for the background writer, or kept by the memory sink.
+         */
+        private Integer bufferSize = 8192;
+
+        private String file = System.getProperty("java.io.tmpdir") + "/beethoven-reports/reports.jsonl";
+
+        private Long maxFileSize = 64L * 1024 * 1024;
+
+        /**
+         * Number of report files kept, including the current one.
+         */
+        private Integer maxFiles = 10;
+
+        public enum Sink {
+            FILE,
+            MEMORY,
+            NONE
+        }
+
+    }
+
+    @Getter @Setter
+    public static class Journal {
+
+        /**
+         * Whether the workflow instances are journaled and recovered on startup.
+         */
+        private Boolean enabled = Boolean.FALSE;
+
+        private String directory = System.getProperty("java.io.tmpdir") + "/beethoven-journal";
+
+        /**
+         * Size in bytes of each memory-mapped journal segment.
+         */
+        private Integer segmentSize = 64 * 1024 * 1024;
+
+        /**
+         * Interval between two forces of the journal to disk. Every record appended during the
+         * window is made durable by the same force.
+         */
+        private Duration groupCommitWindow = Duration.ofMillis(5);
+
+        /**
+         * Interval between two snapshots of the journal. A snapshot holds the state of the unfinished
+         * instances, so the segments written before it are deleted. Snapshots are disabled when it
+         * is zero.
+         */
+        private Duration snapshotInterval = Duration.ofMinutes(1);
+
+    }
+
+    @Getter @Setter
+    public static class Timeouts {
+
+        /**
+         * Default time to wait for the response of a task, retries included. When it expires,
+         * the http call is cancelled and the task times out. Disabled when not set.
+         */
+        private Duration task = Duration.ofSeconds(30);
+
+        /**
+         * Default time for a workflow instance to terminate. When it expires, the instance fails
+         * and its in-flight tasks are cancelled. Disabled when not set.
+         */
+        private Duration workflow;
+
+        /**
+         * Task timeouts by <code>workflowName.taskName</code>, when not declared by the task itself.
+         */
+        private Map<String, Duration> tasks = new HashMap<>();
+
+        /**
+         * Workflow timeouts by workflow name, when not declared by the workflow itself.
+         */
+        private Map<String, Duration> workflows = new HashMap<>();
+
+        /**
+         * Resolution of the timer wheel. Timeouts expire up to one tick late.
+         */
+        private Duration tickDuration = Duration.ofMillis(10);
+
+    }
+
+    @Getter @Setter
+    public static class Retries {
+
+        /**
+         * Retry policy of the tasks that do not declare one.
+         */
+        private RetryPolicy policy = new RetryPolicy();
+
+        /**
+         * Retry policies by <code>[workflowName.taskName]</code>, when not declared by the task itself.
+         */
+        private Map<String, RetryPolicy> tasks = new HashMap<>();
+
+        /**
+         * Maximum ratio of retries to first attempts, among all the tasks.
+         */
+        private Double budgetRatio = 0.2;
+
+        /**
+         * Retries allowed per second whatever the ratio, so a lightly loaded engine can still retry.
+         */
+        private Integer minRetriesPerSecond = 10;
+
+    }
+
+    @Getter @Setter
+    public static class Hedging {
+
+        /**
+         * Whether the GET tasks send their request a second time when the first one is slower than
+         * usual, and take whichever responds first.
+         */
+        private Boolean enabled = Boolean.FALSE;
+
+        /**
+         * Whether specific tasks are hedged, by <code>[workflowName.taskName]</code>. Only the GET
+         * tasks, whose requests are idempotent, are ever hedged.
+         */
+        private Map<String, Boolean> tasks = new HashMap<>();
+
+        /**
+         * Percentile, between 0 and 100, of the observed latency of the attempts of a task after
+         * which its request is hedged.
+         */
+        private Double percentile = 95.0;
+
+        /**
+         * Number of attempts of a task observed before its requests are hedged.
+         */
+        private Integer minSamples = 100;
+
+        /**
+         * Minimum time to wait before hedging a request.
+         */
+        private Duration minDelay = Duration.ofMillis(5);
+
+        /**
+         * Maximum ratio of hedged requests to requests of the hedged tasks.
+         */
+        private Double budgetRatio = 0.1;
+
+        /**
+         * Hedged requests allowed per second whatever the ratio.
+         */
+        private Integer minHedgesPerSecond = 1;
+
+    }
+
+    @Getter @Setter
+    public static class CircuitBreakers {
+
+        /**
+         * Whether the calls to each target host go through a circuit breaker.
+         */
+        private Boolean enabled = Boolean.TRUE;
+
+        /**
+         * Failure rate, between 0 and 1, of the last calls from which a circuit breaker opens.
+         * Server errors, connection errors and timeouts are failures.
+         */
+        private Double failureRateThreshold = 0.5;
+
+        /**
+         * Number of last calls whose failure rate is computed.
+         */
+        private Integer slidingWindowSize = 100;
+
+        /**
+         * Number of calls recorded before the failure rate is considered.
+         */
+        private Integer minimumCalls = 20;
+
+        /**
+         * Time a circuit breaker rejects every call once opened, before it lets probe calls through.
+         */
+        private Duration openDuration = Duration.ofSeconds(5);
+
+        /**
+         * Number of probe calls that must succeed to close a circuit breaker.
+         */
+        private Integer probeCalls = 5;
+
+    }
+
+
+    @Getter @Setter
+    public static class Bulkheads {
+
+        /**
+         * Whether the calls of the tasks wait for a permit of the bulkheads of their workflow
+         * and of their target host.
+         */
+        private Boolean enabled = Boolean.TRUE;
+
+        /**
+         * Limits of the calls to each target host.
+         */
+        private BulkheadLimits service = new BulkheadLimits(PoolResources.DEFAULT_POOL_MAX_CONNECTION, 1000);
+
+        /**
+         * Limits of the calls to specific target hosts, by host.
+         */
+        private Map<String, BulkheadLimits> services = new HashMap<>();
+
+        /**
+         * Limits of the calls of each workflow. Unbounded when the maximum concurrent calls is not set.
+         */
+        private BulkheadLimits workflow = new BulkheadLimits(null, 1000);
+
+        /**
+         * Limits of the calls of specific workflows, by workflow name.
+         */
+        private Map<String, BulkheadLimits> workflows = new HashMap<>();
+
+        private AdaptiveLimit adaptiveLimit = new AdaptiveLimit();
+
+    }
+
+    @Getter @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class BulkheadLimits {
+
+        /**
+         * Maximum number of calls in flight. Further calls wait in the queue.
+         */
+        private Integer maxConcurrentCalls;
+
+        /**
+         * Maximum number of calls waiting for a permit. Further calls fail at once.
+         */
+        private Integer maxQueuedCalls;
+
+    }
+
+    @Getter @Setter
+    public static class AdaptiveLimit {
+
+        /**
+         * Whether the limit of the bulkhead of each target host adapts to its latency, between
+         * the minimum limit and the maximum concurrent calls.
+         */
+        private Boolean enabled = Boolean.FALSE;
+
+        private Integer minLimit = 1;
+
+        /**
+         * Latency above which a call shrinks the limit, as do server errors and timeouts.
+         */
+        private Duration latencyThreshold = Duration.ofMillis(500);
+
+        /**
+         * Ratio by which a slow or failed call shrinks the limit.
+         */
+        private Double backoffRatio = 0.9;
+
+    }
+
+    @Getter @Setter
+    public static class Parallelization {
+
+        /**
+         * Whether the tasks of a workflow are started as soon as the tasks whose responses they
+         * use completed, instead of in the order of its handlers. Only workflows whose handlers
+         * just start tasks once a workflow or a task started or completed are parallelized, and
+         * tasks depending on the side effects of others, not on their responses, should not be.
+         */
+        private Boolean enabled = Boolean.FALSE;
+
+        /**
+         * Names of the workflows that are parallelized, all of them when empty.
+         */
+        private Set<String> workflows = new HashSet<>();
+
+    }
+
 }
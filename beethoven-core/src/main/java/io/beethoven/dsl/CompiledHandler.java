@@ -0,0 +1,106 @@
+/**
+ * The MIT License
+ * Copyright © 2018 Davi Monteiro
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.beethoven.dsl;
+
+import io.beethoven.dsl.Handler.EventType;
+import io.beethoven.engine.core.DeciderActor.TaskEvent;
+import io.beethoven.engine.core.DeciderActor.WorkflowEvent;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.ToString;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+import static java.util.Collections.unmodifiableList;
+import static java.util.Objects.nonNull;
+
+/**
+ * Immutable, thread-safe form of a {@link Handler}. Its conditions are compiled into predicates
+ * over the decider events and its commands into {@link CommandTemplate}s, so a handler can be
+ * evaluated concurrently without touching the workflow definition.
+ *
+ * @author Davi Monteiro
+ */
+@ToString(of = {"name", "eventType"})
+public class CompiledHandler {
+
+    @Getter
+    private final String name;
+
+    @Getter
+    private final EventType eventType;
+
+    private final Predicate<TaskEvent> taskPredicate;
+
+    private final Predicate<WorkflowEvent> workflowPredicate;
+
+    @Getter
+    private final List<CommandTemplate> commands;
+
+    /**
+     * The join of the handler, which the decider records the events of before running its
+     * commands, or null when it has none.
+     */
+    @Getter
+    private final Join join;
+
+    public CompiledHandler(@NonNull Handler handler) {
+        this(handler, null);
+    }
+
+    public CompiledHandler(@NonNull Handler handler, Join join) {
+        Predicate<TaskEvent> taskPredicate = taskEvent -> true;
+        Predicate<WorkflowEvent> workflowPredicate = workflowEvent -> true;
+        if (nonNull(handler.getConditions())) {
+            for (Condition condition : handler.getConditions()) {
+                taskPredicate = taskPredicate.and(condition.toTaskPredicate());
+                workflowPredicate = workflowPredicate.and(condition.toWorkflowPredicate());
+            }
+        }
+
+        List<CommandTemplate> commands = new ArrayList<>();
+        if (nonNull(handler.getCommands())) {
+            for (Command command : handler.getCommands()) {
+                commands.add(CommandTemplate.of(command));
+            }
+        }
+
+        this.name = handler.getName();
+        this.eventType = handler.getEventType();
+        this.taskPredicate = taskPredicate;
+        this.workflowPredicate = workflowPredicate;
+        this.commands = unmodifiableList(commands);
+        this.join = join;
+    }
+
+    public boolean matches(TaskEvent taskEvent) {
+        return taskPredicate.test(taskEvent);
+    }
+
+    public boolean matches(WorkflowEvent workflowEvent) {
+        return workflowPredicate.test(workflowEvent);
+    }
+
+}
@@ -22,18 +22,28 @@
  */
 package io.beethoven.dsl;
 
+import com.jayway.jsonpath.Configuration;
+import com.jayway.jsonpath.InvalidPathException;
 import com.jayway.jsonpath.JsonPath;
-import io.beethoven.engine.core.DeciderActor;
+import com.jayway.jsonpath.PathNotFoundException;
+import io.beethoven.engine.TaskResponse;
+import io.beethoven.engine.core.DeciderActor.TaskCompletedEvent;
+import io.beethoven.engine.core.DeciderActor.TaskEvent;
+import io.beethoven.engine.core.DeciderActor.WorkflowEvent;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
-import org.hamcrest.Matcher;
+import lombok.extern.slf4j.Slf4j;
 
 import java.io.Serializable;
+import java.util.List;
+import java.util.function.Predicate;
 
+import static java.util.Objects.isNull;
 import static java.util.Objects.nonNull;
 
+@Slf4j
 @Data
 @Builder
 @AllArgsConstructor
@@ -42,75 +52,133 @@ public class Condition implements Serializable {
 
     private ConditionFunction conditionFunction;
 
+    /**
+     * A condition function only holds the definition written in the workflow. It is compiled
+     * into immutable predicates over the decider events, so the same definition can be
+     * evaluated by several deciders at once.
+     */
     public interface ConditionFunction {
-        Boolean evaluate();
+        Predicate<TaskEvent> toTaskPredicate();
+
+        Predicate<WorkflowEvent> toWorkflowPredicate();
     }
 
     @Data
     public static class ConditionWorkflowNameEqualsTo implements ConditionFunction {
         private String workflowName;
-        private String currentWorkflowName;
-
-        public Boolean evaluate() {
-            Boolean result = Boolean.FALSE;
 
-            if (nonNull(workflowName) && nonNull(currentWorkflowName)) {
-                result = workflowName.equals(currentWorkflowName);
-            }
+        public Predicate<TaskEvent> toTaskPredicate() {
+            String expectedWorkflowName = workflowName;
+            return taskEvent -> nonNull(expectedWorkflowName) && expectedWorkflowName.equals(taskEvent.getWorkflowName());
+        }
 
-            return result;
+        public Predicate<WorkflowEvent> toWorkflowPredicate() {
+            String expectedWorkflowName = workflowName;
+            return workflowEvent -> nonNull(expectedWorkflowName) && expectedWorkflowName.equals(workflowEvent.getWorkflowName());
         }
     }
 
     @Data
     public static class ConditionTaskNameEqualsTo implements ConditionFunction {
         private String taskName;
-        private String currentTaskName;
 
-        public Boolean evaluate() {
-            Boolean result = Boolean.FALSE;
+        public Predicate<TaskEvent> toTaskPredicate() {
+            String expectedTaskName = taskName;
+            return taskEvent -> nonNull(expectedTaskName) && expectedTaskName.equals(taskEvent.getTaskName());
+        }
+
+        public Predicate<WorkflowEvent> toWorkflowPredicate() {
+            return workflowEvent -> false;
+        }
+    }
 
-            if (nonNull(taskName) && nonNull(currentTaskName)) {
-                result = taskName.equals(currentTaskName);
-            }
+    /**
+     * Joins the events of several tasks of an instance: {@code allOf} matches once all of them
+     * happened, and {@code anyOf} once the first of them did. Its predicates only match the
+     * events of these tasks, and the decider tracks which of them already happened.
+     */
+    @Data
+    public static class ConditionJoin implements ConditionFunction {
+        private List<String> taskNames;
+        private boolean all;
 
-            return result;
+        public Predicate<TaskEvent> toTaskPredicate() {
+            List<String> expectedTaskNames = taskNames;
+            return taskEvent -> nonNull(expectedTaskNames) && expectedTaskNames.contains(taskEvent.getTaskName());
+        }
+
+        public Predicate<WorkflowEvent> toWorkflowPredicate() {
+            return workflowEvent -> false;
         }
     }
 
+    /**
+     * Matches the completion of a task whose JSON response has the expected value at a path, or
+     * any value at all when none is expected. The path is compiled once with the handler, and
+     * the response parsed at most once per completion, whatever the number of handlers reading it.
+     */
     @Data
-    public class ConditionTaskResponseEqualsTo implements ConditionFunction {
-        private ConditionFunction operator;
-        private String jsonPath;
-        private Matcher matcher;
-        private String currentResponse;
+    public static class ConditionTaskResponseEqualsTo implements ConditionFunction {
+        private static final Configuration CONFIGURATION = Configuration.defaultConfiguration();
 
-        public Boolean evaluate() {
-            Boolean result = Boolean.FALSE;
+        private String jsonPath;
+        private String expectedValue;
 
-            if (nonNull(matcher) && nonNull(currentResponse)) {
-                String path = JsonPath.compile(currentResponse).getPath();
-                result = matcher.matches(path);
+        public Predicate<TaskEvent> toTaskPredicate() {
+            if (isNull(jsonPath)) {
+                return taskEvent -> false;
+            }
+            JsonPath path;
+            try {
+                path = JsonPath.compile(jsonPath);
+            } catch (InvalidPathException | IllegalArgumentException e) {
+                // Not created by the factory, which rejects it, so the handler never fires
+                log.error("Invalid JSON path {} in a taskResponseEqualsTo condition: {}", jsonPath, e.getMessage());
+                return taskEvent -> false;
             }
+            String expected = expectedValue;
+            return taskEvent -> {
+                TaskResponse response = taskEvent instanceof TaskCompletedEvent
+                        ? ((TaskCompletedEvent) taskEvent).getResponse() : null;
+                Object document = nonNull(response) ? response.getDocument(CONFIGURATION) : null;
+                if (isNull(document)) {
+                    return false;
+                }
+                try {
+                    return matches(path.read(document, CONFIGURATION), expected);
+                } catch (PathNotFoundException e) {
+                    return false;
+                }
+            };
+        }
 
-            return result;
+        private static boolean matches(Object value, String expected) {
+            if (value instanceof List && !((List) value).isEmpty()) {
+                // A path selecting several values matches when any of them does
+                for (Object element : (List) value) {
+                    if (matches(element, expected)) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+            if (isNull(expected)) {
+                return nonNull(value) && !(value instanceof List);
+            }
+            return expected.equals(String.valueOf(value));
         }
-    }
 
-    public void setCurrentlValues(DeciderActor.WorkflowEvent workflowEvent) {
-        if (nonNull(conditionFunction) && conditionFunction instanceof ConditionWorkflowNameEqualsTo) {
-            ((ConditionWorkflowNameEqualsTo) conditionFunction).currentWorkflowName = workflowEvent.getWorkflowName();
+        public Predicate<WorkflowEvent> toWorkflowPredicate() {
+            return workflowEvent -> false;
         }
     }
 
-    public void setCurrentlValues(DeciderActor.TaskEvent taskEvent) {
-        if (nonNull(conditionFunction) && conditionFunction instanceof ConditionTaskNameEqualsTo) {
-            ((ConditionTaskNameEqualsTo) conditionFunction).currentTaskName  = taskEvent.getTaskName();
-        }
+    public Predicate<TaskEvent> toTaskPredicate() {
+        return nonNull(conditionFunction) ? conditionFunction.toTaskPredicate() : taskEvent -> false;
     }
 
-    public Boolean evaluate() {
-        return conditionFunction.evaluate();
+    public Predicate<WorkflowEvent> toWorkflowPredicate() {
+        return nonNull(conditionFunction) ? conditionFunction.toWorkflowPredicate() : workflowEvent -> false;
     }
 
 }
@@ -22,9 +22,17 @@
  */
 package io.beethoven.dsl;
 
+import com.jayway.jsonpath.InvalidPathException;
+import com.jayway.jsonpath.JsonPath;
+import io.beethoven.dsl.Condition.ConditionJoin;
 import io.beethoven.dsl.Condition.ConditionTaskNameEqualsTo;
+import io.beethoven.dsl.Condition.ConditionTaskResponseEqualsTo;
+
+import java.util.Arrays;
+import java.util.stream.Collectors;
 
 import static io.beethoven.dsl.Condition.ConditionWorkflowNameEqualsTo;
+import static java.util.Objects.nonNull;
 
 /**
  * @author Davi Monteiro
@@ -34,6 +42,10 @@ public class ConditionFunctionFactory {
     public static final String TASK_NAME_EQUALS_TO = "taskNameEqualsTo";
     public static final String WORKFLOW_NAME_EQUALS_TO = "workflowNameEqualsTo";
     public static final String TASK_RESPONSE_EQUALS_TO = "taskResponseEqualsTo";
+    public static final String ALL_OF = "allOf";
+    public static final String ANY_OF = "anyOf";
+
+    private static final String EQUALS_OPERATOR = "==";
 
     public static Condition createCondition(String fuction, String arg) {
         Condition condition = new Condition();
@@ -51,11 +63,66 @@ public class ConditionFunctionFactory {
                 condition.setConditionFunction(conditionWorkflowNameEqualsTo);
                 break;
 
+            case ALL_OF:
+            case ANY_OF:
+                // The tasks are listed in a single argument, as in allOf("taskA, taskB")
+                ConditionJoin conditionJoin = new ConditionJoin();
+                conditionJoin.setTaskNames(Arrays.stream(nonNull(arg) ? arg.split(",") : new String[0])
+                        .map(String::trim)
+                        .filter(taskName -> !taskName.isEmpty())
+                        .distinct()
+                        .collect(Collectors.toList()));
+                conditionJoin.setAll(ALL_OF.equals(fuction));
+                condition.setConditionFunction(conditionJoin);
+                break;
+
             case TASK_RESPONSE_EQUALS_TO:
+                // A path and the value expected there, as in taskResponseEqualsTo("$.status == 'OK'")
+                ConditionTaskResponseEqualsTo conditionTaskResponseEqualsTo = new ConditionTaskResponseEqualsTo();
+                if (nonNull(arg)) {
+                    int operator = indexOfEqualsOperator(arg);
+                    String jsonPath = (operator < 0 ? arg : arg.substring(0, operator)).trim();
+                    try {
+                        JsonPath.compile(jsonPath);
+                    } catch (InvalidPathException | IllegalArgumentException e) {
+                        throw new IllegalArgumentException("Invalid JSON path " + jsonPath + " in "
+                                + TASK_RESPONSE_EQUALS_TO + "(\"" + arg + "\"): " + e.getMessage(), e);
+                    }
+                    conditionTaskResponseEqualsTo.setJsonPath(jsonPath);
+                    if (operator >= 0) {
+                        conditionTaskResponseEqualsTo.setExpectedValue(unquote(arg.substring(operator + EQUALS_OPERATOR.length()).trim()));
+                    }
+                }
+                condition.setConditionFunction(conditionTaskResponseEqualsTo);
                 break;
         }
 
         return condition;
     }
 
+    /**
+     * Finds the operator outside of the brackets of the path, which may have filters comparing values too.
+     */
+    private static int indexOfEqualsOperator(String arg) {
+        int depth = 0;
+        for (int i = 0; i < arg.length(); i++) {
+            char c = arg.charAt(i);
+            if (c == '[' || c == '(') {
+                depth++;
+            } else if (c == ']' || c == ')') {
+                depth--;
+            } else if (depth == 0 && arg.startsWith(EQUALS_OPERATOR, i)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static String unquote(String value) {
+        if (value.length() >= 2 && (value.startsWith("'") && value.endsWith("'") || value.startsWith("\"") && value.endsWith("\""))) {
+            return value.substring(1, value.length() - 1);
+        }
+        return value;
+    }
+
 }
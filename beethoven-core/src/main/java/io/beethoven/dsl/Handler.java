@@ -57,7 +57,11 @@ public class Handler {
         TASK_STARTED, TASK_COMPLETED, TASK_TIMEDOUT, TASK_FAILED,
 
         // Workflow events
-        WORKFLOW_SCHEDULED, WORKFLOW_STARTED, WORKFLOW_COMPLETED, WORKFLOW_STOPPED, WORKFLOW_FAILED, WORKFLOW_CANCELED
+        WORKFLOW_SCHEDULED, WORKFLOW_STARTED, WORKFLOW_COMPLETED, WORKFLOW_STOPPED, WORKFLOW_FAILED, WORKFLOW_CANCELED;
+
+        public boolean isTaskEvent() {
+            return this == TASK_STARTED || this == TASK_COMPLETED || this == TASK_TIMEDOUT || this == TASK_FAILED;
+        }
     }
 
 }
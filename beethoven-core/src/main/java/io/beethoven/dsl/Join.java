@@ -0,0 +1,94 @@
+/**
+ * The MIT License
+ * Copyright © 2018 Davi Monteiro
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.beethoven.dsl;
+
+import io.beethoven.dsl.Condition.ConditionJoin;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.ToString;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import static java.util.Collections.unmodifiableList;
+
+/**
+ * Compiled form of a {@link ConditionJoin}. The state of all the joins of a workflow instance
+ * is a single {@link BitSet}, in which each join owns a range: one bit per joined task, set
+ * once its event happened, followed by one bit set once the join fired, so it fires only once.
+ * The ranges are laid out when the handlers of a workflow are indexed, and a new layout is
+ * identified by a new generation, so the state of an older layout is never misread.
+ *
+ * @author Davi Monteiro
+ */
+@ToString(of = {"taskNames", "all", "offset"})
+public class Join {
+
+    @Getter
+    private final List<String> taskNames;
+
+    @Getter
+    private final boolean all;
+
+    @Getter
+    private final int offset;
+
+    @Getter
+    private final Object generation;
+
+    public Join(@NonNull ConditionJoin conditionJoin, int offset, @NonNull Object generation) {
+        this.taskNames = unmodifiableList(new ArrayList<>(conditionJoin.getTaskNames()));
+        this.all = conditionJoin.isAll();
+        this.offset = offset;
+        this.generation = generation;
+    }
+
+    /**
+     * @return the number of bits of the join in the state of an instance
+     */
+    public int getWidth() {
+        return taskNames.size() + 1;
+    }
+
+    /**
+     * Records the event of a task in the state of an instance.
+     *
+     * @return whether the join fires with this event
+     */
+    public boolean record(BitSet bits, String taskName) {
+        int index = taskNames.indexOf(taskName);
+        int fired = offset + taskNames.size();
+        if (index < 0 || bits.get(fired)) {
+            return false;
+        }
+
+        bits.set(offset + index);
+        if (all && bits.nextClearBit(offset) < fired) {
+            return false;
+        }
+        bits.set(fired);
+        return true;
+    }
+
+}
@@ -0,0 +1,200 @@
+/**
+ * The MIT License
+ * Copyright © 2018 Davi Monteiro
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.beethoven.dsl;
+
+import lombok.Getter;
+import lombok.NonNull;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.util.UriComponents;
+import org.springframework.web.util.UriComponentsBuilder;
+import org.springframework.web.util.UriTemplate;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.unmodifiableList;
+import static java.util.Collections.unmodifiableSet;
+import static java.util.Objects.nonNull;
+
+/**
+ * Immutable form of a {@link HttpRequest}, compiled once when the workflow is loaded. The URL is
+ * parsed into a URI template whose variables are the task's URI variables, bound by position,
+ * followed by its query params. Every header, variable, param and body is split into a
+ * {@link TemplateValue}, so executing a task only binds the {@link #getInputKeys() inputs} it
+ * needs and expands the URI. Only POST, PUT and PATCH requests carry a body.
+ * <p>
+ * A task declaring fewer URI variables than its URL requires still gets a template, which is
+ * {@link #isValid() invalid}, so only that task fails when it is executed.
+ *
+ * @author Davi Monteiro
+ */
+public class RequestTemplate {
+
+    private static final String PARAM_VARIABLE_PREFIX = "beethoven.param.";
+
+    @Getter
+    private final String taskName;
+
+    @Getter
+    private final String workflowName;
+
+    @Getter
+    private final HttpMethod method;
+
+    private final UriComponents uriComponents;
+
+    private final List<String> variableNames;
+
+    private final List<TemplateValue> variableValues;
+
+    @Getter
+    private final List<NamedValue> headers;
+
+    private final TemplateValue body;
+
+    /**
+     * The input key of a body that is a single placeholder, which can be written as is.
+     */
+    @Getter
+    private final String bodyInputKey;
+
+    @Getter
+    private final Set<String> inputKeys;
+
+    /**
+     * The input keys of the URI and of the headers, without those only used by the body.
+     */
+    @Getter
+    private final Set<String> headInputKeys;
+
+    /**
+     * Why the task can not be executed, or null when its template is valid.
+     */
+    @Getter
+    private final String error;
+
+    public RequestTemplate(@NonNull Task task) {
+        HttpRequest httpRequest = task.getHttpRequest();
+        Set<String> inputKeys = new LinkedHashSet<>();
+
+        // The URI variables are bound by position to the variables of the URL
+        List<String> variableNames = new ArrayList<>(new UriTemplate(httpRequest.getUrl()).getVariableNames());
+        List<String> uriVariables = nonNull(httpRequest.getUriVariables()) ? httpRequest.getUriVariables() : emptyList();
+        String error = null;
+        if (uriVariables.size() < variableNames.size()) {
+            error = "Task " + task.getName() + " declares " + uriVariables.size()
+                    + " URI variables but its URL requires " + variableNames.size();
+        }
+        List<TemplateValue> variableValues = new ArrayList<>();
+        for (int i = 0; i < variableNames.size(); i++) {
+            variableValues.add(compile(i < uriVariables.size() ? uriVariables.get(i) : null, inputKeys));
+        }
+
+        UriComponentsBuilder uriBuilder = UriComponentsBuilder.fromUriString(httpRequest.getUrl());
+        if (nonNull(httpRequest.getParams())) {
+            for (Param param : httpRequest.getParams()) {
+                // Param values are expanded as URI variables, so they are encoded as query params
+                String variableName = PARAM_VARIABLE_PREFIX + variableNames.size();
+                uriBuilder.queryParam(param.getName(), "{" + variableName + "}");
+                variableNames.add(variableName);
+                variableValues.add(compile(param.getValue(), inputKeys));
+            }
+        }
+
+        List<NamedValue> headers = new ArrayList<>();
+        if (nonNull(httpRequest.getHeaders())) {
+            for (Header header : httpRequest.getHeaders()) {
+                headers.add(new NamedValue(header.getName(), compile(header.getValue(), inputKeys)));
+            }
+        }
+
+        this.taskName = task.getName();
+        this.workflowName = task.getWorkflowName();
+        this.method = httpRequest.getMethod();
+        this.uriComponents = uriBuilder.build();
+        this.variableNames = unmodifiableList(variableNames);
+        this.variableValues = unmodifiableList(variableValues);
+        this.headers = unmodifiableList(headers);
+        this.headInputKeys = unmodifiableSet(new LinkedHashSet<>(inputKeys));
+        this.body = nonNull(httpRequest.getBody()) && allowsBody(httpRequest.getMethod())
+                ? compile(httpRequest.getBody(), inputKeys) : null;
+        this.bodyInputKey = nonNull(body) ? body.getSingleInputKey() : null;
+        this.inputKeys = unmodifiableSet(inputKeys);
+        this.error = error;
+    }
+
+    private static boolean allowsBody(HttpMethod method) {
+        return method == HttpMethod.POST || method == HttpMethod.PUT || method == HttpMethod.PATCH;
+    }
+
+    private static TemplateValue compile(String value, Set<String> inputKeys) {
+        TemplateValue templateValue = TemplateValue.parse(nonNull(value) ? value : "");
+        inputKeys.addAll(templateValue.getInputKeys());
+        return templateValue;
+    }
+
+    public boolean isValid() {
+        return error == null;
+    }
+
+    public URI expandUri(@NonNull Map<String, String> inputs) {
+        if (!isValid()) {
+            throw new IllegalArgumentException(error);
+        }
+        Map<String, String> values = new HashMap<>();
+        for (int i = 0; i < variableNames.size(); i++) {
+            values.put(variableNames.get(i), variableValues.get(i).bind(inputs));
+        }
+        return uriComponents.expand(values).encode().toUri();
+    }
+
+    public boolean hasBody() {
+        return nonNull(body);
+    }
+
+    public String bindBody(@NonNull Map<String, String> inputs) {
+        return hasBody() ? body.bind(inputs) : null;
+    }
+
+    @Getter
+    public static class NamedValue {
+        private final String name;
+        private final TemplateValue value;
+
+        private NamedValue(String name, TemplateValue value) {
+            this.name = name;
+            this.value = value;
+        }
+
+        public String bind(Map<String, String> inputs) {
+            return value.bind(inputs);
+        }
+    }
+
+}
@@ -0,0 +1,87 @@
+/**
+ * The MIT License
+ * Copyright © 2018 Davi Monteiro
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.beethoven.dsl;
+
+
+import lombok.Data;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * How the http call of a task is retried when it fails. The delay before each retry grows
+ * exponentially from the initial backoff up to the max backoff, and is shortened by a random
+ * fraction, at most the jitter, so the retries of many tasks do not hit a service together.
+ * By default, a task is attempted once.
+ *
+ * @author Davi Monteiro
+ */
+@Data
+public class RetryPolicy {
+
+    private int maxAttempts = 1;
+    private Duration initialBackoff = Duration.ofMillis(100);
+    private Duration maxBackoff = Duration.ofSeconds(2);
+    private double multiplier = 2.0;
+    private double jitter = 0.5;
+    private Set<Integer> retryableStatusCodes = new HashSet<>(Arrays.asList(429, 502, 503, 504));
+    private Set<Class<? extends Throwable>> retryableExceptions = new HashSet<>(Collections.singletonList(IOException.class));
+
+    /**
+     * @param attempt the number of the failed attempt, starting at 1
+     */
+    public boolean isRetryable(int attempt, Throwable failure) {
+        if (attempt >= maxAttempts) {
+            return false;
+        }
+        if (failure instanceof WebClientResponseException) {
+            return retryableStatusCodes.contains(((WebClientResponseException) failure).getRawStatusCode());
+        }
+        // The connection errors may be wrapped
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            for (Class<? extends Throwable> retryableException : retryableExceptions) {
+                if (retryableException.isInstance(cause)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param attempt the number of the failed attempt, starting at 1
+     */
+    public Duration backoff(int attempt) {
+        double delay = initialBackoff.toNanos() * Math.pow(multiplier, attempt - 1);
+        delay = Math.min(delay, maxBackoff.toNanos());
+        delay -= delay * jitter * ThreadLocalRandom.current().nextDouble();
+        return Duration.ofNanos((long) delay);
+    }
+
+}
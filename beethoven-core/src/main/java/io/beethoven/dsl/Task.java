@@ -27,6 +27,8 @@ import lombok.Getter;
 import lombok.Setter;
 import lombok.ToString;
 
+import java.time.Duration;
+
 /**
  * @author Davi Monteiro
  */
@@ -43,4 +45,17 @@ public class Task {
     @Getter @Setter
     private String workflowName;
 
+    /**
+     * Time to wait for the response of the task, retries included. The configured default applies
+     * when not set.
+     */
+    @Getter @Setter
+    private Duration timeout;
+
+    /**
+     * Retries of the http call of the task. The configured default applies when not set.
+     */
+    @Getter @Setter
+    private RetryPolicy retryPolicy;
+
 }
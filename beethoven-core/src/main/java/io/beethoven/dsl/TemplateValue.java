@@ -0,0 +1,135 @@
+/**
+ * The MIT License
+ * Copyright © 2018 Davi Monteiro
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.beethoven.dsl;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NonNull;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static java.util.Collections.unmodifiableList;
+import static java.util.Collections.unmodifiableSet;
+
+/**
+ * A value of a {@link HttpRequest} split once into literal text and <code>${...}</code>
+ * placeholders. Each placeholder is keyed by its whole token (e.g. <code>${access_token}</code>),
+ * the same key used by the contextual inputs. Placeholders without a bound input are kept as
+ * literal text.
+ *
+ * @author Davi Monteiro
+ */
+@EqualsAndHashCode(of = "source")
+public class TemplateValue {
+
+    private static final String PLACEHOLDER_PREFIX = "${";
+    private static final String PLACEHOLDER_SUFFIX = "}";
+
+    @Getter
+    private final String source;
+
+    private final List<Segment> segments;
+
+    @Getter
+    private final Set<String> inputKeys;
+
+    private TemplateValue(String source, List<Segment> segments, Set<String> inputKeys) {
+        this.source = source;
+        this.segments = unmodifiableList(segments);
+        this.inputKeys = unmodifiableSet(inputKeys);
+    }
+
+    public static TemplateValue parse(@NonNull String source) {
+        List<Segment> segments = new ArrayList<>();
+        Set<String> inputKeys = new LinkedHashSet<>();
+
+        int position = 0;
+        while (position < source.length()) {
+            int start = source.indexOf(PLACEHOLDER_PREFIX, position);
+            int end = start < 0 ? -1 : source.indexOf(PLACEHOLDER_SUFFIX, start + PLACEHOLDER_PREFIX.length());
+            if (end < 0) {
+                segments.add(new Segment(source.substring(position), false));
+                break;
+            }
+            if (start > position) {
+                segments.add(new Segment(source.substring(position, start), false));
+            }
+            String key = source.substring(start, end + PLACEHOLDER_SUFFIX.length());
+            segments.add(new Segment(key, true));
+            inputKeys.add(key);
+            position = end + PLACEHOLDER_SUFFIX.length();
+        }
+
+        return new TemplateValue(source, segments, inputKeys);
+    }
+
+    public boolean isConstant() {
+        return inputKeys.isEmpty();
+    }
+
+    /**
+     * @return the input key when the whole value is a single placeholder, otherwise null
+     */
+    public String getSingleInputKey() {
+        return segments.size() == 1 && !isConstant() ? source : null;
+    }
+
+    public String bind(@NonNull Map<String, String> inputs) {
+        if (isConstant()) {
+            return source;
+        }
+        if (segments.size() == 1) {
+            return inputs.getOrDefault(source, source);
+        }
+
+        StringBuilder value = new StringBuilder(source.length());
+        for (Segment segment : segments) {
+            if (segment.placeholder) {
+                value.append(inputs.getOrDefault(segment.text, segment.text));
+            } else {
+                value.append(segment.text);
+            }
+        }
+        return value.toString();
+    }
+
+    @Override
+    public String toString() {
+        return source;
+    }
+
+    private static class Segment {
+        private final String text;
+        private final boolean placeholder;
+
+        private Segment(String text, boolean placeholder) {
+            this.text = text;
+            this.placeholder = placeholder;
+        }
+    }
+
+}
@@ -25,6 +25,7 @@ package io.beethoven.dsl;
 
 import lombok.Data;
 
+import java.time.Duration;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -40,6 +41,11 @@ public class Workflow {
     private Set<Task> tasks;
     private Set<Handler> handlers;
 
+    /**
+     * Time for an instance to terminate. The configured default applies when not set.
+     */
+    private Duration timeout;
+
     public Workflow() {
         this.tasks = new HashSet<>();
         this.handlers = new HashSet<>();
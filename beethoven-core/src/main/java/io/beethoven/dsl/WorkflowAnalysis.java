@@ -0,0 +1,100 @@
+/**
+ * The MIT License
+ * Copyright © 2018 Davi Monteiro
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.beethoven.dsl;
+
+import lombok.Value;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Dependencies between the tasks of a workflow, as found by the {@link WorkflowAnalyzer}. A task
+ * depends on the tasks whose <code>${task.response}</code> it uses, and is started after the
+ * tasks its handlers wait for. The latencies are estimated from the mean latency of each task.
+ *
+ * @author Davi Monteiro
+ */
+@Value
+public class WorkflowAnalysis {
+
+    private String workflowName;
+
+    /**
+     * The tasks whose responses each task uses.
+     */
+    private Map<String, Set<String>> dependencies;
+
+    /**
+     * The tasks each task is started after by the handlers.
+     */
+    private Map<String, Set<String>> startedAfter;
+
+    /**
+     * Tasks started after a task whose response they do not use, which could start earlier.
+     */
+    private Set<String> parallelizableTasks;
+
+    /**
+     * Tasks using the response of a task that the handlers do not complete before starting them.
+     */
+    private Set<String> unorderedTasks;
+
+    /**
+     * The tasks that can run at once, each stage after the tasks of the previous ones.
+     */
+    private List<Set<String>> stages;
+
+    /**
+     * The longest chain of tasks started one after the other by the handlers.
+     */
+    private int startedCriticalPathLength;
+
+    /**
+     * The longest chain of tasks using the response of the previous one.
+     */
+    private List<String> criticalPath;
+
+    private double expectedLatencyMillis;
+
+    private double expectedParallelLatencyMillis;
+
+    private double expectedLatencyWinMillis;
+
+    /**
+     * Tasks without any observed latency, which count for nothing in the expected latencies.
+     */
+    private Set<String> unmeasuredTasks;
+
+    /**
+     * Whether the handlers can be replaced by handlers starting each task once the tasks it
+     * depends on completed.
+     */
+    private boolean parallelizable;
+
+    /**
+     * Why the handlers cannot be replaced, or null when they can.
+     */
+    private String reason;
+
+}
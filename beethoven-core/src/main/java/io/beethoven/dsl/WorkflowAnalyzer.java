@@ -0,0 +1,478 @@
+/**
+ * The MIT License
+ * Copyright © 2018 Davi Monteiro
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.beethoven.dsl;
+
+import io.beethoven.dsl.Command.CommandOperation;
+import io.beethoven.dsl.Condition.ConditionFunction;
+import io.beethoven.dsl.Condition.ConditionJoin;
+import io.beethoven.dsl.Condition.ConditionTaskNameEqualsTo;
+import io.beethoven.dsl.Condition.ConditionWorkflowNameEqualsTo;
+import io.beethoven.dsl.Handler.EventType;
+import lombok.NonNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.ToDoubleFunction;
+
+import static io.beethoven.dsl.ConditionFunctionFactory.ALL_OF;
+import static io.beethoven.dsl.ConditionFunctionFactory.TASK_NAME_EQUALS_TO;
+import static io.beethoven.dsl.ConditionFunctionFactory.createCondition;
+import static java.util.Collections.emptySet;
+import static java.util.Collections.singletonList;
+import static java.util.Collections.unmodifiableList;
+import static java.util.Collections.unmodifiableMap;
+import static java.util.Collections.unmodifiableSet;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+/**
+ * Finds the dependencies between the tasks of a workflow without running it. A task depends on
+ * the tasks whose <code>${task.response}</code> appear in its URI, params, headers or body, while
+ * the handlers start it after the tasks named by their {@code taskNameEqualsTo}, {@code allOf} or
+ * {@code anyOf} conditions. The difference between both is what running the tasks in parallel
+ * would gain.
+ * <p/>
+ * A workflow whose handlers only start tasks once it was scheduled or started, or once other
+ * tasks completed, can also be {@link #parallelize(Workflow) parallelized}.
+ *
+ * @author Davi Monteiro
+ */
+public class WorkflowAnalyzer {
+
+    private static final String PARALLEL_HANDLER_PREFIX = "parallel-";
+
+    /**
+     * @param taskLatencyMillis the expected latency of a task by its name, or 0 when unknown
+     */
+    public WorkflowAnalysis analyze(@NonNull Workflow workflow, @NonNull ToDoubleFunction<String> taskLatencyMillis) {
+        return new Graph(workflow).analyze(taskLatencyMillis);
+    }
+
+    /**
+     * Builds handlers starting each task as soon as the tasks whose responses it uses completed:
+     * the tasks without dependencies when the workflow starts as before, and every other one
+     * once all of its dependencies completed.
+     *
+     * @return the new handlers, or null when the workflow cannot be parallelized or its handlers
+     * already start every task as soon as they can
+     */
+    public List<Handler> parallelize(@NonNull Workflow workflow) {
+        Graph graph = new Graph(workflow);
+        if (nonNull(graph.reason) || graph.parallelizableTasks().isEmpty()) {
+            return null;
+        }
+
+        List<Command> rootCommands = new ArrayList<>();
+        List<Handler> handlers = new ArrayList<>();
+        graph.dependencies.forEach((taskName, dependencies) -> {
+            if (dependencies.isEmpty()) {
+                rootCommands.add(Command.startTask(taskName));
+                return;
+            }
+            Handler handler = new Handler();
+            handler.setName(PARALLEL_HANDLER_PREFIX + taskName);
+            handler.setEventType(EventType.TASK_COMPLETED);
+            handler.setConditions(singletonList(dependencies.size() == 1
+                    ? createCondition(TASK_NAME_EQUALS_TO, dependencies.iterator().next())
+                    : createCondition(ALL_OF, String.join(",", dependencies))));
+            handler.setCommands(singletonList(Command.startTask(taskName)));
+            handlers.add(handler);
+        });
+
+        Handler rootHandler = new Handler();
+        rootHandler.setName(graph.rootHandler.getName());
+        rootHandler.setEventType(graph.rootHandler.getEventType());
+        rootHandler.setConditions(graph.rootHandler.getConditions());
+        rootHandler.setCommands(rootCommands);
+        handlers.add(rootHandler);
+        return handlers;
+    }
+
+    /**
+     * The tasks started by the handlers, with the tasks they are started after and the tasks
+     * they depend on.
+     */
+    private static class Graph {
+        private final String workflowName;
+        private final Map<String, Set<String>> startedAfter = new TreeMap<>();
+        private final Set<String> startedAfterAny = new HashSet<>();
+        private final Map<String, Set<String>> dependencies = new TreeMap<>();
+        private Handler rootHandler;
+        private String reason;
+
+        private Graph(Workflow workflow) {
+            this.workflowName = workflow.getName();
+
+            List<Handler> handlers = new ArrayList<>(workflow.getHandlers());
+            handlers.sort(Comparator.comparing(Handler::getName, Comparator.nullsFirst(Comparator.naturalOrder())));
+            int rootHandlers = 0;
+            for (Handler handler : handlers) {
+                List<String> startedTasks = startedTasks(handler);
+                if (startedTasks.isEmpty()) {
+                    continue;
+                }
+
+                EventType eventType = handler.getEventType();
+                Set<String> after;
+                boolean any = false;
+                if (eventType == EventType.WORKFLOW_SCHEDULED || eventType == EventType.WORKFLOW_STARTED) {
+                    after = emptySet();
+                    rootHandler = handler;
+                    rootHandlers++;
+                } else if (eventType == EventType.TASK_COMPLETED) {
+                    after = completedTasks(handler);
+                    any = waitsForAny(handler);
+                } else {
+                    notParallelizable("the handler " + handler.getName() + " starts tasks on " + eventType);
+                    continue;
+                }
+
+                for (String taskName : startedTasks) {
+                    if (startedAfter.containsKey(taskName)) {
+                        notParallelizable("the task " + taskName + " is started by several handlers");
+                    } else {
+                        startedAfter.put(taskName, after);
+                    }
+                    if (any) {
+                        startedAfterAny.add(taskName);
+                    }
+                }
+            }
+            if (rootHandlers != 1) {
+                notParallelizable("the workflow does not start its tasks from a single handler");
+            }
+
+            Map<String, Task> tasks = new HashMap<>();
+            for (Task task : workflow.getTasks()) {
+                tasks.put(task.getName(), task);
+            }
+            for (String taskName : startedAfter.keySet()) {
+                Task task = tasks.get(taskName);
+                if (isNull(task)) {
+                    notParallelizable("the task " + taskName + " is not defined");
+                    dependencies.put(taskName, emptySet());
+                    continue;
+                }
+
+                Set<String> inputKeys = new RequestTemplate(task).getInputKeys();
+                Set<String> taskDependencies = new TreeSet<>();
+                for (String dependency : tasks.keySet()) {
+                    if (inputKeys.contains("${" + dependency + ".response}")) {
+                        taskDependencies.add(dependency);
+                        if (!startedAfter.containsKey(dependency)) {
+                            notParallelizable("the task " + taskName + " uses the response of "
+                                    + dependency + ", which is never started");
+                        }
+                    }
+                }
+                dependencies.put(taskName, taskDependencies);
+            }
+
+            Set<String> done = new HashSet<>();
+            for (String taskName : dependencies.keySet()) {
+                checkCycle(taskName, done, new HashSet<>());
+            }
+        }
+
+        private void checkCycle(String taskName, Set<String> done, Set<String> visiting) {
+            if (done.contains(taskName)) {
+                return;
+            }
+            if (!visiting.add(taskName)) {
+                notParallelizable("the task " + taskName + " depends on its own response");
+                return;
+            }
+            for (String dependency : dependencies.getOrDefault(taskName, emptySet())) {
+                checkCycle(dependency, done, visiting);
+            }
+            visiting.remove(taskName);
+            done.add(taskName);
+        }
+
+        private List<String> startedTasks(Handler handler) {
+            List<String> startedTasks = new ArrayList<>();
+            if (isNull(handler.getCommands())) {
+                return startedTasks;
+            }
+            for (Command command : handler.getCommands()) {
+                if (command.getOperation() == CommandOperation.START_TASK && nonNull(command.getTaskName())) {
+                    startedTasks.add(command.getTaskName());
+                } else {
+                    notParallelizable("the handler " + handler.getName() + " does not only start tasks");
+                }
+            }
+            return startedTasks;
+        }
+
+        private Set<String> completedTasks(Handler handler) {
+            Set<String> completedTasks = new TreeSet<>();
+            if (nonNull(handler.getConditions())) {
+                for (Condition condition : handler.getConditions()) {
+                    ConditionFunction function = condition.getConditionFunction();
+                    if (function instanceof ConditionTaskNameEqualsTo) {
+                        String taskName = ((ConditionTaskNameEqualsTo) function).getTaskName();
+                        if (nonNull(taskName)) {
+                            completedTasks.add(taskName);
+                        }
+                    } else if (function instanceof ConditionJoin && nonNull(((ConditionJoin) function).getTaskNames())) {
+                        completedTasks.addAll(((ConditionJoin) function).getTaskNames());
+                    } else if (!(function instanceof ConditionWorkflowNameEqualsTo)) {
+                        notParallelizable("the handler " + handler.getName() + " has other conditions than task names");
+                    }
+                }
+            }
+            if (completedTasks.isEmpty()) {
+                notParallelizable("the handler " + handler.getName() + " starts tasks once any task completed");
+            }
+            return completedTasks;
+        }
+
+        private boolean waitsForAny(Handler handler) {
+            if (isNull(handler.getConditions())) {
+                return false;
+            }
+            for (Condition condition : handler.getConditions()) {
+                ConditionFunction function = condition.getConditionFunction();
+                if (function instanceof ConditionJoin && !((ConditionJoin) function).isAll()) {
+                    // Which task completes first is only known while running
+                    notParallelizable("the handler " + handler.getName() + " waits for any of several tasks");
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void notParallelizable(String reason) {
+            if (isNull(this.reason)) {
+                this.reason = reason;
+            }
+        }
+
+        private WorkflowAnalysis analyze(ToDoubleFunction<String> taskLatencyMillis) {
+            Set<String> unmeasuredTasks = new TreeSet<>();
+            Map<String, Double> latencies = new HashMap<>();
+            for (String taskName : startedAfter.keySet()) {
+                double latency = taskLatencyMillis.applyAsDouble(taskName);
+                if (latency <= 0) {
+                    unmeasuredTasks.add(taskName);
+                }
+                latencies.put(taskName, Math.max(latency, 0));
+            }
+
+            // Finish times when started by the handlers, and when started once their dependencies completed
+            Map<String, Double> startedFinish = new HashMap<>();
+            Map<String, Double> startedLength = new HashMap<>();
+            Map<String, Double> parallelFinish = new HashMap<>();
+            Map<String, Integer> parallelLength = new HashMap<>();
+            double expectedLatency = 0;
+            double expectedParallelLatency = 0;
+            int startedCriticalPathLength = 0;
+            String criticalPathEnd = null;
+            for (String taskName : startedAfter.keySet()) {
+                expectedLatency = Math.max(expectedLatency, startedFinish(taskName, latencies::get, startedFinish, new HashSet<>()));
+                startedCriticalPathLength = (int) Math.max(startedCriticalPathLength,
+                        startedFinish(taskName, name -> 1.0, startedLength, new HashSet<>()));
+                double finish = parallelFinish(taskName, latencies, parallelFinish, parallelLength, new HashSet<>());
+                if (isNull(criticalPathEnd) || finish > expectedParallelLatency
+                        || (finish == expectedParallelLatency && parallelLength.get(taskName) > parallelLength.get(criticalPathEnd))) {
+                    criticalPathEnd = taskName;
+                }
+                expectedParallelLatency = Math.max(expectedParallelLatency, finish);
+            }
+
+            Set<String> unorderedTasks = new TreeSet<>();
+            Map<String, Set<String>> startedAncestors = new HashMap<>();
+            for (Map.Entry<String, Set<String>> entry : dependencies.entrySet()) {
+                if (!startedAncestors(entry.getKey(), startedAncestors, new HashSet<>()).containsAll(entry.getValue())) {
+                    unorderedTasks.add(entry.getKey());
+                }
+            }
+
+            return new WorkflowAnalysis(
+                    workflowName,
+                    unmodifiableMap(dependencies),
+                    unmodifiableMap(startedAfter),
+                    parallelizableTasks(),
+                    unorderedTasks,
+                    stages(parallelLength),
+                    startedCriticalPathLength,
+                    criticalPath(criticalPathEnd, parallelFinish, parallelLength),
+                    expectedLatency,
+                    expectedParallelLatency,
+                    Math.max(expectedLatency - expectedParallelLatency, 0),
+                    unmeasuredTasks,
+                    isNull(reason) && !parallelizableTasks().isEmpty(),
+                    nonNull(reason) ? reason : parallelizableTasks().isEmpty() ? "every task already starts as soon as it can" : null);
+        }
+
+        /**
+         * The tasks started after a task whose response they do not use, directly or not.
+         */
+        private Set<String> parallelizableTasks() {
+            Set<String> parallelizableTasks = new TreeSet<>();
+            Map<String, Set<String>> dependencyAncestors = new HashMap<>();
+            for (Map.Entry<String, Set<String>> entry : startedAfter.entrySet()) {
+                if (!dependencyAncestors(entry.getKey(), dependencyAncestors, new HashSet<>()).containsAll(entry.getValue())) {
+                    parallelizableTasks.add(entry.getKey());
+                }
+            }
+            return unmodifiableSet(parallelizableTasks);
+        }
+
+        private double startedFinish(String taskName, ToDoubleFunction<String> latency, Map<String, Double> finish, Set<String> visiting) {
+            Double known = finish.get(taskName);
+            if (nonNull(known)) {
+                return known;
+            }
+            // Handlers starting tasks again in a loop are cut at the first repeated task
+            if (!visiting.add(taskName)) {
+                return 0;
+            }
+
+            boolean any = startedAfterAny.contains(taskName);
+            double start = any ? Double.MAX_VALUE : 0;
+            for (String after : startedAfter.getOrDefault(taskName, emptySet())) {
+                if (startedAfter.containsKey(after)) {
+                    double afterFinish = startedFinish(after, latency, finish, visiting);
+                    start = any ? Math.min(start, afterFinish) : Math.max(start, afterFinish);
+                }
+            }
+            double taskFinish = (start == Double.MAX_VALUE ? 0 : start) + latency.applyAsDouble(taskName);
+            visiting.remove(taskName);
+            finish.put(taskName, taskFinish);
+            return taskFinish;
+        }
+
+        private double parallelFinish(String taskName, Map<String, Double> latencies, Map<String, Double> finish,
+                                      Map<String, Integer> length, Set<String> visiting) {
+            Double known = finish.get(taskName);
+            if (nonNull(known)) {
+                return known;
+            }
+            // A cycle of dependencies, which was reported, is cut at the first repeated task
+            if (!visiting.add(taskName)) {
+                return 0;
+            }
+
+            double start = 0;
+            int chain = 0;
+            for (String dependency : dependencies.getOrDefault(taskName, emptySet())) {
+                if (startedAfter.containsKey(dependency)) {
+                    start = Math.max(start, parallelFinish(dependency, latencies, finish, length, visiting));
+                    chain = Math.max(chain, length.getOrDefault(dependency, 0));
+                }
+            }
+            visiting.remove(taskName);
+            finish.put(taskName, start + latencies.get(taskName));
+            length.put(taskName, chain + 1);
+            return start + latencies.get(taskName);
+        }
+
+        private Set<String> dependencyAncestors(String taskName, Map<String, Set<String>> ancestors, Set<String> visiting) {
+            Set<String> known = ancestors.get(taskName);
+            if (nonNull(known)) {
+                return known;
+            }
+            Set<String> taskAncestors = new HashSet<>();
+            if (visiting.add(taskName)) {
+                for (String dependency : dependencies.getOrDefault(taskName, emptySet())) {
+                    taskAncestors.add(dependency);
+                    taskAncestors.addAll(dependencyAncestors(dependency, ancestors, visiting));
+                }
+                visiting.remove(taskName);
+            }
+            ancestors.put(taskName, taskAncestors);
+            return taskAncestors;
+        }
+
+        /**
+         * The tasks surely completed before the handlers start a task, which are all the tasks it
+         * is started after, but only those common to all of them when it waits for any of them.
+         */
+        private Set<String> startedAncestors(String taskName, Map<String, Set<String>> ancestors, Set<String> visiting) {
+            Set<String> known = ancestors.get(taskName);
+            if (nonNull(known)) {
+                return known;
+            }
+            Set<String> taskAncestors = null;
+            if (visiting.add(taskName)) {
+                boolean any = startedAfterAny.contains(taskName);
+                for (String after : startedAfter.getOrDefault(taskName, emptySet())) {
+                    Set<String> afterAncestors = new HashSet<>(startedAncestors(after, ancestors, visiting));
+                    afterAncestors.add(after);
+                    if (isNull(taskAncestors)) {
+                        taskAncestors = afterAncestors;
+                    } else if (any) {
+                        taskAncestors.retainAll(afterAncestors);
+                    } else {
+                        taskAncestors.addAll(afterAncestors);
+                    }
+                }
+                visiting.remove(taskName);
+            }
+            taskAncestors = nonNull(taskAncestors) ? taskAncestors : new HashSet<>();
+            ancestors.put(taskName, taskAncestors);
+            return taskAncestors;
+        }
+
+        private List<Set<String>> stages(Map<String, Integer> length) {
+            List<Set<String>> stages = new ArrayList<>();
+            length.forEach((taskName, chain) -> {
+                while (stages.size() < chain) {
+                    stages.add(new TreeSet<>());
+                }
+                stages.get(chain - 1).add(taskName);
+            });
+            return unmodifiableList(stages);
+        }
+
+        private List<String> criticalPath(String end, Map<String, Double> finish, Map<String, Integer> length) {
+            List<String> criticalPath = new ArrayList<>();
+            Set<String> visited = new LinkedHashSet<>();
+            for (String taskName = end; nonNull(taskName) && visited.add(taskName); ) {
+                criticalPath.add(taskName);
+                String previous = null;
+                for (String dependency : dependencies.getOrDefault(taskName, emptySet())) {
+                    if (finish.containsKey(dependency) && (isNull(previous)
+                            || finish.get(dependency) > finish.get(previous)
+                            || (finish.get(dependency).equals(finish.get(previous)) && length.get(dependency) > length.get(previous)))) {
+                        previous = dependency;
+                    }
+                }
+                taskName = previous;
+            }
+            Collections.reverse(criticalPath);
+            return unmodifiableList(criticalPath);
+        }
+    }
+
+}
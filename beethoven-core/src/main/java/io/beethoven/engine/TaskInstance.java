@@ -49,6 +49,7 @@ public class TaskInstance {
     private LocalDateTime endTime;
     private String response;
     private Throwable failure;
+    private long startNanos;
 
     public TaskInstance(@NonNull ReporterActor.ReportTaskEvent reportTaskEvent) {
         this.workflowName = reportTaskEvent.getWorkflowName();
@@ -73,12 +74,4 @@ public class TaskInstance {
         return isNull(failure);
     }
 
-    public void print() {
-        System.err.println("Task name: " + taskName);
-        System.err.println("Task instance name: " + taskInstanceName);
-        System.err.println("Execution time: " + elapsedTime().toMillis() + " milliseconds");
-        if (nonNull(response)) System.err.println("Response: " + response);
-        if (nonNull(failure)) System.err.println("Failure: " + failure.getMessage());
-    }
-
 }
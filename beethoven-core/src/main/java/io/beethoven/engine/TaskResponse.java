@@ -0,0 +1,71 @@
+/**
+ * The MIT License
+ * Copyright © 2018 Davi Monteiro
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.beethoven.engine;
+
+import com.jayway.jsonpath.Configuration;
+import com.jayway.jsonpath.InvalidJsonException;
+import lombok.Getter;
+import lombok.ToString;
+
+import static java.util.Objects.isNull;
+
+/**
+ * The response of a task instance, as carried by its completion event to the decider. Its JSON
+ * document is only parsed when a condition first inspects it, and then shared by every other
+ * condition evaluated for the same event. The decider evaluating the event is its only reader.
+ *
+ * @author Davi Monteiro
+ */
+@ToString(of = "parsed")
+public class TaskResponse {
+
+    private static final Object INVALID_DOCUMENT = new Object();
+
+    @Getter
+    private final String body;
+
+    private Object document;
+
+    private boolean parsed;
+
+    public TaskResponse(String body) {
+        this.body = body;
+    }
+
+    /**
+     * @param configuration the configuration of the paths that read the document
+     * @return the parsed JSON document, or null when the body is not JSON
+     */
+    public Object getDocument(Configuration configuration) {
+        if (!parsed) {
+            parsed = true;
+            try {
+                document = isNull(body) || body.isEmpty() ? INVALID_DOCUMENT : configuration.jsonProvider().parse(body);
+            } catch (InvalidJsonException e) {
+                document = INVALID_DOCUMENT;
+            }
+        }
+        return document != INVALID_DOCUMENT ? document : null;
+    }
+
+}
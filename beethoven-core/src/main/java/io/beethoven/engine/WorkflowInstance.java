@@ -50,6 +50,7 @@ public class WorkflowInstance {
     private LocalDateTime endTime;
     private WorkflowStatus status;
     private int countTasks;
+    private long scheduledNanos;
 
     public WorkflowInstance(@NonNull WorkflowInstanceActor.WorkflowInstanceCommand workflowInstanceCommand) {
         this.workflowName = workflowInstanceCommand.getWorkflowName();
@@ -77,14 +78,6 @@ public class WorkflowInstance {
         return isTerminated() && tasks.values().stream().filter(TaskInstance::isSuccessfullyExecuted).count() == countTasks;
     }
 
-    public void print() {
-        System.err.println("Workflow name: " + workflowName);
-        System.err.println("Instance name: " + workflowInstanceName);
-        System.err.println("Execution time: " + elapsedTime().toMillis() + " milliseconds");
-        System.err.println("Success: " + isSuccessfullyExecuted());
-        //tasks.values().forEach(TaskInstance::print);
-    }
-
     public enum WorkflowStatus {
         SCHEDULED,
         RUNNING,
@@ -0,0 +1,54 @@
+/**
+ * The MIT License
+ * Copyright © 2018 Davi Monteiro
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.beethoven.engine;
+
+import io.beethoven.engine.WorkflowInstance.WorkflowStatus;
+import lombok.NonNull;
+import lombok.Value;
+
+/**
+ * Compact record kept for a workflow instance once it is no longer tracked in full.
+ *
+ * @author Davi Monteiro
+ */
+@Value
+public class WorkflowInstanceSummary {
+
+    private String workflowName;
+    private String workflowInstanceName;
+    private WorkflowStatus status;
+    private long elapsedTimeMillis;
+    private int executedTasks;
+    private boolean successfullyExecuted;
+
+    public static WorkflowInstanceSummary of(@NonNull WorkflowInstance workflowInstance) {
+        return new WorkflowInstanceSummary(
+                workflowInstance.getWorkflowName(),
+                workflowInstance.getWorkflowInstanceName(),
+                workflowInstance.getStatus(),
+                workflowInstance.elapsedTime().toMillis(),
+                workflowInstance.getTasks().size(),
+                workflowInstance.isSuccessfullyExecuted());
+    }
+
+}
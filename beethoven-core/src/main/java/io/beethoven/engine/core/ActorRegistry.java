@@ -0,0 +1,88 @@
+/**
+ * The MIT License
+ * Copyright © 2018 Davi Monteiro
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.beethoven.engine.core;
+
+import akka.actor.ActorRef;
+import io.beethoven.engine.core.DeciderActor.TaskEvent;
+import io.beethoven.engine.core.DeciderActor.WorkflowEvent;
+import io.beethoven.engine.core.ReporterActor.ReportTaskEvent;
+import io.beethoven.engine.core.ReporterActor.ReportWorkflowEvent;
+import io.beethoven.engine.core.TaskActor.StartTaskCommand;
+import io.beethoven.engine.core.WorkflowActor.WorkflowCommand;
+import lombok.NonNull;
+
+import static akka.actor.ActorRef.noSender;
+
+/**
+ * Holds the references of the main actors created by {@link io.beethoven.Beethoven#initialize},
+ * so messages are sent straight to them instead of resolving an actor path on every send.
+ *
+ * @author Davi Monteiro
+ */
+public class ActorRegistry {
+
+    private volatile ActorRef workflowActor;
+    private volatile ActorRef deciderActor;
+    private volatile ActorRef taskActor;
+    private volatile ActorRef reporterActor;
+
+    public void register(@NonNull ActorRef workflowActor, @NonNull ActorRef deciderActor,
+                         @NonNull ActorRef taskActor, @NonNull ActorRef reporterActor) {
+        this.workflowActor = workflowActor;
+        this.deciderActor = deciderActor;
+        this.taskActor = taskActor;
+        this.reporterActor = reporterActor;
+    }
+
+    public void tellWorkflow(WorkflowCommand workflowCommand) {
+        registered(workflowActor, ActorName.WORKFLOW_ACTOR).tell(workflowCommand, noSender());
+    }
+
+    public void tellDecider(TaskEvent taskEvent) {
+        registered(deciderActor, ActorName.DECIDER_ACTOR).tell(taskEvent, noSender());
+    }
+
+    public void tellDecider(WorkflowEvent workflowEvent) {
+        registered(deciderActor, ActorName.DECIDER_ACTOR).tell(workflowEvent, noSender());
+    }
+
+    public void tellTask(StartTaskCommand startTaskCommand) {
+        registered(taskActor, ActorName.TASK_ACTOR).tell(startTaskCommand, noSender());
+    }
+
+    public void tellReporter(ReportTaskEvent reportTaskEvent) {
+        registered(reporterActor, ActorName.REPORTER_ACTOR).tell(reportTaskEvent, noSender());
+    }
+
+    public void tellReporter(ReportWorkflowEvent reportWorkflowEvent) {
+        registered(reporterActor, ActorName.REPORTER_ACTOR).tell(reportWorkflowEvent, noSender());
+    }
+
+    private static ActorRef registered(ActorRef actorRef, String actorName) {
+        if (actorRef == null) {
+            throw new IllegalStateException("Beethoven has not been initialized: " + actorName + " is not registered");
+        }
+        return actorRef;
+    }
+
+}
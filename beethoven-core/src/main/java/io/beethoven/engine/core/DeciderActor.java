@@ -23,28 +23,45 @@
 package io.beethoven.engine.core;
 
 import akka.actor.AbstractLoggingActor;
-import akka.actor.ActorSystem;
 import akka.japi.pf.ReceiveBuilder;
-import io.beethoven.dsl.Command;
-import io.beethoven.dsl.Condition;
-import io.beethoven.dsl.Handler;
+import akka.routing.ConsistentHashingRouter.ConsistentHashable;
+import io.beethoven.config.BeethovenProperties;
+import io.beethoven.dsl.CommandTemplate;
+import io.beethoven.dsl.CompiledHandler;
 import io.beethoven.dsl.Handler.EventType;
+import io.beethoven.dsl.Join;
+import io.beethoven.engine.TaskResponse;
 import io.beethoven.service.HandlerService;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.Getter;
+import lombok.ToString;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.config.ConfigurableBeanFactory;
 import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Component;
 
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
-import static akka.actor.ActorRef.noSender;
-import static io.beethoven.engine.core.ActorPath.TASK_ACTOR;
-import static io.beethoven.engine.core.ActorPath.WORKFLOW_ACTOR;
 import static io.beethoven.engine.core.WorkflowActor.StartWorkflowCommand;
+import static java.util.Objects.isNull;
 
 /**
+ * Decides which commands to send when a workflow or task event happens. Deciders run as a
+ * consistent hashing pool keyed by the workflow instance name: the events of one instance
+ * are decided in order while different instances are decided in parallel.
+ * <p/>
+ * This is also what lets a decider keep the state of the {@code allOf} and {@code anyOf} joins
+ * of its instances without any synchronization, until they are completed, canceled or failed.
+ * A timed out instance fails, and so does a passivated one evicted by its workflow actor. A
+ * decider remembers the last instances that terminated, so that a task event coming afterwards
+ * does not join anything again. The state of a joining instance is never dropped, as that would
+ * change the outcome of its joins: once a decider is full, a new joining instance is failed.
+ *
  * @author Davi Monteiro
  */
 @Component(ActorName.DECIDER_ACTOR)
@@ -55,7 +72,31 @@ public class DeciderActor extends AbstractLoggingActor {
     private HandlerService handlerService;
 
     @Autowired
-    private ActorSystem actorSystem;
+    private ActorRegistry actorRegistry;
+
+    @Autowired
+    private BeethovenProperties beethovenProperties;
+
+    private final Map<String, JoinState> joins = new HashMap<>();
+
+    // The names of the last instances that terminated, oldest first
+    private Map<String, Boolean> terminated;
+
+    private int maxJoins;
+
+    @Override
+    public void preStart() {
+        // The limit is shared by all the deciders of the pool
+        BeethovenProperties.Decider decider = beethovenProperties.getDecider();
+        int poolSize = Math.max(1, decider.getPoolSize());
+        maxJoins = Math.max(1, decider.getMaxJoins() / poolSize);
+        terminated = new LinkedHashMap<String, Boolean>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > maxJoins;
+            }
+        };
+    }
 
     @Override
     public Receive createReceive() {
@@ -80,6 +121,8 @@ public class DeciderActor extends AbstractLoggingActor {
 
     private void onWorkflowScheduledEvent(WorkflowScheduledEvent workflowScheduledEvent) {
         log().debug("onWorkflowScheduledEvent: " + workflowScheduledEvent);
+        // An instance started again under the name of a terminated one joins its tasks anew
+        terminated.remove(workflowScheduledEvent.getWorkflowInstanceName());
         decide(workflowScheduledEvent, EventType.WORKFLOW_SCHEDULED);
     }
 
@@ -90,6 +133,7 @@ public class DeciderActor extends AbstractLoggingActor {
 
     private void onWorkflowCompletedEvent(WorkflowCompletedEvent workflowCompletedEvent) {
         log().debug("onWorkflowCompletedEvent: " + workflowCompletedEvent);
+        terminate(workflowCompletedEvent.getWorkflowInstanceName());
         decide(workflowCompletedEvent, EventType.WORKFLOW_COMPLETED);
     }
 
@@ -100,11 +144,13 @@ public class DeciderActor extends AbstractLoggingActor {
 
     private void onWorkflowFailedEvent(WorkflowFailedEvent workflowFailedEvent) {
         log().debug("onWorkflowFailedEvent: " + workflowFailedEvent);
+        terminate(workflowFailedEvent.getWorkflowInstanceName());
         decide(workflowFailedEvent, EventType.WORKFLOW_FAILED);
     }
 
     private void onWorkflowCanceledEvent(WorkflowCanceledEvent workflowCanceledEvent) {
         log().debug("onWorkflowCanceledEvent: " + workflowCanceledEvent);
+        terminate(workflowCanceledEvent.getWorkflowInstanceName());
         decide(workflowCanceledEvent, EventType.WORKFLOW_CANCELED);
     }
 
@@ -129,71 +175,99 @@ public class DeciderActor extends AbstractLoggingActor {
     }
 
     private void decide(TaskEvent taskEvent, EventType eventType) {
-        List<Handler> events = handlerService.findByWorkflowNameAndEventType(taskEvent.getWorkflowName(), eventType);
-        for (Handler event : events) {
-            event.getConditions().forEach(condition -> condition.setCurrentlValues(taskEvent));
-            event.getCommands().forEach(command -> command.setWorkflowName(taskEvent.workflowName));
-            evaluateConditionsAndSendCommands(event.getConditions(), event.getCommands(), taskEvent.workflowInstanceName);
+        List<CompiledHandler> handlers = handlerService.findByWorkflowNameAndEventType(
+                taskEvent.getWorkflowName(), eventType, taskEvent.getTaskName());
+        for (int i = 0; i < handlers.size(); i++) {
+            CompiledHandler handler = handlers.get(i);
+            if (handler.matches(taskEvent) && join(handler.getJoin(), taskEvent)) {
+                sendCommands(handler.getCommands(), taskEvent.getWorkflowName(), taskEvent.getWorkflowInstanceName());
+            }
         }
     }
 
     private void decide(WorkflowEvent workflowEvent, EventType eventType) {
-        List<Handler> events = handlerService.findByWorkflowNameAndEventType(workflowEvent.getWorkflowName(), eventType);
-        for (Handler event : events) {
-            event.getConditions().forEach(condition -> condition.setCurrentlValues(workflowEvent));
-            event.getCommands().forEach(command -> command.setWorkflowName(workflowEvent.workflowName));
-            evaluateConditionsAndSendCommands(event.getConditions(), event.getCommands(), workflowEvent.workflowInstanceName);
+        List<CompiledHandler> handlers = handlerService.findByWorkflowNameAndEventType(
+                workflowEvent.getWorkflowName(), eventType, workflowEvent.getWorkflowName());
+        for (int i = 0; i < handlers.size(); i++) {
+            CompiledHandler handler = handlers.get(i);
+            if (handler.matches(workflowEvent)) {
+                sendCommands(handler.getCommands(), workflowEvent.getWorkflowName(), workflowEvent.getWorkflowInstanceName());
+            }
         }
     }
 
-    private void evaluateConditionsAndSendCommands(List<Condition> conditions, List<Command> commands, String instanceName) {
-        if (evaluateConditions(conditions)) {
-            sendCommands(commands, instanceName);
+    /**
+     * Records the event of a joined task.
+     *
+     * @return whether the handler fires with this event, which is always the case without a join
+     */
+    private boolean join(Join join, TaskEvent taskEvent) {
+        if (isNull(join)) {
+            return true;
         }
-    }
 
-    private Boolean evaluateConditions(List<Condition> conditions) {
-        Boolean result = Boolean.TRUE;
-        for (Condition condition : conditions) {
-            result = result && condition.evaluate();
+        String instanceName = taskEvent.getWorkflowInstanceName();
+        JoinState state = joins.get(instanceName);
+        if (isNull(state)) {
+            if (terminated.containsKey(instanceName)) {
+                // The event came after its instance terminated
+                return false;
+            }
+            if (joins.size() >= maxJoins) {
+                log().warning("Joining the tasks of {} workflow instances, failing {}", joins.size(), instanceName);
+                actorRegistry.tellWorkflow(new WorkflowActor.FailWorkflowCommand(taskEvent.getWorkflowName(), instanceName));
+                return false;
+            }
+            state = new JoinState();
+            joins.put(instanceName, state);
+        }
+        if (state.generation != join.getGeneration()) {
+            // The handlers were redefined, so the joins of the instance start over
+            state.generation = join.getGeneration();
+            state.bits.clear();
         }
-        return result;
+        return join.record(state.bits, taskEvent.getTaskName());
     }
 
-    private void sendCommands(List<Command> commands, String instanceName) {
-        for (Command command : commands) {
-            sendCommand(command, instanceName);
+    private void terminate(String instanceName) {
+        joins.remove(instanceName);
+        terminated.put(instanceName, Boolean.TRUE);
+    }
+
+    private void sendCommands(List<CommandTemplate> commands, String workflowName, String instanceName) {
+        for (int i = 0; i < commands.size(); i++) {
+            sendCommand(commands.get(i), workflowName, instanceName);
         }
     }
 
-    private void sendCommand(Command command, String instanceName) {
+    private void sendCommand(CommandTemplate command, String workflowName, String instanceName) {
         switch (command.getOperation()) {
             case START_TASK:
-                actorSystem.actorSelection(TASK_ACTOR)
-                        .tell(new TaskActor.StartTaskCommand(command.getTaskName(), command.getWorkflowName(), instanceName), noSender());
+                actorRegistry.tellTask(new TaskActor.StartTaskCommand(command.getTaskName(), workflowName, instanceName));
                 break;
 
             case SCHEDULE_WORKFLOW:
-                actorSystem.actorSelection(WORKFLOW_ACTOR)
-                        .tell(new WorkflowActor.ScheduleWorkflowCommand(command.getWorkflowName()), noSender());
+                actorRegistry.tellWorkflow(new WorkflowActor.ScheduleWorkflowCommand(workflowName));
                 break;
             case START_WORKFLOW:
-                actorSystem.actorSelection(WORKFLOW_ACTOR)
-                        .tell(new StartWorkflowCommand(command.getWorkflowName(), instanceName), noSender());
+                actorRegistry.tellWorkflow(new StartWorkflowCommand(workflowName, instanceName));
                 break;
             case STOP_WORKFLOW:
-                actorSystem.actorSelection(WORKFLOW_ACTOR)
-                        .tell(new WorkflowActor.StopWorkflowCommand(command.getWorkflowName(), instanceName), noSender());
+                actorRegistry.tellWorkflow(new WorkflowActor.StopWorkflowCommand(workflowName, instanceName));
                 break;
             case CANCEL_WORKFLOW:
-                actorSystem.actorSelection(WORKFLOW_ACTOR)
-                        .tell(new WorkflowActor.CancelWorkflowCommand(command.getWorkflowName(), instanceName), noSender());
+                actorRegistry.tellWorkflow(new WorkflowActor.CancelWorkflowCommand(workflowName, instanceName));
                 break;
         }
 
     }
 
 
+    private static class JoinState {
+        private final BitSet bits = new BitSet();
+        private Object generation;
+    }
+
     /**
      * *****************************************************************************
      * <p/>
@@ -204,10 +278,15 @@ public class DeciderActor extends AbstractLoggingActor {
 
     @Data
     @AllArgsConstructor
-    public static abstract class TaskEvent {
+    public static abstract class TaskEvent implements ConsistentHashable {
         private String workflowName;
         private String workflowInstanceName;
         private String taskName;
+
+        @Override
+        public Object consistentHashKey() {
+            return workflowInstanceName;
+        }
     }
 
     public static class TaskStartedEvent extends TaskEvent {
@@ -216,9 +295,21 @@ public class DeciderActor extends AbstractLoggingActor {
         }
     }
 
+    /**
+     * Carries the response of the task only when a handler of its workflow inspects responses.
+     */
+    @ToString(callSuper = true)
     public static class TaskCompletedEvent extends TaskEvent {
+        @Getter
+        private final TaskResponse response;
+
         public TaskCompletedEvent(String workflowName, String workflowInstanceName, String taskName) {
+            this(workflowName, workflowInstanceName, taskName, null);
+        }
+
+        public TaskCompletedEvent(String workflowName, String workflowInstanceName, String taskName, TaskResponse response) {
             super(workflowName, workflowInstanceName, taskName);
+            this.response = response;
         }
     }
 
@@ -247,9 +338,14 @@ public class DeciderActor extends AbstractLoggingActor {
 
     @Data
     @AllArgsConstructor
-    public static abstract class WorkflowEvent {
+    public static abstract class WorkflowEvent implements ConsistentHashable {
         private String workflowName;
         private String workflowInstanceName;
+
+        @Override
+        public Object consistentHashKey() {
+            return workflowInstanceName;
+        }
     }
 
     public static class WorkflowScheduledEvent extends WorkflowEvent {
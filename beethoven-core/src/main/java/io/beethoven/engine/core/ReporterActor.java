@@ -25,9 +25,15 @@ package io.beethoven.engine.core;
 
 import akka.actor.AbstractLoggingActor;
 import akka.japi.pf.ReceiveBuilder;
+import akka.routing.ConsistentHashingRouter.ConsistentHashable;
+import io.beethoven.config.BeethovenProperties;
 import io.beethoven.dsl.Workflow;
 import io.beethoven.engine.TaskInstance;
 import io.beethoven.engine.WorkflowInstance;
+import io.beethoven.engine.WorkflowInstanceSummary;
+import io.beethoven.engine.metrics.EngineMetrics;
+import io.beethoven.engine.report.ReportRecord;
+import io.beethoven.engine.report.ReportSink;
 import io.beethoven.repository.ContextualInputRepository;
 import io.beethoven.repository.WorkflowRepository;
 import lombok.AllArgsConstructor;
@@ -40,14 +46,25 @@ import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Component;
 
 import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
 
 import static akka.actor.ActorRef.noSender;
 import static io.beethoven.engine.WorkflowInstance.WorkflowStatus;
 import static java.util.Objects.nonNull;
 
 /**
+ * Tracks the execution of workflow instances. Reporters run as a consistent hashing pool keyed
+ * by the workflow instance name, and each one tracks a bounded number of in-flight instances.
+ * Finished instances are reduced to a {@link WorkflowInstanceSummary}, which is published on the
+ * actor system event stream and kept in a bounded history. A record of every terminated task and
+ * instance, and of every paused instance, is written to the {@link ReportSink}.
+ * <p/>
+ * A reporter is the one that tells when an instance completed and releases its inputs, so it
+ * never stops tracking an instance that did not terminate. When it is full, a new instance is
+ * failed at once through the {@link WorkflowActor}, and tracked until it reports its failure.
+ *
  * @author Davi Monteiro
  */
 @Component(ActorName.REPORTER_ACTOR)
@@ -60,7 +77,38 @@ public class ReporterActor extends AbstractLoggingActor {
     @Autowired
     private WorkflowRepository workflowRepository;
 
-    private Map<String, WorkflowInstance> instances = new ConcurrentHashMap();
+    @Autowired
+    private BeethovenProperties beethovenProperties;
+
+    @Autowired
+    private EngineMetrics engineMetrics;
+
+    @Autowired
+    private ReportSink reportSink;
+
+    @Autowired
+    private ActorRegistry actorRegistry;
+
+    private Map<String, WorkflowInstance> instances = new LinkedHashMap<>();
+
+    private Map<String, WorkflowInstanceSummary> summaries;
+
+    private int maxInstances;
+
+    @Override
+    public void preStart() {
+        // The limits are shared by all the reporters of the pool
+        BeethovenProperties.Reporter reporter = beethovenProperties.getReporter();
+        int poolSize = Math.max(1, reporter.getPoolSize());
+        maxInstances = Math.max(1, reporter.getMaxInstances() / poolSize);
+        int maxSummaries = Math.max(1, reporter.getMaxSummaries() / poolSize);
+        summaries = new LinkedHashMap<String, WorkflowInstanceSummary>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, WorkflowInstanceSummary> eldest) {
+                return size() > maxSummaries;
+            }
+        };
+    }
 
     @Override
     public Receive createReceive() {
@@ -72,6 +120,7 @@ public class ReporterActor extends AbstractLoggingActor {
                 .match(ReportWorkflowCompletedEvent.class, this::onReportWorkflowCompletedEvent)
                 .match(ReportWorkflowCanceledEvent.class, this::onReportWorkflowCanceledEvent)
                 .match(ReportWorkflowFailedEvent.class, this::onReportWorkflowFailedEvent)
+                .match(ReportWorkflowRecoveredEvent.class, this::onReportWorkflowRecoveredEvent)
 
                 .match(ReportTaskStartedEvent.class, this::onReportTaskStartedEvent)
                 .match(ReportTaskTimeoutEvent.class, this::onReportTaskTimeoutEvent)
@@ -91,8 +140,10 @@ public class ReporterActor extends AbstractLoggingActor {
         if (nonNull(workflow)) {
             WorkflowInstance workflowInstance = new WorkflowInstance(reportWorkflowScheduledEvent);
             workflowInstance.setStatus(WorkflowStatus.SCHEDULED);
+            workflowInstance.setScheduledNanos(System.nanoTime());
+            engineMetrics.workflowScheduled(workflowInstance.getWorkflowName());
             workflowInstance.setCountTasks(workflow.getTasks().size());
-            instances.put(reportWorkflowScheduledEvent.getWorkflowInstanceName(), workflowInstance);
+            track(workflowInstance);
         }
     }
 
@@ -101,6 +152,9 @@ public class ReporterActor extends AbstractLoggingActor {
 
         WorkflowInstance workflowInstance = instances.get(reportWorkflowStartedEvent.getWorkflowInstanceName());
         if (nonNull(workflowInstance)) {
+            if (workflowInstance.getStatus() != WorkflowStatus.RUNNING) {
+                engineMetrics.workflowStarted(workflowInstance.getWorkflowName(), workflowInstance.getStatus());
+            }
             workflowInstance.setStatus(WorkflowStatus.RUNNING);
             workflowInstance.setStartTime(LocalDateTime.now());
         }
@@ -111,8 +165,10 @@ public class ReporterActor extends AbstractLoggingActor {
 
         WorkflowInstance workflowInstance = instances.get(reportWorkflowStoppedEvent.getWorkflowInstanceName());
         if (nonNull(workflowInstance)) {
-            workflowInstance.setEndTime(LocalDateTime.now());
-            report(reportWorkflowStoppedEvent);
+            // A paused instance may be resumed, so it is still tracked and keeps its inputs
+            engineMetrics.workflowPaused(workflowInstance.getWorkflowName(), workflowInstance.getStatus());
+            workflowInstance.setStatus(WorkflowStatus.PAUSED);
+            reportSink.write(ReportRecord.of(workflowInstance));
         }
     }
 
@@ -121,6 +177,7 @@ public class ReporterActor extends AbstractLoggingActor {
 
         WorkflowInstance workflowInstance = instances.get(reportWorkflowCompletedEvent.getWorkflowInstanceName());
         if (nonNull(workflowInstance)) {
+            terminate(workflowInstance, WorkflowStatus.COMPLETED);
             workflowInstance.setEndTime(LocalDateTime.now());
             report(reportWorkflowCompletedEvent);
         }
@@ -131,6 +188,7 @@ public class ReporterActor extends AbstractLoggingActor {
 
         WorkflowInstance workflowInstance = instances.get(reportWorkflowCanceledEvent.getWorkflowInstanceName());
         if (nonNull(workflowInstance)) {
+            terminate(workflowInstance, WorkflowStatus.CANCELLED);
             workflowInstance.setEndTime(LocalDateTime.now());
             report(reportWorkflowCanceledEvent);
         }
@@ -141,11 +199,32 @@ public class ReporterActor extends AbstractLoggingActor {
 
         WorkflowInstance workflowInstance = instances.get(reportWorkflowFailedEvent.getWorkflowInstanceName());
         if (nonNull(workflowInstance)) {
+            terminate(workflowInstance, WorkflowStatus.FAILED);
             workflowInstance.setEndTime(LocalDateTime.now());
             report(reportWorkflowFailedEvent);
         }
     }
 
+    private void onReportWorkflowRecoveredEvent(ReportWorkflowRecoveredEvent reportWorkflowRecoveredEvent) {
+        log().debug("onReportWorkflowRecoveredEvent: " + reportWorkflowRecoveredEvent);
+
+        WorkflowInstance workflowInstance = reportWorkflowRecoveredEvent.workflowInstance;
+        Workflow workflow = workflowRepository.findByName(workflowInstance.getWorkflowName());
+        if (nonNull(workflow)) {
+            workflowInstance.setScheduledNanos(System.nanoTime());
+            engineMetrics.workflowScheduled(workflowInstance.getWorkflowName());
+            if (workflowInstance.getStatus() == WorkflowStatus.RUNNING) {
+                engineMetrics.workflowStarted(workflowInstance.getWorkflowName(), WorkflowStatus.SCHEDULED);
+            } else if (workflowInstance.getStatus() == WorkflowStatus.PAUSED) {
+                engineMetrics.workflowPaused(workflowInstance.getWorkflowName(), WorkflowStatus.SCHEDULED);
+            }
+            workflowInstance.setCountTasks(workflow.getTasks().size());
+            if (track(workflowInstance) && !workflowInstance.getTasks().isEmpty()) {
+                checkCompletedWorkflow(workflowInstance);
+            }
+        }
+    }
+
     private void onReportTaskStartedEvent(ReportTaskStartedEvent reportTaskStartedEvent) {
         log().debug("onReportTaskStartedEvent: " + reportTaskStartedEvent);
 
@@ -166,8 +245,8 @@ public class ReporterActor extends AbstractLoggingActor {
             TaskInstance taskInstance = workflowInstance.getTasks().get(reportTaskCompletedEvent.getTaskInstanceName());
             if (nonNull(taskInstance)) {
                 taskInstance.setEndTime(LocalDateTime.now());
-                taskInstance.setResponse(reportTaskCompletedEvent.response);
-                taskInstance.print();
+                // Only its length is reported, and the inputs keep the response for the next tasks
+                reportSink.write(ReportRecord.of(taskInstance, "COMPLETED", reportTaskCompletedEvent.responseLength));
             }
             checkCompletedWorkflow(workflowInstance);
         }
@@ -181,7 +260,9 @@ public class ReporterActor extends AbstractLoggingActor {
             TaskInstance taskInstance = workflowInstance.getTasks().get(reportTaskTimeoutEvent.getTaskInstanceName());
             if (nonNull(taskInstance)) {
                 taskInstance.setEndTime(LocalDateTime.now());
-                taskInstance.print();
+                // A timed out task did not execute successfully
+                taskInstance.setFailure(new TimeoutException("Task " + taskInstance.getTaskName() + " timed out"));
+                reportSink.write(ReportRecord.of(taskInstance, "TIMEDOUT"));
             }
             checkCompletedWorkflow(workflowInstance);
         }
@@ -196,22 +277,50 @@ public class ReporterActor extends AbstractLoggingActor {
             if (nonNull(taskInstance)) {
                 taskInstance.setEndTime(LocalDateTime.now());
                 taskInstance.setFailure(reportTaskFailedEvent.failure);
-                taskInstance.print();
+                reportSink.write(ReportRecord.of(taskInstance, "FAILED"));
             }
             checkCompletedWorkflow(workflowInstance);
         }
     }
 
+    private void terminate(WorkflowInstance workflowInstance, WorkflowStatus status) {
+        engineMetrics.workflowTerminated(workflowInstance.getWorkflowName(), workflowInstance.getStatus(), status,
+                System.nanoTime() - workflowInstance.getScheduledNanos());
+        workflowInstance.setStatus(status);
+    }
+
     private void report(ReportWorkflowEvent reportWorkflowEvent) {
         log().debug("ReportWorkflowEvent" + reportWorkflowEvent);
 
         WorkflowInstance workflowInstance = instances.get(reportWorkflowEvent.workflowInstanceName);
         if (nonNull(workflowInstance)) {
-            workflowInstance.print();
+            reportSink.write(ReportRecord.of(workflowInstance));
+            WorkflowInstanceSummary summary = WorkflowInstanceSummary.of(workflowInstance);
+            summaries.put(summary.getWorkflowInstanceName(), summary);
+            getContext().getSystem().eventStream().publish(summary);
             clearWorkflowInstanceResources(workflowInstance);
         }
     }
 
+    /**
+     * Tracks an instance, which is failed at once when the reporter is full. The tracked instances
+     * have not terminated yet, so none of them can be evicted without losing its completion.
+     *
+     * @return false when the instance is failed
+     */
+    private boolean track(WorkflowInstance workflowInstance) {
+        instances.put(workflowInstance.getWorkflowInstanceName(), workflowInstance);
+        if (instances.size() <= maxInstances) {
+            return true;
+        }
+        log().warning("Tracking {} workflow instances, failing {}", instances.size(), workflowInstance.getWorkflowInstanceName());
+        // Its failure is reported as any other, which releases its inputs
+        actorRegistry.tellWorkflow(new WorkflowActor.FailWorkflowCommand(
+                workflowInstance.getWorkflowName(),
+                workflowInstance.getWorkflowInstanceName()));
+        return false;
+    }
+
     private void checkScheduledWorkflow(@NonNull WorkflowInstance workflowInstance) {
         if (workflowInstance.getStatus().equals(WorkflowStatus.SCHEDULED)) {
             self().tell(new ReportWorkflowStartedEvent(
@@ -222,9 +331,10 @@ public class ReporterActor extends AbstractLoggingActor {
 
     private void checkCompletedWorkflow(@NonNull WorkflowInstance workflowInstance) {
         if (workflowInstance.isTerminated()) {
-            self().tell(new ReportWorkflowCompletedEvent(
+            // The instance actor completes the instance, and then reports it
+            actorRegistry.tellWorkflow(new WorkflowActor.CompleteWorkflowCommand(
                     workflowInstance.getWorkflowName(),
-                    workflowInstance.getWorkflowInstanceName()), noSender());
+                    workflowInstance.getWorkflowInstanceName()));
         }
     }
 
@@ -242,9 +352,14 @@ public class ReporterActor extends AbstractLoggingActor {
      */
     @Data
     @AllArgsConstructor
-    public static abstract class ReportWorkflowEvent {
+    public static abstract class ReportWorkflowEvent implements ConsistentHashable {
         private String workflowName;
         private String workflowInstanceName;
+
+        @Override
+        public Object consistentHashKey() {
+            return workflowInstanceName;
+        }
     }
 
     public static class ReportWorkflowScheduledEvent extends ReportWorkflowEvent {
@@ -283,6 +398,16 @@ public class ReporterActor extends AbstractLoggingActor {
         }
     }
 
+    public static class ReportWorkflowRecoveredEvent extends ReportWorkflowEvent {
+        @Getter
+        private WorkflowInstance workflowInstance;
+
+        public ReportWorkflowRecoveredEvent(WorkflowInstance workflowInstance) {
+            super(workflowInstance.getWorkflowName(), workflowInstance.getWorkflowInstanceName());
+            this.workflowInstance = workflowInstance;
+        }
+    }
+
     /*******************************************************************************/
 
 
@@ -295,11 +420,16 @@ public class ReporterActor extends AbstractLoggingActor {
      */
     @Data
     @AllArgsConstructor
-    public static abstract class ReportTaskEvent {
+    public static abstract class ReportTaskEvent implements ConsistentHashable {
         private String workflowName;
         private String workflowInstanceName;
         private String taskName;
         private String taskInstanceName;
+
+        @Override
+        public Object consistentHashKey() {
+            return workflowInstanceName;
+        }
     }
 
     public static class ReportTaskStartedEvent extends ReportTaskEvent {
@@ -309,12 +439,13 @@ public class ReporterActor extends AbstractLoggingActor {
     }
 
     public static class ReportTaskCompletedEvent extends ReportTaskEvent {
+        // The size in bytes of the response
         @Getter
-        private String response;
+        private int responseLength;
 
-        public ReportTaskCompletedEvent(String workflowName, String workflowInstanceName, String taskName, String taskInstanceName, String response) {
+        public ReportTaskCompletedEvent(String workflowName, String workflowInstanceName, String taskName, String taskInstanceName, int responseLength) {
             super(workflowName, workflowInstanceName, taskName, taskInstanceName);
-            this.response = response;
+            this.responseLength = responseLength;
         }
     }
 
@@ -24,18 +24,43 @@ package io.beethoven.engine.core;
 
 
 import akka.actor.AbstractLoggingActor;
+import akka.actor.ActorRef;
+import akka.actor.Terminated;
 import akka.japi.pf.ReceiveBuilder;
+import io.beethoven.config.BeethovenProperties;
+import io.beethoven.engine.WorkflowInstance;
 import io.beethoven.engine.core.support.WorkflowInstanceActor;
+import io.beethoven.engine.metrics.EngineMetrics;
+import io.netty.util.Timeout;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.config.ConfigurableBeanFactory;
 import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import static java.util.Objects.nonNull;
+
 
 /**
+ * Parent of the {@link WorkflowInstanceActor}s, which only live while their instance has work
+ * to do. An instance actor stops itself when its instance terminates. When it stays idle, for
+ * instance while a slow task runs, it is passivated: its state is handed to this actor in a
+ * compact serialized form and the actor stops. It is activated again, from that state, on the
+ * next command for its instance. The commands received while an instance is being passivated
+ * are buffered and delivered once it is activated again.
+ * <p>
+ * The number of passivated instances is bounded: beyond it, the oldest passivated instance is
+ * activated and failed, so it releases its state and every resource held for it.
+ *
  * @author Davi Monteiro
  */
 @Component(ActorName.WORKFLOW_ACTOR)
@@ -44,6 +69,20 @@ public class WorkflowActor extends AbstractLoggingActor {
 
     private final AtomicInteger count = new AtomicInteger();
 
+    @Autowired
+    private ActorRegistry actorRegistry;
+
+    @Autowired
+    private EngineMetrics engineMetrics;
+
+    @Autowired
+    private BeethovenProperties beethovenProperties;
+
+    // In the order the instances were passivated
+    private final Map<String, WorkflowInstancePassivated> passivated = new LinkedHashMap<>();
+
+    private final Map<String, List<Envelope>> passivating = new HashMap<>();
+
     @Override
     public Receive createReceive() {
         Receive receive = ReceiveBuilder.create()
@@ -51,6 +90,13 @@ public class WorkflowActor extends AbstractLoggingActor {
                 .match(StartWorkflowCommand.class, this::onStartWorkflowCommand)
                 .match(StopWorkflowCommand.class, this::onStopWorkflowCommand)
                 .match(CancelWorkflowCommand.class, this::onCancelWorkflowCommand)
+                .match(RecoverWorkflowCommand.class, this::onRecoverWorkflowCommand)
+                .match(CompleteWorkflowCommand.class, this::onCompleteWorkflowCommand)
+                .match(TimeOutWorkflowCommand.class, this::onTimeOutWorkflowCommand)
+                .match(FailWorkflowCommand.class, this::onFailWorkflowCommand)
+                .match(PassivationRequest.class, this::onPassivationRequest)
+                .match(WorkflowInstancePassivated.class, this::onWorkflowInstancePassivated)
+                .match(Terminated.class, this::onTerminated)
                 .build();
 
         return receive;
@@ -59,7 +105,7 @@ public class WorkflowActor extends AbstractLoggingActor {
     private void onScheduleWorkflowCommand(ScheduleWorkflowCommand scheduleWorkflowCommand) {
         log().debug("onScheduleWorkflowCommand: " + scheduleWorkflowCommand);
         String instanceName = generateInstanceName(scheduleWorkflowCommand.workflowName);
-        getContext().actorOf(WorkflowInstanceActor.props(), instanceName);
+        createInstanceActor(instanceName);
 
         forwardCommand(new WorkflowInstanceActor.CreateWorkflowInstanceCommand(scheduleWorkflowCommand.workflowName,
                 instanceName), instanceName);
@@ -83,18 +129,154 @@ public class WorkflowActor extends AbstractLoggingActor {
                 cancelWorkflowCommand.instanceName), cancelWorkflowCommand.instanceName);
     }
 
-    private void forwardCommand(WorkflowInstanceActor.WorkflowInstanceCommand command, String actorName) {
-        getContext().findChild(actorName).ifPresent(child -> child.forward(command, getContext()));
+    private void onRecoverWorkflowCommand(RecoverWorkflowCommand recoverWorkflowCommand) {
+        WorkflowInstance workflowInstance = recoverWorkflowCommand.workflowInstance;
+        log().debug("onRecoverWorkflowCommand: " + workflowInstance.getWorkflowInstanceName());
+        String instanceName = workflowInstance.getWorkflowInstanceName();
+        if (!getContext().findChild(instanceName).isPresent()) {
+            createInstanceActor(instanceName);
+        }
+        skipInstanceName(workflowInstance.getWorkflowName(), instanceName);
+
+        forwardCommand(new WorkflowInstanceActor.RecoverWorkflowInstanceCommand(workflowInstance), instanceName);
+    }
+
+    private void onCompleteWorkflowCommand(CompleteWorkflowCommand completeWorkflowCommand) {
+        log().debug("onCompleteWorkflowCommand: " + completeWorkflowCommand);
+        String instanceName = completeWorkflowCommand.instanceName;
+        WorkflowInstanceActor.CompletedWorkflowInstanceEvent event = new WorkflowInstanceActor.CompletedWorkflowInstanceEvent(
+                completeWorkflowCommand.workflowName, instanceName);
+        if (!forwardCommand(event, instanceName)) {
+            // The instance already terminated, the reporter still has to know it completed
+            actorRegistry.tellReporter(new ReporterActor.ReportWorkflowCompletedEvent(
+                    completeWorkflowCommand.workflowName, instanceName));
+        }
+    }
+
+    private void onTimeOutWorkflowCommand(TimeOutWorkflowCommand timeOutWorkflowCommand) {
+        log().debug("onTimeOutWorkflowCommand: " + timeOutWorkflowCommand);
+        // Dropped when the instance already terminated
+        forwardCommand(new WorkflowInstanceActor.TimeOutWorkflowInstanceCommand(timeOutWorkflowCommand.workflowName,
+                timeOutWorkflowCommand.instanceName), timeOutWorkflowCommand.instanceName);
+    }
+
+    private void onFailWorkflowCommand(FailWorkflowCommand failWorkflowCommand) {
+        log().debug("onFailWorkflowCommand: " + failWorkflowCommand);
+        // Failed as if it timed out, so its in-flight tasks are cancelled too
+        forwardCommand(new WorkflowInstanceActor.TimeOutWorkflowInstanceCommand(failWorkflowCommand.workflowName,
+                failWorkflowCommand.instanceName), failWorkflowCommand.instanceName);
+    }
+
+    private void onPassivationRequest(PassivationRequest passivationRequest) {
+        String instanceName = passivationRequest.instanceName;
+        Optional<ActorRef> child = getContext().findChild(instanceName);
+        if (child.isPresent() && !passivating.containsKey(instanceName)) {
+            log().debug("Passivating " + instanceName);
+            // The instance actor processes the commands already sent to it before passivating
+            passivating.put(instanceName, new ArrayList<>());
+            child.get().tell(new WorkflowInstanceActor.PassivateWorkflowInstanceCommand(), self());
+        }
+    }
+
+    @Override
+    public void postStop() {
+        // The passivated instances are only recovered from the journal
+        for (WorkflowInstancePassivated instance : passivated.values()) {
+            if (nonNull(instance.deadline)) {
+                instance.deadline.cancel();
+            }
+            engineMetrics.instanceActivated();
+        }
+        passivated.clear();
+        passivating.clear();
+    }
+
+    private void onWorkflowInstancePassivated(WorkflowInstancePassivated workflowInstancePassivated) {
+        passivated.put(workflowInstancePassivated.instanceName, workflowInstancePassivated);
+        engineMetrics.instancePassivated();
+
+        Integer maxPassivated = beethovenProperties.getInstances().getMaxPassivated();
+        if (nonNull(maxPassivated) && passivated.size() > maxPassivated) {
+            WorkflowInstancePassivated oldest = passivated.values().iterator().next();
+            log().warning("Passivated {} workflow instances, failing {}", passivated.size(), oldest.instanceName);
+            ActorRef child = activate(oldest.instanceName);
+            child.tell(new WorkflowInstanceActor.TimeOutWorkflowInstanceCommand(oldest.workflowName,
+                    oldest.instanceName), self());
+        }
+    }
+
+    private void onTerminated(Terminated terminated) {
+        String instanceName = terminated.getActor().path().name();
+        engineMetrics.instanceActorStopped();
+        List<Envelope> buffered = passivating.remove(instanceName);
+        if (nonNull(buffered) && !buffered.isEmpty()) {
+            ActorRef child = activate(instanceName);
+            if (nonNull(child)) {
+                buffered.forEach(envelope -> child.tell(envelope.message, envelope.sender));
+            }
+        }
+    }
+
+    /**
+     * @return false when the instance has no actor and was not passivated, so the command is dropped
+     */
+    private boolean forwardCommand(WorkflowInstanceActor.WorkflowInstanceCommand command, String actorName) {
+        List<Envelope> buffered = passivating.get(actorName);
+        if (nonNull(buffered)) {
+            buffered.add(new Envelope(command, sender()));
+            return true;
+        }
+
+        Optional<ActorRef> child = getContext().findChild(actorName);
+        ActorRef target = child.isPresent() ? child.get() : activate(actorName);
+        if (nonNull(target)) {
+            target.forward(command, getContext());
+            return true;
+        }
+        return false;
+    }
+
+    private ActorRef activate(String instanceName) {
+        WorkflowInstancePassivated instance = passivated.remove(instanceName);
+        if (nonNull(instance)) {
+            log().debug("Activating " + instanceName);
+            engineMetrics.instanceActivated();
+            ActorRef child = createInstanceActor(instanceName);
+            child.tell(new WorkflowInstanceActor.ActivateWorkflowInstanceCommand(instance.state, instance.deadline), self());
+            return child;
+        }
+        return null;
+    }
+
+    private ActorRef createInstanceActor(String instanceName) {
+        ActorRef child = getContext().actorOf(WorkflowInstanceActor.props(), instanceName);
+        getContext().watch(child);
+        engineMetrics.instanceActorStarted();
+        return child;
     }
 
     private String generateInstanceName(String workflowName) {
         return workflowName + "-" + count.incrementAndGet();
     }
 
+    // The names generated from now on must not collide with the name of a recovered instance
+    private void skipInstanceName(String workflowName, String instanceName) {
+        String prefix = workflowName + "-";
+        if (instanceName.startsWith(prefix)) {
+            try {
+                int number = Integer.parseInt(instanceName.substring(prefix.length()));
+                count.accumulateAndGet(number, Math::max);
+            } catch (NumberFormatException e) {
+                // The name was given when the instance was started
+            }
+        }
+    }
+
     /*******************************************************************************
      *
      * Workflow Commands: SCHEDULE_WORKFLOW, START_WORKFLOW,
-     *                    STOP_WORKFLOW, CANCEL_WORKFLOW
+     *                    STOP_WORKFLOW, CANCEL_WORKFLOW, COMPLETE_WORKFLOW,
+     *                    TIME_OUT_WORKFLOW, FAIL_WORKFLOW, RECOVER_WORKFLOW
      *
      *******************************************************************************/
     public interface WorkflowCommand { }
@@ -121,6 +303,55 @@ public class WorkflowActor extends AbstractLoggingActor {
         private String workflowName;
         private String instanceName;
     }
+
+    @Data @AllArgsConstructor
+    public static class CompleteWorkflowCommand implements WorkflowCommand {
+        private String workflowName;
+        private String instanceName;
+    }
+
+    @Data @AllArgsConstructor
+    public static class TimeOutWorkflowCommand implements WorkflowCommand {
+        private String workflowName;
+        private String instanceName;
+    }
+
+    @Data @AllArgsConstructor
+    public static class FailWorkflowCommand implements WorkflowCommand {
+        private String workflowName;
+        private String instanceName;
+    }
+
+    @Data @AllArgsConstructor
+    public static class RecoverWorkflowCommand implements WorkflowCommand {
+        private WorkflowInstance workflowInstance;
+    }
+    /*******************************************************************************/
+
+
+    /*******************************************************************************
+     *
+     * Passivation: sent by the workflow instance actors
+     *
+     *******************************************************************************/
+    @Data @AllArgsConstructor
+    public static class PassivationRequest {
+        private String instanceName;
+    }
+
+    @Data @AllArgsConstructor
+    public static class WorkflowInstancePassivated {
+        private String workflowName;
+        private String instanceName;
+        private byte[] state;
+        private Timeout deadline;
+    }
+
+    @AllArgsConstructor
+    private static class Envelope {
+        private final Object message;
+        private final ActorRef sender;
+    }
     /*******************************************************************************/
 
 }
@@ -0,0 +1,123 @@
+/**
+ * The MIT License
+ * Copyright © 2018 Davi Monteiro
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.beethoven.engine.core.support;
+
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.dispatch.Envelope;
+import akka.dispatch.MailboxType;
+import akka.dispatch.MessageQueue;
+import akka.dispatch.ProducesMessageQueue;
+import akka.dispatch.UnboundedMessageQueueSemantics;
+import com.typesafe.config.Config;
+import scala.Option;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An unbounded mailbox that keeps track of how many messages are waiting in it, so the
+ * queue depth of the engine actors can be reported.
+ *
+ * @author Davi Monteiro
+ */
+public class MonitoredMailbox implements MailboxType, ProducesMessageQueue<MonitoredMailbox.MonitoredMessageQueue> {
+
+    public static final String MAILBOX = "beethoven.monitored-mailbox";
+
+    private static final Map<String, MonitoredMessageQueue> queues = new ConcurrentHashMap<>();
+
+    public MonitoredMailbox(ActorSystem.Settings settings, Config config) {
+    }
+
+    @Override
+    public MessageQueue create(Option<ActorRef> owner, Option<ActorSystem> system) {
+        String ownerPath = owner.isDefined() ? owner.get().path().toStringWithoutAddress() : null;
+        MonitoredMessageQueue queue = new MonitoredMessageQueue(ownerPath);
+        if (ownerPath != null) {
+            queues.put(ownerPath, queue);
+        }
+        return queue;
+    }
+
+    /**
+     * @return the number of messages waiting in each monitored mailbox, by actor path
+     */
+    public static Map<String, Integer> queueDepths() {
+        Map<String, Integer> depths = new TreeMap<>();
+        queues.forEach((path, queue) -> depths.put(path, queue.numberOfMessages()));
+        return depths;
+    }
+
+    public static class MonitoredMessageQueue implements MessageQueue, UnboundedMessageQueueSemantics {
+
+        private final Queue<Envelope> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger size = new AtomicInteger();
+        private final String ownerPath;
+
+        public MonitoredMessageQueue(String ownerPath) {
+            this.ownerPath = ownerPath;
+        }
+
+        @Override
+        public void enqueue(ActorRef receiver, Envelope handle) {
+            queue.offer(handle);
+            size.incrementAndGet();
+        }
+
+        @Override
+        public Envelope dequeue() {
+            Envelope handle = queue.poll();
+            if (handle != null) {
+                size.decrementAndGet();
+            }
+            return handle;
+        }
+
+        @Override
+        public int numberOfMessages() {
+            return size.get();
+        }
+
+        @Override
+        public boolean hasMessages() {
+            return !queue.isEmpty();
+        }
+
+        @Override
+        public void cleanUp(ActorRef owner, MessageQueue deadLetters) {
+            if (ownerPath != null) {
+                queues.remove(ownerPath, this);
+            }
+            Envelope handle;
+            while ((handle = dequeue()) != null) {
+                deadLetters.enqueue(owner, handle);
+            }
+        }
+    }
+
+}
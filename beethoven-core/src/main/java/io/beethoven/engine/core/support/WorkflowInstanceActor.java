@@ -24,28 +24,86 @@ package io.beethoven.engine.core.support;
 
 
 import akka.actor.AbstractLoggingActor;
-import akka.actor.ActorSystem;
 import akka.actor.Props;
+import akka.actor.ReceiveTimeout;
 import akka.japi.pf.ReceiveBuilder;
 import io.beethoven.config.BeethovenContext;
+import io.beethoven.config.BeethovenProperties;
+import io.beethoven.engine.TaskInstance;
 import io.beethoven.engine.WorkflowInstance;
-import io.beethoven.engine.core.ActorPath;
+import io.beethoven.engine.core.ActorRegistry;
 import io.beethoven.engine.core.DeciderActor;
 import io.beethoven.engine.core.ReporterActor;
+import io.beethoven.engine.core.TaskActor;
+import io.beethoven.engine.core.WorkflowActor;
+import io.beethoven.engine.journal.Journal;
+import io.beethoven.engine.journal.JournalRecord;
+import io.beethoven.service.TaskExecutorService;
+import io.beethoven.service.TimeoutService;
+import io.netty.util.Timeout;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.Getter;
+import scala.concurrent.duration.FiniteDuration;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.concurrent.TimeUnit;
 
-import static akka.actor.ActorRef.noSender;
 import static io.beethoven.engine.WorkflowInstance.WorkflowStatus.*;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
 
+/**
+ * Holds the status of one workflow instance. The actor stops once its instance is completed,
+ * cancelled or failed, and asks its parent {@link WorkflowActor} to passivate it when it
+ * receives no command for a while. An instance that does not terminate within the timeout
+ * of its workflow fails, and the http calls of its in-flight tasks are cancelled. The timeout
+ * does not run while the instance is paused, and a resumed instance gets its whole timeout again.
+ *
+ * @author Davi Monteiro
+ */
 public class WorkflowInstanceActor extends AbstractLoggingActor {
 
+    private static final Duration MIN_REMAINING_TIME = Duration.ofMillis(1);
+
     private WorkflowInstance workflowInstance;
 
-    private ActorSystem actorSystem;
+    private ActorRegistry actorRegistry;
+
+    private Journal journal;
+
+    private TimeoutService timeoutService;
+
+    private TaskExecutorService taskExecutorService;
+
+    private Duration passivateAfter;
+
+    // Handed over to the parent on passivation, the passivated instance times out through it
+    private Timeout deadline;
 
     public WorkflowInstanceActor() {
-        actorSystem = BeethovenContext.getApplicationContext().getBean(ActorSystem.class);
+        actorRegistry = BeethovenContext.getApplicationContext().getBean(ActorRegistry.class);
+        journal = BeethovenContext.getApplicationContext().getBean(Journal.class);
+        timeoutService = BeethovenContext.getApplicationContext().getBean(TimeoutService.class);
+        taskExecutorService = BeethovenContext.getApplicationContext().getBean(TaskExecutorService.class);
+        passivateAfter = BeethovenContext.getApplicationContext().getBean(BeethovenProperties.class)
+                .getInstances().getPassivateAfter();
+    }
+
+    @Override
+    public void preStart() {
+        if (nonNull(passivateAfter) && !passivateAfter.isZero() && !passivateAfter.isNegative()) {
+            getContext().setReceiveTimeout(FiniteDuration.create(passivateAfter.toMillis(), TimeUnit.MILLISECONDS));
+        }
     }
 
     @Override
@@ -57,6 +115,11 @@ public class WorkflowInstanceActor extends AbstractLoggingActor {
                 .match(CancelWorkflowInstanceCommand.class, this::onCancelWorkflowInstanceCommand)
                 .match(CompletedWorkflowInstanceEvent.class, this::onCompletedWorkflowInstanceEvent)
                 .match(FailedWorkflowInstanceEvent.class, this::onFailedWorkflowInstanceEvent)
+                .match(TimeOutWorkflowInstanceCommand.class, this::onTimeOutWorkflowInstanceCommand)
+                .match(RecoverWorkflowInstanceCommand.class, this::onRecoverWorkflowInstanceCommand)
+                .match(ReceiveTimeout.class, this::onReceiveTimeout)
+                .match(PassivateWorkflowInstanceCommand.class, this::onPassivateWorkflowInstanceCommand)
+                .match(ActivateWorkflowInstanceCommand.class, this::onActivateWorkflowInstanceCommand)
 
                 .build();
 
@@ -67,20 +130,30 @@ public class WorkflowInstanceActor extends AbstractLoggingActor {
         log().debug("onCreateWorkflowInstance: " + createWorkflowInstance);
         this.workflowInstance = new WorkflowInstance(createWorkflowInstance);
         this.workflowInstance.setStatus(SCHEDULED);
-        sendEvent(new DeciderActor.WorkflowScheduledEvent(workflowInstance.getWorkflowName(), workflowInstance.getWorkflowInstanceName()));
+        journal();
+        scheduleDeadline(timeoutService.findWorkflowTimeout(workflowInstance.getWorkflowName()));
+        // The reporter must track the instance before the decider starts any of its tasks
         sendEvent(new ReporterActor.ReportWorkflowScheduledEvent(workflowInstance.getWorkflowName(), workflowInstance.getWorkflowInstanceName()));
+        sendEvent(new DeciderActor.WorkflowScheduledEvent(workflowInstance.getWorkflowName(), workflowInstance.getWorkflowInstanceName()));
     }
 
     public void onStartWorkflowInstanceCommand(StartWorkflowInstanceCommand startWorkflowInstanceCommand) {
         log().debug("onStartWorkflowInstanceCommand: " + startWorkflowInstanceCommand);
+        if (workflowInstance.getStatus() == PAUSED) {
+            cancelDeadline();
+            scheduleDeadline(timeoutService.findWorkflowTimeout(workflowInstance.getWorkflowName()));
+        }
         this.workflowInstance.setStatus(RUNNING);
-        sendEvent(new DeciderActor.WorkflowStartedEvent(workflowInstance.getWorkflowName(), workflowInstance.getWorkflowInstanceName()));
+        journal();
         sendEvent(new ReporterActor.ReportWorkflowStartedEvent(workflowInstance.getWorkflowName(), workflowInstance.getWorkflowInstanceName()));
+        sendEvent(new DeciderActor.WorkflowStartedEvent(workflowInstance.getWorkflowName(), workflowInstance.getWorkflowInstanceName()));
     }
 
     public void onStopWorkflowInstanceCommand(StopWorkflowInstanceCommand stopWorkflowInstanceCommand) {
         log().debug("onStopWorkflowInstanceCommand: " + stopWorkflowInstanceCommand);
         this.workflowInstance.setStatus(PAUSED);
+        journal();
+        cancelDeadline();
         sendEvent(new DeciderActor.WorkflowStoppedEvent(workflowInstance.getWorkflowName(), workflowInstance.getWorkflowInstanceName()));
         sendEvent(new ReporterActor.ReportWorkflowStoppedEvent(workflowInstance.getWorkflowName(), workflowInstance.getWorkflowInstanceName()));
     }
@@ -88,30 +161,171 @@ public class WorkflowInstanceActor extends AbstractLoggingActor {
     public void onCompletedWorkflowInstanceEvent(CompletedWorkflowInstanceEvent completedWorkflowInstanceEvent) {
         log().debug("onCompletedWorkflowInstanceEvent: " + completedWorkflowInstanceEvent);
         this.workflowInstance.setStatus(COMPLETED);
+        journal();
+        cancelDeadline();
         sendEvent(new DeciderActor.WorkflowCompletedEvent(workflowInstance.getWorkflowName(), workflowInstance.getWorkflowInstanceName()));
         sendEvent(new ReporterActor.ReportWorkflowCompletedEvent(workflowInstance.getWorkflowName(), workflowInstance.getWorkflowInstanceName()));
+        getContext().stop(self());
     }
 
     public void onCancelWorkflowInstanceCommand(CancelWorkflowInstanceCommand cancelWorkflowInstanceCommand) {
         log().debug("onCancelWorkflowInstanceCommand: " + cancelWorkflowInstanceCommand);
         this.workflowInstance.setStatus(CANCELLED);
+        journal();
+        cancelDeadline();
         sendEvent(new DeciderActor.WorkflowCanceledEvent(workflowInstance.getWorkflowName(), workflowInstance.getWorkflowInstanceName()));
         sendEvent(new ReporterActor.ReportWorkflowCanceledEvent(workflowInstance.getWorkflowName(), workflowInstance.getWorkflowInstanceName()));
+        getContext().stop(self());
     }
 
     public void onFailedWorkflowInstanceEvent(FailedWorkflowInstanceEvent failedWorkflowInstanceEvent) {
         log().debug("onFailedWorkflowInstanceEvent: " + failedWorkflowInstanceEvent);
         this.workflowInstance.setStatus(FAILED);
+        journal();
+        cancelDeadline();
         sendEvent(new DeciderActor.WorkflowFailedEvent(workflowInstance.getWorkflowName(), workflowInstance.getWorkflowInstanceName()));
         sendEvent(new ReporterActor.ReportWorkflowFailedEvent(workflowInstance.getWorkflowName(), workflowInstance.getWorkflowInstanceName()));
+        getContext().stop(self());
+    }
+
+    public void onTimeOutWorkflowInstanceCommand(TimeOutWorkflowInstanceCommand timeOutWorkflowInstanceCommand) {
+        log().debug("onTimeOutWorkflowInstanceCommand: " + timeOutWorkflowInstanceCommand);
+        deadline = null;
+        taskExecutorService.cancel(workflowInstance.getWorkflowInstanceName());
+        onFailedWorkflowInstanceEvent(new FailedWorkflowInstanceEvent(workflowInstance.getWorkflowName(),
+                workflowInstance.getWorkflowInstanceName()));
+    }
+
+    /**
+     * Restores an instance rebuilt from the journal. The reporter tracks it again with its
+     * terminated tasks, and the tasks that were in flight are started again.
+     */
+    public void onRecoverWorkflowInstanceCommand(RecoverWorkflowInstanceCommand recoverWorkflowInstanceCommand) {
+        log().debug("onRecoverWorkflowInstanceCommand: " + recoverWorkflowInstanceCommand);
+        WorkflowInstance recovered = recoverWorkflowInstanceCommand.workflowInstance;
+        this.workflowInstance = new WorkflowInstance(recoverWorkflowInstanceCommand);
+        this.workflowInstance.setStatus(recovered.getStatus());
+        this.workflowInstance.setStartTime(recovered.getStartTime());
+        if (recovered.getStatus() != PAUSED) {
+            scheduleDeadline(remainingTime(timeoutService.findWorkflowTimeout(workflowInstance.getWorkflowName())));
+        }
+
+        WorkflowInstance tracked = new WorkflowInstance(recoverWorkflowInstanceCommand);
+        tracked.setStatus(recovered.getStatus());
+        tracked.setStartTime(recovered.getStartTime());
+        for (TaskInstance taskInstance : recovered.getTasks().values()) {
+            if (taskInstance.isTerminated()) {
+                tracked.getTasks().put(taskInstance.getTaskInstanceName(), taskInstance);
+            }
+        }
+        sendEvent(new ReporterActor.ReportWorkflowRecoveredEvent(tracked));
+
+        if (recovered.getTasks().isEmpty()) {
+            // No task was started yet, so the decisions on the current status are taken again
+            // A paused instance waits to be resumed
+            if (recovered.getStatus() == SCHEDULED) {
+                sendEvent(new DeciderActor.WorkflowScheduledEvent(workflowInstance.getWorkflowName(), workflowInstance.getWorkflowInstanceName()));
+            } else if (recovered.getStatus() == RUNNING) {
+                sendEvent(new DeciderActor.WorkflowStartedEvent(workflowInstance.getWorkflowName(), workflowInstance.getWorkflowInstanceName()));
+            }
+        }
+        for (TaskInstance taskInstance : recovered.getTasks().values()) {
+            if (!taskInstance.isTerminated()) {
+                actorRegistry.tellTask(new TaskActor.StartTaskCommand(taskInstance.getTaskName(),
+                        workflowInstance.getWorkflowName(), workflowInstance.getWorkflowInstanceName()));
+            }
+        }
+    }
+
+    public void onReceiveTimeout(ReceiveTimeout receiveTimeout) {
+        if (nonNull(workflowInstance)) {
+            getContext().getParent().tell(new WorkflowActor.PassivationRequest(self().path().name()), self());
+        }
+    }
+
+    public void onPassivateWorkflowInstanceCommand(PassivateWorkflowInstanceCommand passivateWorkflowInstanceCommand) {
+        log().debug("onPassivateWorkflowInstanceCommand: " + self().path().name());
+        getContext().getParent().tell(new WorkflowActor.WorkflowInstancePassivated(
+                workflowInstance.getWorkflowName(), self().path().name(),
+                serialize(workflowInstance), deadline), self());
+        getContext().stop(self());
+    }
+
+    public void onActivateWorkflowInstanceCommand(ActivateWorkflowInstanceCommand activateWorkflowInstanceCommand) {
+        log().debug("onActivateWorkflowInstanceCommand: " + self().path().name());
+        this.workflowInstance = deserialize(self().path().name(), activateWorkflowInstanceCommand.state);
+        this.deadline = activateWorkflowInstanceCommand.deadline;
+    }
+
+    /**
+     * The instance actor only holds the name, status and start time of its instance, the tasks
+     * are tracked by the reporters.
+     */
+    private static byte[] serialize(WorkflowInstance workflowInstance) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream output = new DataOutputStream(bytes)) {
+            output.writeUTF(workflowInstance.getWorkflowName());
+            output.writeByte(workflowInstance.getStatus().ordinal());
+            output.writeLong(isNull(workflowInstance.getStartTime())
+                    ? -1 : workflowInstance.getStartTime().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static WorkflowInstance deserialize(String workflowInstanceName, byte[] state) {
+        try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(state))) {
+            WorkflowInstance workflowInstance = new WorkflowInstance();
+            workflowInstance.setWorkflowName(input.readUTF());
+            workflowInstance.setWorkflowInstanceName(workflowInstanceName);
+            workflowInstance.setStatus(WorkflowInstance.WorkflowStatus.values()[input.readByte()]);
+            long startTime = input.readLong();
+            if (startTime >= 0) {
+                workflowInstance.setStartTime(LocalDateTime.ofInstant(Instant.ofEpochMilli(startTime), ZoneId.systemDefault()));
+            }
+            return workflowInstance;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void scheduleDeadline(Duration timeout) {
+        String workflowName = workflowInstance.getWorkflowName();
+        String workflowInstanceName = workflowInstance.getWorkflowInstanceName();
+        // The command goes through the parent, which activates the instance if it was passivated
+        deadline = timeoutService.schedule(timeout, () -> actorRegistry.tellWorkflow(
+                new WorkflowActor.TimeOutWorkflowCommand(workflowName, workflowInstanceName)));
+    }
+
+    private void cancelDeadline() {
+        if (nonNull(deadline)) {
+            deadline.cancel();
+            deadline = null;
+        }
+    }
+
+    // The time left to a recovered instance, counted from its start
+    private Duration remainingTime(Duration timeout) {
+        if (isNull(timeout) || isNull(workflowInstance.getStartTime())) {
+            return timeout;
+        }
+        Duration elapsed = Duration.between(workflowInstance.getStartTime(), LocalDateTime.now());
+        Duration remaining = timeout.minus(elapsed);
+        return remaining.compareTo(MIN_REMAINING_TIME) < 0 ? MIN_REMAINING_TIME : remaining;
+    }
+
+    private void journal() {
+        journal.append(JournalRecord.workflow(workflowInstance.getStatus(), workflowInstance.getWorkflowName(),
+                workflowInstance.getWorkflowInstanceName()));
     }
 
     private void sendEvent(DeciderActor.WorkflowEvent workflowEvent) {
-        actorSystem.actorSelection(ActorPath.DECIDER_ACTOR).tell(workflowEvent, noSender());
+        actorRegistry.tellDecider(workflowEvent);
     }
 
     private void sendEvent(ReporterActor.ReportWorkflowEvent reportWorkflowEvent) {
-        actorSystem.actorSelection(ActorPath.REPORT_ACTOR).tell(reportWorkflowEvent, noSender());
+        actorRegistry.tellReporter(reportWorkflowEvent);
     }
 
     /**
@@ -163,6 +377,40 @@ public class WorkflowInstanceActor extends AbstractLoggingActor {
             super(workflowName, instanceName);
         }
     }
+
+    public static class TimeOutWorkflowInstanceCommand extends WorkflowInstanceCommand {
+        public TimeOutWorkflowInstanceCommand(String workflowName, String instanceName) {
+            super(workflowName, instanceName);
+        }
+    }
+
+    public static class RecoverWorkflowInstanceCommand extends WorkflowInstanceCommand {
+        @Getter
+        private WorkflowInstance workflowInstance;
+
+        public RecoverWorkflowInstanceCommand(WorkflowInstance workflowInstance) {
+            super(workflowInstance.getWorkflowName(), workflowInstance.getWorkflowInstanceName());
+            this.workflowInstance = workflowInstance;
+        }
+    }
+    /*******************************************************************************/
+
+
+    /**
+     * *****************************************************************************
+     * <p/>
+     * Passivation commands, sent by the parent workflow actor
+     * <p/>
+     * *****************************************************************************
+     */
+    public static class PassivateWorkflowInstanceCommand {
+    }
+
+    @AllArgsConstructor
+    public static class ActivateWorkflowInstanceCommand {
+        private final byte[] state;
+        private final Timeout deadline;
+    }
     /*******************************************************************************/
 
 
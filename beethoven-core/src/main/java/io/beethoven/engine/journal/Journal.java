@@ -0,0 +1,65 @@
+/**
+ * The MIT License
+ * Copyright © 2018 Davi Monteiro
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.beethoven.engine.journal;
+
+import java.util.function.Consumer;
+
+/**
+ * Append-only log of the state transitions of the workflow instances and of their tasks, replayed
+ * at startup to rebuild the instances that were running. Records are appended from actors and
+ * from the http client threads, so implementations must not block.
+ *
+ * @author Davi Monteiro
+ */
+public interface Journal {
+
+    Journal NONE = new Journal() {
+        @Override
+        public void append(JournalRecord record) {
+        }
+
+        @Override
+        public long replay(Consumer<JournalRecord> consumer) {
+            return 0;
+        }
+    };
+
+    void append(JournalRecord record);
+
+    /**
+     * Reads every record of the journal, in the order they were appended.
+     *
+     * @return the number of records read
+     */
+    long replay(Consumer<JournalRecord> consumer);
+
+    /**
+     * Waits until the records appended so far are durable.
+     */
+    default void flush() {
+    }
+
+    default void close() {
+    }
+
+}
@@ -0,0 +1,268 @@
+/**
+ * The MIT License
+ * Copyright © 2018 Davi Monteiro
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.beethoven.engine.journal;
+
+import io.beethoven.engine.TaskInstance;
+import io.beethoven.engine.WorkflowInstance.WorkflowStatus;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import lombok.NonNull;
+import lombok.Value;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.BiFunction;
+import java.util.zip.CRC32;
+
+import static java.util.Objects.isNull;
+
+/**
+ * Event appended to the {@link Journal}. A record is framed as its length, the CRC32 of its body
+ * and the body itself, so a torn write at the end of a segment is detected on replay. Strings are
+ * written as UTF-8 straight into the frame, so a large response is not copied on the heap when
+ * the frame is allocated off the heap.
+ *
+ * @author Davi Monteiro
+ */
+@Value
+public class JournalRecord {
+
+    static final int HEADER_SIZE = 8;
+
+    private Type type;
+    private long timestamp;
+    private String workflowName;
+    private String workflowInstanceName;
+    private String taskName;
+    private String taskInstanceName;
+    private String value;
+    private Map<String, String> inputs;
+
+    public static JournalRecord workflow(@NonNull WorkflowStatus status, @NonNull String workflowName,
+                                         @NonNull String workflowInstanceName) {
+        return new JournalRecord(Type.of(status), System.currentTimeMillis(), workflowName, workflowInstanceName,
+                null, null, null, Collections.emptyMap());
+    }
+
+    public static JournalRecord taskStarted(@NonNull TaskInstance taskInstance) {
+        return task(Type.TASK_STARTED, taskInstance, null);
+    }
+
+    public static JournalRecord taskCompleted(@NonNull TaskInstance taskInstance) {
+        return task(Type.TASK_COMPLETED, taskInstance, taskInstance.getResponse());
+    }
+
+    public static JournalRecord taskFailed(@NonNull TaskInstance taskInstance) {
+        return task(Type.TASK_FAILED, taskInstance, String.valueOf(taskInstance.getFailure()));
+    }
+
+    public static JournalRecord taskTimedOut(@NonNull TaskInstance taskInstance) {
+        return task(Type.TASK_TIMEDOUT, taskInstance, taskInstance.getFailure().getMessage());
+    }
+
+    public static JournalRecord inputs(@NonNull String workflowName, @NonNull Map<String, String> inputs) {
+        return new JournalRecord(Type.WORKFLOW_INPUTS, System.currentTimeMillis(), workflowName, null,
+                null, null, null, inputs);
+    }
+
+    private static JournalRecord task(Type type, TaskInstance taskInstance, String value) {
+        return new JournalRecord(type, System.currentTimeMillis(), taskInstance.getWorkflowName(),
+                taskInstance.getWorkflowInstanceName(), taskInstance.getTaskName(),
+                taskInstance.getTaskInstanceName(), value, Collections.emptyMap());
+    }
+
+    byte[] encode() {
+        ByteBuf frame = encode(Unpooled::buffer);
+        try {
+            return ByteBufUtil.getBytes(frame);
+        } finally {
+            frame.release();
+        }
+    }
+
+    /**
+     * Encodes the framed record in direct memory of the allocator, so appenders pay for the
+     * encoding instead of the journal writer. The caller releases the buffer.
+     */
+    ByteBuf encode(ByteBufAllocator allocator) {
+        return encode(allocator::directBuffer);
+    }
+
+    private ByteBuf encode(BiFunction<Integer, Integer, ByteBuf> allocate) {
+        String[] strings = new String[5 + inputs.size() * 2];
+        strings[0] = workflowName;
+        strings[1] = workflowInstanceName;
+        strings[2] = taskName;
+        strings[3] = taskInstanceName;
+        strings[4] = value;
+        int i = 5;
+        for (Map.Entry<String, String> input : inputs.entrySet()) {
+            strings[i++] = input.getKey();
+            strings[i++] = input.getValue();
+        }
+
+        int[] sizes = new int[strings.length];
+        int bodySize = 1 + 8 + 4;
+        for (i = 0; i < strings.length; i++) {
+            sizes[i] = isNull(strings[i]) ? -1 : ByteBufUtil.utf8Bytes(strings[i]);
+            bodySize += 4 + Math.max(sizes[i], 0);
+        }
+
+        ByteBuf buffer = allocate.apply(HEADER_SIZE + bodySize, HEADER_SIZE + bodySize);
+        try {
+            buffer.writerIndex(HEADER_SIZE);
+            buffer.writeByte(type.code);
+            buffer.writeLong(timestamp);
+            for (i = 0; i < 5; i++) {
+                put(buffer, strings[i], sizes[i]);
+            }
+            buffer.writeInt(inputs.size());
+            for (i = 5; i < strings.length; i++) {
+                put(buffer, strings[i], sizes[i]);
+            }
+
+            CRC32 crc = new CRC32();
+            crc.update(buffer.nioBuffer(HEADER_SIZE, bodySize));
+            buffer.setInt(0, bodySize);
+            buffer.setInt(4, (int) crc.getValue());
+            return buffer;
+        } catch (RuntimeException e) {
+            buffer.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Decodes the record framed at the position of the buffer and moves past it.
+     *
+     * @return the record, or null when the buffer holds no complete and intact record there
+     */
+    static JournalRecord decode(ByteBuffer buffer) {
+        if (buffer.remaining() < HEADER_SIZE) {
+            return null;
+        }
+        int start = buffer.position();
+        int bodySize = buffer.getInt(start);
+        if (bodySize <= 0 || bodySize > buffer.remaining() - HEADER_SIZE) {
+            return null;
+        }
+
+        ByteBuffer body = buffer.duplicate();
+        body.position(start + HEADER_SIZE).limit(start + HEADER_SIZE + bodySize);
+        CRC32 crc = new CRC32();
+        crc.update(body.slice());
+        if ((int) crc.getValue() != buffer.getInt(start + 4)) {
+            return null;
+        }
+
+        try {
+            Type type = Type.of(body.get());
+            long timestamp = body.getLong();
+            String workflowName = string(body);
+            String workflowInstanceName = string(body);
+            String taskName = string(body);
+            String taskInstanceName = string(body);
+            String value = string(body);
+            int size = body.getInt();
+            Map<String, String> inputs = new LinkedHashMap<>();
+            for (int i = 0; i < size; i++) {
+                inputs.put(string(body), string(body));
+            }
+            buffer.position(start + HEADER_SIZE + bodySize);
+            return new JournalRecord(type, timestamp, workflowName, workflowInstanceName,
+                    taskName, taskInstanceName, value, inputs);
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static void put(ByteBuf buffer, String string, int size) {
+        buffer.writeInt(size);
+        if (size > 0) {
+            ByteBufUtil.reserveAndWriteUtf8(buffer, string, size);
+        }
+    }
+
+    private static String string(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public enum Type {
+        WORKFLOW_SCHEDULED(1),
+        WORKFLOW_STARTED(2),
+        WORKFLOW_STOPPED(3),
+        WORKFLOW_COMPLETED(4),
+        WORKFLOW_CANCELLED(5),
+        WORKFLOW_FAILED(6),
+        WORKFLOW_INPUTS(7),
+        TASK_STARTED(8),
+        TASK_COMPLETED(9),
+        TASK_FAILED(10),
+        TASK_TIMEDOUT(11);
+
+        // Persisted codes, independent of the declaration order
+        private final byte code;
+
+        Type(int code) {
+            this.code = (byte) code;
+        }
+
+        static Type of(byte code) {
+            for (Type type : values()) {
+                if (type.code == code) {
+                    return type;
+                }
+            }
+            throw new IllegalArgumentException("Unknown journal record type: " + code);
+        }
+
+        static Type of(WorkflowStatus status) {
+            switch (status) {
+                case SCHEDULED:
+                    return WORKFLOW_SCHEDULED;
+                case RUNNING:
+                    return WORKFLOW_STARTED;
+                case PAUSED:
+                    return WORKFLOW_STOPPED;
+                case COMPLETED:
+                    return WORKFLOW_COMPLETED;
+                case CANCELLED:
+                    return WORKFLOW_CANCELLED;
+                default:
+                    return WORKFLOW_FAILED;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,202 @@
+/**
+ * The MIT License
+ * Copyright © 2018 Davi Monteiro
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.beethoven.engine.journal;
+
+import io.beethoven.engine.TaskInstance;
+import io.beethoven.engine.WorkflowInstance;
+import io.beethoven.engine.WorkflowInstance.WorkflowStatus;
+import lombok.Getter;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+/**
+ * State of the workflow instances rebuilt from the journal. Only the scheduled, running and
+ * paused instances are kept, since a paused instance may still be resumed: an instance is
+ * forgotten, with its inputs, as soon as it terminates.
+ * The state can be written back as the shortest sequence of records that rebuilds it, which is
+ * what a journal snapshot holds.
+ *
+ * @author Davi Monteiro
+ */
+public class JournalState {
+
+    @Getter
+    private final Map<String, WorkflowInstance> instances = new LinkedHashMap<>();
+
+    @Getter
+    private final Map<String, Map<String, String>> globalInputs = new HashMap<>();
+
+    private final Map<String, Map<String, String>> localInputs = new HashMap<>();
+
+    public void apply(JournalRecord record) {
+        switch (record.getType()) {
+            case WORKFLOW_SCHEDULED:
+                WorkflowInstance workflowInstance = new WorkflowInstance();
+                workflowInstance.setWorkflowName(record.getWorkflowName());
+                workflowInstance.setWorkflowInstanceName(record.getWorkflowInstanceName());
+                workflowInstance.setStatus(WorkflowStatus.SCHEDULED);
+                instances.put(record.getWorkflowInstanceName(), workflowInstance);
+                break;
+            case WORKFLOW_STARTED:
+                instance(record).ifPresent(instance -> {
+                    instance.setStatus(WorkflowStatus.RUNNING);
+                    instance.setStartTime(time(record));
+                });
+                break;
+            case WORKFLOW_STOPPED:
+                instance(record).ifPresent(instance -> instance.setStatus(WorkflowStatus.PAUSED));
+                break;
+            case WORKFLOW_COMPLETED:
+            case WORKFLOW_CANCELLED:
+            case WORKFLOW_FAILED:
+                instances.remove(record.getWorkflowInstanceName());
+                localInputs.remove(record.getWorkflowInstanceName());
+                break;
+            case WORKFLOW_INPUTS:
+                globalInputs.put(record.getWorkflowName(), record.getInputs());
+                break;
+            case TASK_STARTED:
+                instance(record).ifPresent(instance -> {
+                    TaskInstance taskInstance = new TaskInstance();
+                    taskInstance.setWorkflowName(record.getWorkflowName());
+                    taskInstance.setWorkflowInstanceName(record.getWorkflowInstanceName());
+                    taskInstance.setTaskName(record.getTaskName());
+                    taskInstance.setTaskInstanceName(record.getTaskInstanceName());
+                    taskInstance.setStartTime(time(record));
+                    instance.getTasks().put(taskInstance.getTaskInstanceName(), taskInstance);
+                });
+                break;
+            case TASK_COMPLETED:
+                task(record).ifPresent(taskInstance -> {
+                    taskInstance.setEndTime(time(record));
+                    taskInstance.setResponse(record.getValue());
+                    localInputs.computeIfAbsent(record.getWorkflowInstanceName(), name -> new HashMap<>())
+                            .put("${" + record.getTaskName() + ".response}", record.getValue());
+                });
+                break;
+            case TASK_FAILED:
+                task(record).ifPresent(taskInstance -> {
+                    taskInstance.setEndTime(time(record));
+                    // Only the description of the failure is journaled
+                    taskInstance.setFailure(new IllegalStateException(record.getValue()));
+                });
+                break;
+            case TASK_TIMEDOUT:
+                task(record).ifPresent(taskInstance -> {
+                    taskInstance.setEndTime(time(record));
+                    taskInstance.setFailure(new TimeoutException(record.getValue()));
+                });
+                break;
+        }
+    }
+
+    public Map<String, String> getLocalInputs(String workflowInstanceName) {
+        Map<String, String> inputs = localInputs.get(workflowInstanceName);
+        return nonNull(inputs) ? inputs : new HashMap<>();
+    }
+
+    /**
+     * Passes the records that rebuild this state to the consumer.
+     */
+    public void forEachRecord(Consumer<JournalRecord> consumer) {
+        globalInputs.forEach((workflowName, inputs) -> consumer.accept(new JournalRecord(
+                JournalRecord.Type.WORKFLOW_INPUTS, 0, workflowName, null, null, null, null, inputs)));
+
+        for (WorkflowInstance workflowInstance : instances.values()) {
+            consumer.accept(record(JournalRecord.Type.WORKFLOW_SCHEDULED, workflowInstance.getStartTime(),
+                    workflowInstance, null, null));
+            if (nonNull(workflowInstance.getStartTime())) {
+                consumer.accept(record(JournalRecord.Type.WORKFLOW_STARTED, workflowInstance.getStartTime(),
+                        workflowInstance, null, null));
+            }
+            if (workflowInstance.getStatus() == WorkflowStatus.PAUSED) {
+                consumer.accept(record(JournalRecord.Type.WORKFLOW_STOPPED, workflowInstance.getStartTime(),
+                        workflowInstance, null, null));
+            }
+
+            List<TaskInstance> tasks = new ArrayList<>(workflowInstance.getTasks().values());
+            for (TaskInstance taskInstance : tasks) {
+                consumer.accept(record(JournalRecord.Type.TASK_STARTED, taskInstance.getStartTime(),
+                        workflowInstance, taskInstance, null));
+            }
+            // The latest response of a task is its input, so the completions keep their order
+            tasks.removeIf(taskInstance -> !taskInstance.isTerminated());
+            Collections.sort(tasks, Comparator.comparing(TaskInstance::getEndTime));
+            for (TaskInstance taskInstance : tasks) {
+                if (taskInstance.isSuccessfullyExecuted()) {
+                    consumer.accept(record(JournalRecord.Type.TASK_COMPLETED, taskInstance.getEndTime(),
+                            workflowInstance, taskInstance, taskInstance.getResponse()));
+                } else if (taskInstance.getFailure() instanceof TimeoutException) {
+                    consumer.accept(record(JournalRecord.Type.TASK_TIMEDOUT, taskInstance.getEndTime(),
+                            workflowInstance, taskInstance, taskInstance.getFailure().getMessage()));
+                } else {
+                    consumer.accept(record(JournalRecord.Type.TASK_FAILED, taskInstance.getEndTime(),
+                            workflowInstance, taskInstance, taskInstance.getFailure().getMessage()));
+                }
+            }
+        }
+    }
+
+    private static JournalRecord record(JournalRecord.Type type, LocalDateTime time, WorkflowInstance workflowInstance,
+                                        TaskInstance taskInstance, String value) {
+        return new JournalRecord(type,
+                isNull(time) ? 0 : time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli(),
+                workflowInstance.getWorkflowName(),
+                workflowInstance.getWorkflowInstanceName(),
+                isNull(taskInstance) ? null : taskInstance.getTaskName(),
+                isNull(taskInstance) ? null : taskInstance.getTaskInstanceName(),
+                value,
+                Collections.emptyMap());
+    }
+
+    private Optional<WorkflowInstance> instance(JournalRecord record) {
+        return Optional.ofNullable(instances.get(record.getWorkflowInstanceName()));
+    }
+
+    private Optional<TaskInstance> task(JournalRecord record) {
+        WorkflowInstance workflowInstance = instances.get(record.getWorkflowInstanceName());
+        return isNull(workflowInstance)
+                ? Optional.empty()
+                : Optional.ofNullable(workflowInstance.getTasks().get(record.getTaskInstanceName()));
+    }
+
+    private static LocalDateTime time(JournalRecord record) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(record.getTimestamp()), ZoneId.systemDefault());
+    }
+
+}
@@ -0,0 +1,459 @@
+/**
+ * The MIT License
+ * Copyright © 2018 Davi Monteiro
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.beethoven.engine.journal;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static java.util.Objects.nonNull;
+
+/**
+ * Journal stored in a directory of fixed-size, memory-mapped segment files. Appenders only encode
+ * their record, in pooled direct memory, and queue it. A single writer thread copies the queued records into the current
+ * segment and forces it to disk once per group commit window, so one fsync covers all the records
+ * appended during that window. A record is therefore durable at most one window after it was
+ * appended; since it is written to the mapped page cache first, a crash of the JVM alone loses
+ * only the records still queued.
+ * <p>
+ * When a record does not fit in the current segment the writer moves on to the next one, and a
+ * record larger than a segment is written alone in a dedicated segment of its own size. Each
+ * segment ends with a zero length marker, and on startup the last segment is scanned up to its
+ * first missing or corrupted record, where appending resumes.
+ * <p>
+ * Periodically, a snapshot thread seals the current segment, folds the previous snapshot and the
+ * sealed segments into a {@link JournalState} and writes that state as a new snapshot, after
+ * which the sealed segments are deleted. A replay reads the latest snapshot and then only the
+ * segments written after it.
+ *
+ * @author Davi Monteiro
+ */
+@Slf4j
+public class MappedFileJournal implements Journal {
+
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".journal";
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".snapshot";
+    private static final int SNAPSHOT_MAGIC = 0x4245534e;
+    private static final int SNAPSHOT_HEADER_SIZE = 4 + 8 + 8;
+    private static final int END_MARKER_SIZE = 4;
+    private static final long FLUSH_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+    private static final int MAX_PENDING_RECORDS = 64 * 1024;
+
+    private final Path directory;
+    private final int segmentSize;
+    private final long groupCommitNanos;
+    private final Queue<ByteBuf> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicLong appended = new AtomicLong();
+    private final Object snapshotLock = new Object();
+    private final Thread writer;
+    private final ScheduledExecutorService snapshotter;
+    private volatile long written;
+    private volatile long forced;
+    private volatile boolean sealRequested;
+    private volatile boolean running = true;
+
+    // Written by the writer thread once it is started
+    private volatile long segmentIndex;
+    private FileChannel channel;
+    private MappedByteBuffer segment;
+
+    public MappedFileJournal(@NonNull Path directory, int segmentSize, @NonNull Duration groupCommitWindow) {
+        this(directory, segmentSize, groupCommitWindow, null);
+    }
+
+    /**
+     * @param snapshotInterval interval between two snapshots, or null to never take snapshots
+     */
+    public MappedFileJournal(@NonNull Path directory, int segmentSize, @NonNull Duration groupCommitWindow,
+                             Duration snapshotInterval) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.groupCommitNanos = Math.max(FLUSH_PARK_NANOS, groupCommitWindow.toNanos());
+        try {
+            Files.createDirectories(directory);
+            List<Long> segments = list(SEGMENT_PREFIX, SEGMENT_SUFFIX);
+            if (segments.isEmpty()) {
+                openSegment(latestSnapshot(), segmentSize);
+            } else {
+                // A dedicated segment only holds its record, so appending resumes in the next one
+                long last = segments.get(segments.size() - 1);
+                openSegment(Files.size(segmentPath(last)) > segmentSize ? last + 1 : last, segmentSize);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open the journal in " + directory, e);
+        }
+        this.writer = new Thread(this::write, "beethoven-journal-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+
+        if (nonNull(snapshotInterval) && !snapshotInterval.isZero() && !snapshotInterval.isNegative()) {
+            snapshotter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "beethoven-journal-snapshot");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long interval = snapshotInterval.toMillis();
+            snapshotter.scheduleWithFixedDelay(this::snapshotQuietly, interval, interval, TimeUnit.MILLISECONDS);
+        } else {
+            snapshotter = null;
+        }
+    }
+
+    @Override
+    public void append(JournalRecord record) {
+        if (!writer.isAlive()) {
+            // Logged when the writer failed
+            return;
+        }
+        ByteBuf frame = record.encode(PooledByteBufAllocator.DEFAULT);
+        // Appenders are slowed down rather than letting the queue grow when the disk falls behind
+        while (appended.get() - written > MAX_PENDING_RECORDS && writer.isAlive()) {
+            LockSupport.parkNanos(this, FLUSH_PARK_NANOS);
+        }
+        pending.offer(frame);
+        appended.incrementAndGet();
+    }
+
+    @Override
+    public long replay(Consumer<JournalRecord> consumer) {
+        synchronized (snapshotLock) {
+            try {
+                long snapshotIndex = latestSnapshot();
+                long count = readSnapshot(snapshotIndex, consumer);
+                return count + readSegments(snapshotIndex, Long.MAX_VALUE, consumer);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to replay the journal in " + directory, e);
+            }
+        }
+    }
+
+    /**
+     * Takes a snapshot of the records appended so far and deletes the segments it covers.
+     *
+     * @return the number of records in the snapshot
+     */
+    public long snapshot() throws IOException {
+        synchronized (snapshotLock) {
+            long previousIndex = latestSnapshot();
+            long snapshotIndex = seal();
+            if (snapshotIndex <= previousIndex) {
+                return 0;
+            }
+
+            JournalState state = new JournalState();
+            readSnapshot(previousIndex, state::apply);
+            readSegments(previousIndex, snapshotIndex, state::apply);
+            long count = writeSnapshot(snapshotIndex, state);
+
+            for (long index : list(SEGMENT_PREFIX, SEGMENT_SUFFIX)) {
+                if (index < snapshotIndex) {
+                    Files.deleteIfExists(segmentPath(index));
+                }
+            }
+            for (long index : list(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX)) {
+                if (index < snapshotIndex) {
+                    Files.deleteIfExists(snapshotPath(index));
+                }
+            }
+            return count;
+        }
+    }
+
+    @Override
+    public void flush() {
+        long target = appended.get();
+        while (forced < target && writer.isAlive()) {
+            LockSupport.unpark(writer);
+            LockSupport.parkNanos(this, FLUSH_PARK_NANOS);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (nonNull(snapshotter)) {
+            snapshotter.shutdownNow();
+        }
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void write() {
+        try {
+            while (true) {
+                int count = drain();
+                if (count > 0) {
+                    segment.force();
+                    forced += count;
+                }
+                if (sealRequested) {
+                    if (segment.position() > 0) {
+                        nextSegment();
+                    }
+                    sealRequested = false;
+                }
+                if (!running && pending.isEmpty()) {
+                    break;
+                }
+                LockSupport.parkNanos(this, groupCommitNanos);
+            }
+        } catch (IOException | RuntimeException e) {
+            log.error("The journal writer failed, records are no longer journaled", e);
+        } finally {
+            closeSegment();
+            ByteBuf frame;
+            while ((frame = pending.poll()) != null) {
+                frame.release();
+            }
+        }
+    }
+
+    private int drain() throws IOException {
+        int count = 0;
+        ByteBuf frame;
+        while ((frame = pending.poll()) != null) {
+            try {
+                int size = frame.readableBytes();
+                if (size + END_MARKER_SIZE > segmentSize) {
+                    writeDedicatedSegment(frame);
+                } else {
+                    if (segment.remaining() < size + END_MARKER_SIZE) {
+                        nextSegment();
+                    }
+                    segment.put(frame.nioBuffer());
+                }
+            } finally {
+                frame.release();
+            }
+            written++;
+            count++;
+        }
+        if (count > 0) {
+            // Overwrites whatever a torn write may have left after the last record
+            segment.putInt(segment.position(), 0);
+        }
+        return count;
+    }
+
+    /**
+     * Has the writer move on to a new segment, so the previous ones are no longer written.
+     *
+     * @return the index of the first segment that is not sealed
+     */
+    private long seal() {
+        sealRequested = true;
+        while (sealRequested && writer.isAlive()) {
+            LockSupport.unpark(writer);
+            LockSupport.parkNanos(this, FLUSH_PARK_NANOS);
+        }
+        return segmentIndex;
+    }
+
+    private void nextSegment() throws IOException {
+        segment.force();
+        closeSegment();
+        openSegment(segmentIndex + 1, segmentSize);
+    }
+
+    /**
+     * Writes a record larger than a segment alone in a segment sized for it, and then moves on to
+     * a regular segment. The current segment is reused when nothing was written to it yet.
+     */
+    private void writeDedicatedSegment(ByteBuf frame) throws IOException {
+        long index = segment.position() > 0 ? segmentIndex + 1 : segmentIndex;
+        segment.force();
+        closeSegment();
+        openSegment(index, frame.readableBytes() + END_MARKER_SIZE);
+        segment.put(frame.nioBuffer());
+        segment.putInt(segment.position(), 0);
+        segment.force();
+        closeSegment();
+        openSegment(index + 1, segmentSize);
+    }
+
+    private void openSegment(long index, int size) throws IOException {
+        channel = FileChannel.open(segmentPath(index),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        segmentIndex = index;
+
+        // Appending resumes after the last intact record
+        while (JournalRecord.decode(segment) != null) {
+            // Skips the records already written
+        }
+    }
+
+    private void closeSegment() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            log.warn("Failed to close the journal segment {}", segmentPath(segmentIndex), e);
+        }
+    }
+
+    private long readSegments(long fromIndex, long toIndex, Consumer<JournalRecord> consumer) throws IOException {
+        long count = 0;
+        for (long index : list(SEGMENT_PREFIX, SEGMENT_SUFFIX)) {
+            if (index >= fromIndex && index < toIndex) {
+                try (FileChannel segmentChannel = FileChannel.open(segmentPath(index), StandardOpenOption.READ)) {
+                    count += read(segmentChannel, 0, consumer);
+                }
+            }
+        }
+        return count;
+    }
+
+    private long readSnapshot(long index, Consumer<JournalRecord> consumer) throws IOException {
+        Path path = snapshotPath(index);
+        if (!Files.exists(path)) {
+            return 0;
+        }
+        try (FileChannel snapshotChannel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(SNAPSHOT_HEADER_SIZE);
+            snapshotChannel.read(header, 0);
+            header.flip();
+            if (header.remaining() < SNAPSHOT_HEADER_SIZE || header.getInt() != SNAPSHOT_MAGIC || header.getLong() != index) {
+                throw new IOException("Invalid journal snapshot " + path);
+            }
+            long expected = header.getLong();
+            long count = read(snapshotChannel, SNAPSHOT_HEADER_SIZE, consumer);
+            if (count != expected) {
+                throw new IOException("The journal snapshot " + path + " holds " + count + " of its "
+                        + expected + " records");
+            }
+            return count;
+        }
+    }
+
+    private static long read(FileChannel fileChannel, long position, Consumer<JournalRecord> consumer)
+            throws IOException {
+        MappedByteBuffer buffer = fileChannel.map(FileChannel.MapMode.READ_ONLY, position,
+                fileChannel.size() - position);
+        long count = 0;
+        JournalRecord record;
+        while ((record = JournalRecord.decode(buffer)) != null) {
+            consumer.accept(record);
+            count++;
+        }
+        return count;
+    }
+
+    private long writeSnapshot(long index, JournalState state) throws IOException {
+        // Written aside and then renamed, so a snapshot is either complete or missing
+        Path temporary = directory.resolve(SNAPSHOT_PREFIX + "temporary");
+        long[] count = {0};
+        try (FileChannel snapshotChannel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            OutputStream output = new BufferedOutputStream(Channels.newOutputStream(snapshotChannel), 64 * 1024);
+            output.write(new byte[SNAPSHOT_HEADER_SIZE]);
+            state.forEachRecord(record -> {
+                ByteBuf frame = record.encode(PooledByteBufAllocator.DEFAULT);
+                try {
+                    frame.readBytes(output, frame.readableBytes());
+                    count[0]++;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                } finally {
+                    frame.release();
+                }
+            });
+            output.flush();
+
+            ByteBuffer header = ByteBuffer.allocate(SNAPSHOT_HEADER_SIZE);
+            header.putInt(SNAPSHOT_MAGIC).putLong(index).putLong(count[0]).flip();
+            snapshotChannel.write(header, 0);
+            snapshotChannel.force(true);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        Files.move(temporary, snapshotPath(index), StandardCopyOption.ATOMIC_MOVE);
+        return count[0];
+    }
+
+    private void snapshotQuietly() {
+        try {
+            long start = System.nanoTime();
+            long count = snapshot();
+            log.debug("Journal snapshot of {} records taken in {} ms", count,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (IOException | RuntimeException e) {
+            log.error("Failed to take a journal snapshot", e);
+        }
+    }
+
+    private long latestSnapshot() throws IOException {
+        List<Long> snapshots = list(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+        return snapshots.isEmpty() ? 0 : snapshots.get(snapshots.size() - 1);
+    }
+
+    private List<Long> list(String prefix, String suffix) throws IOException {
+        try (Stream<Path> paths = Files.list(directory)) {
+            return paths.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith(prefix) && name.endsWith(suffix))
+                    .map(name -> Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length())))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private Path segmentPath(long index) {
+        return directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, index, SEGMENT_SUFFIX));
+    }
+
+    private Path snapshotPath(long index) {
+        return directory.resolve(String.format("%s%020d%s", SNAPSHOT_PREFIX, index, SNAPSHOT_SUFFIX));
+    }
+
+}
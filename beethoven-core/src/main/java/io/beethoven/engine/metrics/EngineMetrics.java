@@ -0,0 +1,449 @@
+/**
+ * The MIT License
+ * Copyright © 2018 Davi Monteiro
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.beethoven.engine.metrics;
+
+import io.beethoven.engine.WorkflowInstance.WorkflowStatus;
+import io.beethoven.engine.core.support.MonitoredMailbox;
+import lombok.Value;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+/**
+ * Live counters and latency histograms of the engine, per workflow and per task. Recording is
+ * wait-free and does not allocate once a workflow and its tasks have been seen: counters are
+ * {@link LongAdder}s and latencies are recorded in microseconds by HdrHistogram {@link Recorder}s.
+ * Snapshots accumulate the recorded intervals, so they report every value since startup.
+ *
+ * @author Davi Monteiro
+ */
+public class EngineMetrics {
+
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.HOURS.toMicros(1);
+    private static final int SIGNIFICANT_DIGITS = 3;
+    private static final long RECENT_WINDOW_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    private final Map<String, WorkflowMetrics> workflows = new ConcurrentHashMap<>();
+    private final LongAdder inFlightHttpCalls = new LongAdder();
+    private final LongAdder instanceActors = new LongAdder();
+    private final LongAdder passivatedInstances = new LongAdder();
+    private volatile RecoverySnapshot recovery = new RecoverySnapshot(0, 0, 0);
+
+    public void workflowScheduled(String workflowName) {
+        workflow(workflowName).scheduled.increment();
+    }
+
+    /**
+     * @param previousStatus the status of the instance before it started, or was resumed
+     */
+    public void workflowStarted(String workflowName, WorkflowStatus previousStatus) {
+        WorkflowMetrics metrics = workflow(workflowName);
+        if (previousStatus == WorkflowStatus.PAUSED) {
+            metrics.paused.decrement();
+        }
+        metrics.running.increment();
+    }
+
+    /**
+     * A paused instance has not terminated, it is counted until it is resumed or terminates.
+     *
+     * @param previousStatus the status of the instance before it was paused
+     */
+    public void workflowPaused(String workflowName, WorkflowStatus previousStatus) {
+        WorkflowMetrics metrics = workflow(workflowName);
+        if (previousStatus == WorkflowStatus.RUNNING) {
+            metrics.running.decrement();
+        }
+        if (previousStatus != WorkflowStatus.PAUSED) {
+            metrics.paused.increment();
+        }
+    }
+
+    /**
+     * @param previousStatus the status of the instance before it terminated
+     * @param durationNanos  the time elapsed since the instance was scheduled
+     */
+    public void workflowTerminated(String workflowName, WorkflowStatus previousStatus, WorkflowStatus status,
+                                   long durationNanos) {
+        WorkflowMetrics metrics = workflow(workflowName);
+        if (previousStatus == WorkflowStatus.RUNNING) {
+            metrics.running.decrement();
+        } else if (previousStatus == WorkflowStatus.PAUSED) {
+            metrics.paused.decrement();
+        }
+        switch (status) {
+            case COMPLETED:
+                metrics.completed.increment();
+                break;
+            case FAILED:
+                metrics.failed.increment();
+                break;
+            case CANCELLED:
+                metrics.cancelled.increment();
+                break;
+            default:
+                break;
+        }
+        metrics.duration.record(durationNanos);
+    }
+
+    public void httpCallStarted() {
+        inFlightHttpCalls.increment();
+    }
+
+    public void taskCompleted(String workflowName, String taskName, long latencyNanos) {
+        inFlightHttpCalls.decrement();
+        TaskMetrics metrics = workflow(workflowName).task(taskName);
+        metrics.calls.increment();
+        metrics.latency.record(latencyNanos);
+    }
+
+    public void taskFailed(String workflowName, String taskName, long latencyNanos) {
+        inFlightHttpCalls.decrement();
+        TaskMetrics metrics = workflow(workflowName).task(taskName);
+        metrics.calls.increment();
+        metrics.errors.increment();
+        metrics.latency.record(latencyNanos);
+    }
+
+    public void taskTimedOut(String workflowName, String taskName, long latencyNanos) {
+        inFlightHttpCalls.decrement();
+        TaskMetrics metrics = workflow(workflowName).task(taskName);
+        metrics.calls.increment();
+        metrics.errors.increment();
+        metrics.timeouts.increment();
+        metrics.latency.record(latencyNanos);
+    }
+
+    public void attemptCompleted(String workflowName, String taskName, long latencyNanos) {
+        TaskMetrics metrics = workflow(workflowName).task(taskName);
+        metrics.attempts.increment();
+        metrics.attemptLatency.record(latencyNanos);
+    }
+
+    public void retryScheduled(String workflowName, String taskName) {
+        workflow(workflowName).task(taskName).retries.increment();
+    }
+
+    public void retryRejected(String workflowName, String taskName) {
+        workflow(workflowName).task(taskName).rejectedRetries.increment();
+    }
+
+    public void hedgeSent(String workflowName, String taskName) {
+        workflow(workflowName).task(taskName).hedges.increment();
+    }
+
+    public void hedgeWon(String workflowName, String taskName) {
+        workflow(workflowName).task(taskName).hedgeWins.increment();
+    }
+
+    /**
+     * @return the latency, in nanoseconds, of the recent attempts of the task at the percentile,
+     * or -1 while fewer attempts were observed. It is refreshed at most once a second.
+     */
+    public long attemptLatencyPercentile(String workflowName, String taskName, double percentile, long minSamples) {
+        return workflow(workflowName).task(taskName).attemptLatency.percentile(percentile, minSamples);
+    }
+
+    public void instanceActorStarted() {
+        instanceActors.increment();
+    }
+
+    public void instanceActorStopped() {
+        instanceActors.decrement();
+    }
+
+    public void instancePassivated() {
+        passivatedInstances.increment();
+    }
+
+    public void instanceActivated() {
+        passivatedInstances.decrement();
+    }
+
+    public void recovered(int instances, long journalRecords, long durationNanos) {
+        recovery = new RecoverySnapshot(instances, journalRecords, TimeUnit.NANOSECONDS.toMillis(durationNanos));
+    }
+
+    public RecoverySnapshot recovery() {
+        return recovery;
+    }
+
+    public long inFlightHttpCalls() {
+        return inFlightHttpCalls.sum();
+    }
+
+    public Map<String, WorkflowSnapshot> snapshot() {
+        Map<String, WorkflowSnapshot> snapshots = new TreeMap<>();
+        workflows.forEach((workflowName, metrics) -> snapshots.put(workflowName, metrics.snapshot(workflowName)));
+        return snapshots;
+    }
+
+    public EngineSnapshot engineSnapshot() {
+        return new EngineSnapshot(snapshot(), MonitoredMailbox.queueDepths(), inFlightHttpCalls(),
+                instanceActors.sum(), passivatedInstances.sum(), recovery);
+    }
+
+    public WorkflowSnapshot snapshot(String workflowName) {
+        WorkflowMetrics metrics = workflows.get(workflowName);
+        return nonNull(metrics) ? metrics.snapshot(workflowName) : null;
+    }
+
+    private WorkflowMetrics workflow(String workflowName) {
+        WorkflowMetrics metrics = workflows.get(workflowName);
+        return nonNull(metrics) ? metrics : workflows.computeIfAbsent(workflowName, name -> new WorkflowMetrics());
+    }
+
+    private static class WorkflowMetrics {
+        private final LongAdder scheduled = new LongAdder();
+        private final LongAdder running = new LongAdder();
+        private final LongAdder completed = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        private final LongAdder cancelled = new LongAdder();
+        private final LongAdder paused = new LongAdder();
+        private final LatencyRecorder duration = new LatencyRecorder();
+        private final Map<String, TaskMetrics> tasks = new ConcurrentHashMap<>();
+
+        private TaskMetrics task(String taskName) {
+            TaskMetrics metrics = tasks.get(taskName);
+            return nonNull(metrics) ? metrics : tasks.computeIfAbsent(taskName, name -> new TaskMetrics());
+        }
+
+        private WorkflowSnapshot snapshot(String workflowName) {
+            Map<String, TaskSnapshot> taskSnapshots = new TreeMap<>();
+            tasks.forEach((taskName, metrics) -> taskSnapshots.put(taskName, metrics.snapshot()));
+            return new WorkflowSnapshot(workflowName, scheduled.sum(), running.sum(), completed.sum(),
+                    failed.sum(), cancelled.sum(), paused.sum(), duration.snapshot(), taskSnapshots);
+        }
+    }
+
+    private static class TaskMetrics {
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder timeouts = new LongAdder();
+        private final LongAdder attempts = new LongAdder();
+        private final LongAdder retries = new LongAdder();
+        private final LongAdder rejectedRetries = new LongAdder();
+        private final LongAdder hedges = new LongAdder();
+        private final LongAdder hedgeWins = new LongAdder();
+        private final LatencyRecorder latency = new LatencyRecorder();
+        private final LatencyRecorder attemptLatency = new LatencyRecorder();
+
+        private TaskSnapshot snapshot() {
+            long callCount = calls.sum();
+            long errorCount = errors.sum();
+            double errorRate = callCount > 0 ? (double) errorCount / callCount : 0;
+            long attemptCount = attempts.sum();
+            long hedgeCount = hedges.sum();
+            long hedgeWinCount = hedgeWins.sum();
+            double hedgeRate = attemptCount > 0 ? (double) hedgeCount / attemptCount : 0;
+            double hedgeWinRate = hedgeCount > 0 ? (double) hedgeWinCount / hedgeCount : 0;
+            return new TaskSnapshot(callCount, errorCount, timeouts.sum(), errorRate, latency.snapshot(),
+                    attemptCount, retries.sum(), rejectedRetries.sum(), attemptLatency.snapshot(),
+                    hedgeCount, hedgeRate, hedgeWinCount, hedgeWinRate);
+        }
+    }
+
+    private static class LatencyRecorder {
+        private final Recorder recorder = new Recorder(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS);
+        private final Histogram accumulated = new Histogram(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS);
+        private Histogram interval;
+        // The latencies of the current and previous windows, once a percentile is asked for
+        private Histogram recent;
+        private Histogram previous;
+        private Histogram window;
+        private long recentStart;
+        private volatile Percentile lastPercentile;
+
+        private void record(long nanos) {
+            long micros = Math.min(Math.max(TimeUnit.NANOSECONDS.toMicros(nanos), 0), HIGHEST_TRACKABLE_MICROS);
+            recorder.recordValue(micros);
+        }
+
+        private synchronized LatencySnapshot snapshot() {
+            accumulate();
+            return new LatencySnapshot(
+                    accumulated.getTotalCount(),
+                    toMillis(accumulated.getMean()),
+                    toMillis(accumulated.getValueAtPercentile(50)),
+                    toMillis(accumulated.getValueAtPercentile(99)),
+                    toMillis(accumulated.getValueAtPercentile(99.9)),
+                    toMillis(accumulated.getMaxValue()));
+        }
+
+        private long percentile(double percentile, long minSamples) {
+            Percentile last = lastPercentile;
+            if (isNull(last) || !last.isFresh(percentile)) {
+                last = computePercentile(percentile);
+            }
+            return last.count >= minSamples ? last.nanos : -1;
+        }
+
+        private synchronized Percentile computePercentile(double percentile) {
+            Percentile last = lastPercentile;
+            if (nonNull(last) && last.isFresh(percentile)) {
+                return last;
+            }
+            long now = System.nanoTime();
+            if (isNull(recent)) {
+                recent = new Histogram(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS);
+                previous = new Histogram(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS);
+                window = new Histogram(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS);
+                recentStart = now;
+            }
+            accumulate();
+            if (now - recentStart >= RECENT_WINDOW_NANOS) {
+                Histogram reused = previous;
+                previous = recent;
+                recent = reused;
+                recent.reset();
+                recentStart = now;
+            }
+            window.reset();
+            window.add(previous);
+            window.add(recent);
+            last = new Percentile(percentile,
+                    TimeUnit.MICROSECONDS.toNanos(window.getValueAtPercentile(percentile)),
+                    window.getTotalCount(),
+                    now);
+            lastPercentile = last;
+            return last;
+        }
+
+        private void accumulate() {
+            interval = recorder.getIntervalHistogram(interval);
+            accumulated.add(interval);
+            if (nonNull(recent)) {
+                recent.add(interval);
+            }
+        }
+
+        private static double toMillis(double micros) {
+            return micros / 1000;
+        }
+    }
+
+    private static class Percentile {
+        private static final long REFRESH_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+        private final double percentile;
+        private final long nanos;
+        private final long count;
+        private final long computedAt;
+
+        private Percentile(double percentile, long nanos, long count, long computedAt) {
+            this.percentile = percentile;
+            this.nanos = nanos;
+            this.count = count;
+            this.computedAt = computedAt;
+        }
+
+        private boolean isFresh(double percentile) {
+            return this.percentile == percentile && System.nanoTime() - computedAt < REFRESH_NANOS;
+        }
+    }
+
+    /**
+     * ****************************************************************************
+     * <p/>
+     * Snapshots
+     * <p/>
+     * *****************************************************************************
+     */
+    @Value
+    public static class EngineSnapshot {
+        private Map<String, WorkflowSnapshot> workflows;
+        private Map<String, Integer> mailboxes;
+        private long inFlightHttpCalls;
+        private long instanceActors;
+        private long passivatedInstances;
+        private RecoverySnapshot recovery;
+    }
+
+    @Value
+    public static class WorkflowSnapshot {
+        private String workflowName;
+        private long scheduled;
+        private long running;
+        private long completed;
+        private long failed;
+        private long cancelled;
+        private long paused;
+        private LatencySnapshot duration;
+        private Map<String, TaskSnapshot> tasks;
+    }
+
+    /**
+     * The calls, errors and latency count each task once, whatever its number of attempts. A hedge
+     * is a second request sent for a slow attempt; it wins when it responds first.
+     */
+    @Value
+    public static class TaskSnapshot {
+        private long calls;
+        private long errors;
+        private long timeouts;
+        private double errorRate;
+        private LatencySnapshot latency;
+        private long attempts;
+        private long retries;
+        private long rejectedRetries;
+        private LatencySnapshot attemptLatency;
+        private long hedges;
+        private double hedgeRate;
+        private long hedgeWins;
+        private double hedgeWinRate;
+    }
+
+    /**
+     * The last recovery of the workflow instances from the journal.
+     */
+    @Value
+    public static class RecoverySnapshot {
+        private int instances;
+        private long journalRecords;
+        private long durationMillis;
+    }
+
+    /**
+     * Latencies in milliseconds.
+     */
+    @Value
+    public static class LatencySnapshot {
+        private long count;
+        private double mean;
+        private double p50;
+        private double p99;
+        private double p999;
+        private double max;
+    }
+    /*******************************************************************************/
+
+}
@@ -0,0 +1,169 @@
+/**
+ * The MIT License
+ * Copyright © 2018 Davi Monteiro
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.beethoven.engine.report;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hands the records over to a background writer through a bounded lock-free ring buffer, so the
+ * reporters never wait for I/O. When the buffer is full the record is dropped and counted. The
+ * delegate is only called from the writer thread and is flushed whenever the buffer is drained.
+ *
+ * @author Davi Monteiro
+ */
+@Slf4j
+public class AsyncReportSink implements ReportSink {
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final ReportSink delegate;
+    private final RingBuffer ringBuffer;
+    private final Thread writer;
+    private final LongAdder dropped = new LongAdder();
+    private volatile boolean running = true;
+
+    public AsyncReportSink(@NonNull ReportSink delegate, int bufferSize) {
+        this.delegate = delegate;
+        this.ringBuffer = new RingBuffer(bufferSize);
+        this.writer = new Thread(this::drain, "beethoven-report-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    @Override
+    public void write(ReportRecord record) {
+        if (!ringBuffer.offer(record)) {
+            dropped.increment();
+        }
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (dropped.sum() > 0) {
+            log.warn("The report buffer was full, {} records were dropped", dropped.sum());
+        }
+    }
+
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    private void drain() {
+        boolean pending = false;
+        while (true) {
+            ReportRecord record = ringBuffer.poll();
+            if (record != null) {
+                write(delegate, record);
+                pending = true;
+            } else if (running) {
+                if (pending) {
+                    delegate.flush();
+                    pending = false;
+                }
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+            } else {
+                break;
+            }
+        }
+        delegate.close();
+    }
+
+    private static void write(ReportSink sink, ReportRecord record) {
+        try {
+            sink.write(record);
+        } catch (RuntimeException e) {
+            // The writer thread must survive a failing sink
+            log.error("Failed to write report record {}", record, e);
+        }
+    }
+
+    /**
+     * Bounded multi-producer ring buffer in which each slot carries a sequence number, so
+     * producers claim slots with a single CAS and the consumer never locks.
+     */
+    private static final class RingBuffer {
+
+        private final int mask;
+        private final AtomicReferenceArray<ReportRecord> records;
+        private final AtomicLongArray sequences;
+        private final AtomicLong head = new AtomicLong();
+        private long tail;
+
+        private RingBuffer(int requestedCapacity) {
+            int capacity = Integer.highestOneBit(Math.max(2, requestedCapacity - 1) << 1);
+            this.mask = capacity - 1;
+            this.records = new AtomicReferenceArray<>(capacity);
+            this.sequences = new AtomicLongArray(capacity);
+            for (int i = 0; i < capacity; i++) {
+                sequences.set(i, i);
+            }
+        }
+
+        private boolean offer(ReportRecord record) {
+            long position = head.get();
+            while (true) {
+                int index = (int) position & mask;
+                long difference = sequences.get(index) - position;
+                if (difference == 0) {
+                    if (head.compareAndSet(position, position + 1)) {
+                        records.lazySet(index, record);
+                        sequences.set(index, position + 1);
+                        return true;
+                    }
+                } else if (difference < 0) {
+                    return false;
+                }
+                position = head.get();
+            }
+        }
+
+        // Called by the writer thread only
+        private ReportRecord poll() {
+            int index = (int) tail & mask;
+            if (sequences.get(index) != tail + 1) {
+                return null;
+            }
+            ReportRecord record = records.get(index);
+            records.lazySet(index, null);
+            sequences.set(index, tail + mask + 1);
+            tail++;
+            return record;
+        }
+    }
+
+}
@@ -0,0 +1,149 @@
+/**
+ * The MIT License
+ * Copyright © 2018 Davi Monteiro
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.beethoven.engine.report;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+import static java.util.Objects.nonNull;
+
+/**
+ * Writes one JSON object per line to a file channel. When the file would exceed its maximum
+ * size it is rolled: <code>reports.jsonl</code> becomes <code>reports.jsonl.1</code>, the previous
+ * <code>.1</code> becomes <code>.2</code>, and so on up to the maximum number of files.
+ * This sink is not thread-safe and is meant to be driven by an {@link AsyncReportSink}.
+ *
+ * @author Davi Monteiro
+ */
+@Slf4j
+public class JsonLinesFileSink implements ReportSink {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path file;
+    private final long maxFileSize;
+    private final int maxFiles;
+    private final ObjectWriter objectWriter;
+    private final ByteArrayOutputStream line = new ByteArrayOutputStream(512);
+
+    private OutputStream output;
+    private long fileSize;
+
+    public JsonLinesFileSink(@NonNull Path file, long maxFileSize, int maxFiles) {
+        this.file = file;
+        this.maxFileSize = maxFileSize;
+        this.maxFiles = Math.max(1, maxFiles);
+        this.objectWriter = new ObjectMapper()
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .writerFor(ReportRecord.class);
+    }
+
+    @Override
+    public void write(ReportRecord record) {
+        try {
+            line.reset();
+            objectWriter.writeValue(line, record);
+            line.write('\n');
+
+            if (output == null) {
+                open();
+            } else if (fileSize + line.size() > maxFileSize && fileSize > 0) {
+                roll();
+            }
+            line.writeTo(output);
+            fileSize += line.size();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void flush() {
+        if (nonNull(output)) {
+            try {
+                output.flush();
+            } catch (IOException e) {
+                log.warn("Failed to flush the report file {}", file, e);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        if (nonNull(output)) {
+            try {
+                output.close();
+            } catch (IOException e) {
+                log.warn("Failed to close the report file {}", file, e);
+            }
+            output = null;
+        }
+    }
+
+    private void open() throws IOException {
+        if (nonNull(file.getParent())) {
+            Files.createDirectories(file.getParent());
+        }
+        FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        fileSize = channel.size();
+        output = new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE);
+    }
+
+    private void roll() throws IOException {
+        close();
+        Files.deleteIfExists(rolledFile(maxFiles - 1));
+        for (int i = maxFiles - 2; i >= 1; i--) {
+            Path rolledFile = rolledFile(i);
+            if (Files.exists(rolledFile)) {
+                Files.move(rolledFile, rolledFile(i + 1), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        if (maxFiles > 1) {
+            Files.move(file, rolledFile(1), StandardCopyOption.REPLACE_EXISTING);
+        } else {
+            Files.delete(file);
+        }
+        open();
+    }
+
+    private Path rolledFile(int index) {
+        return file.resolveSibling(file.getFileName() + "." + index);
+    }
+
+}
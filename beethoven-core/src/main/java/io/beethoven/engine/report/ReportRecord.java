@@ -0,0 +1,93 @@
+/**
+ * The MIT License
+ * Copyright © 2018 Davi Monteiro
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.beethoven.engine.report;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.beethoven.engine.TaskInstance;
+import io.beethoven.engine.WorkflowInstance;
+import lombok.NonNull;
+import lombok.Value;
+
+import static java.util.Objects.nonNull;
+
+/**
+ * Record written to a {@link ReportSink} when a task or a workflow instance terminates.
+ *
+ * @author Davi Monteiro
+ */
+@Value
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ReportRecord {
+
+    private RecordType type;
+    private long timestamp;
+    private String workflowName;
+    private String workflowInstanceName;
+    private String taskName;
+    private String taskInstanceName;
+    private String status;
+    private long elapsedTimeMillis;
+    private boolean success;
+    private Integer responseLength;
+    private String failure;
+
+    public static ReportRecord of(@NonNull TaskInstance taskInstance, @NonNull String status) {
+        return of(taskInstance, status, nonNull(taskInstance.getResponse()) ? taskInstance.getResponse().length() : null);
+    }
+
+    public static ReportRecord of(@NonNull TaskInstance taskInstance, @NonNull String status, Integer responseLength) {
+        return new ReportRecord(
+                RecordType.TASK,
+                System.currentTimeMillis(),
+                taskInstance.getWorkflowName(),
+                taskInstance.getWorkflowInstanceName(),
+                taskInstance.getTaskName(),
+                taskInstance.getTaskInstanceName(),
+                status,
+                taskInstance.elapsedTime().toMillis(),
+                taskInstance.isSuccessfullyExecuted(),
+                responseLength,
+                nonNull(taskInstance.getFailure()) ? String.valueOf(taskInstance.getFailure().getMessage()) : null);
+    }
+
+    public static ReportRecord of(@NonNull WorkflowInstance workflowInstance) {
+        return new ReportRecord(
+                RecordType.WORKFLOW,
+                System.currentTimeMillis(),
+                workflowInstance.getWorkflowName(),
+                workflowInstance.getWorkflowInstanceName(),
+                null,
+                null,
+                String.valueOf(workflowInstance.getStatus()),
+                workflowInstance.elapsedTime().toMillis(),
+                workflowInstance.isSuccessfullyExecuted(),
+                null,
+                null);
+    }
+
+    public enum RecordType {
+        TASK,
+        WORKFLOW
+    }
+
+}
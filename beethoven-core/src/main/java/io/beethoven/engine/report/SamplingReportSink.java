@@ -0,0 +1,61 @@
+/**
+ * The MIT License
+ * Copyright © 2018 Davi Monteiro
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.beethoven.engine.report;
+
+import lombok.NonNull;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Writes only a fraction of the successful records. Failed records are always written.
+ *
+ * @author Davi Monteiro
+ */
+public class SamplingReportSink implements ReportSink {
+
+    private final ReportSink delegate;
+    private final double sampleRate;
+
+    public SamplingReportSink(@NonNull ReportSink delegate, double sampleRate) {
+        this.delegate = delegate;
+        this.sampleRate = sampleRate;
+    }
+
+    @Override
+    public void write(ReportRecord record) {
+        if (!record.isSuccess() || ThreadLocalRandom.current().nextDouble() < sampleRate) {
+            delegate.write(record);
+        }
+    }
+
+    @Override
+    public void flush() {
+        delegate.flush();
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+
+}
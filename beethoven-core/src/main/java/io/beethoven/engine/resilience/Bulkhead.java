@@ -0,0 +1,191 @@
+/**
+ * The MIT License
+ * Copyright © 2018 Davi Monteiro
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.beethoven.engine.resilience;
+
+import lombok.Getter;
+import lombok.Value;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+/**
+ * Bounds the concurrent calls to a service, or of a workflow. A call beyond the limit waits in a
+ * bounded queue until a running call releases its permit; once the queue is full, the call is
+ * rejected. When adaptive, the limit follows the latency of the calls: it grows by one every
+ * limit calls that respond within the latency threshold (additive increase), and shrinks by the
+ * backoff ratio when a call is slower or fails (multiplicative decrease).
+ *
+ * @author Davi Monteiro
+ */
+public class Bulkhead {
+
+    /**
+     * A call waiting for a permit.
+     */
+    public interface Caller {
+
+        /**
+         * @return false when the call no longer needs the permit, which is then handed on
+         */
+        boolean onPermit();
+
+    }
+
+    @Getter
+    private final String name;
+
+    private final int maxQueuedCalls;
+    private final Limit limit;
+
+    private final Queue<Caller> queue = new ArrayDeque<>();
+    private int inFlight;
+    private long rejectedCalls;
+
+    public Bulkhead(String name, int maxConcurrentCalls, int maxQueuedCalls, Limit limit) {
+        this.name = name;
+        this.maxQueuedCalls = Math.max(maxQueuedCalls, 0);
+        this.limit = nonNull(limit) ? limit : new Limit(maxConcurrentCalls);
+    }
+
+    /**
+     * @return true when the permit was acquired at once, false when the caller is queued
+     * @throws BulkheadFullException when the call is rejected
+     */
+    public boolean acquire(Caller caller) {
+        synchronized (this) {
+            if (inFlight < limit.get()) {
+                inFlight++;
+                return true;
+            }
+            if (queue.size() < maxQueuedCalls) {
+                queue.add(caller);
+                return false;
+            }
+            rejectedCalls++;
+        }
+        throw new BulkheadFullException(name);
+    }
+
+    /**
+     * Removes a queued call that no longer needs a permit, so that it does not hold a place in the queue.
+     */
+    public synchronized void remove(Caller caller) {
+        queue.remove(caller);
+    }
+
+    /**
+     * Releases the permit of a call that responded, and hands it on to the oldest queued call.
+     *
+     * @param latencyNanos the latency of the call, or 0 when it was not sent
+     * @param dropped whether the call failed because the service is overloaded
+     */
+    public void release(long latencyNanos, boolean dropped) {
+        synchronized (this) {
+            if (latencyNanos > 0 || dropped) {
+                limit.onCall(latencyNanos, dropped);
+            }
+            inFlight--;
+        }
+        // The queued calls run outside of the lock, and one after the other instead of recursively
+        while (true) {
+            Caller caller;
+            synchronized (this) {
+                if (inFlight >= limit.get() || isNull(caller = queue.poll())) {
+                    return;
+                }
+                inFlight++;
+            }
+            if (caller.onPermit()) {
+                return;
+            }
+            synchronized (this) {
+                inFlight--;
+            }
+        }
+    }
+
+    public synchronized BulkheadSnapshot snapshot() {
+        return new BulkheadSnapshot(name, limit.get(), inFlight, queue.size(), rejectedCalls);
+    }
+
+    /**
+     * The maximum number of concurrent calls of a bulkhead, fixed unless adaptive.
+     * It is only accessed while holding the lock of its bulkhead.
+     */
+    public static class Limit {
+
+        private final int maxLimit;
+        private final int minLimit;
+        private final long latencyThresholdNanos;
+        private final double backoffRatio;
+        private final boolean adaptive;
+        private double limit;
+
+        public Limit(int limit) {
+            this.maxLimit = Math.max(limit, 1);
+            this.minLimit = maxLimit;
+            this.latencyThresholdNanos = Long.MAX_VALUE;
+            this.backoffRatio = 1;
+            this.adaptive = false;
+            this.limit = maxLimit;
+        }
+
+        public Limit(int initialLimit, int minLimit, int maxLimit, long latencyThresholdNanos, double backoffRatio) {
+            this.maxLimit = Math.max(maxLimit, 1);
+            this.minLimit = Math.min(Math.max(minLimit, 1), this.maxLimit);
+            this.latencyThresholdNanos = latencyThresholdNanos;
+            this.backoffRatio = backoffRatio;
+            this.adaptive = true;
+            this.limit = Math.min(Math.max(initialLimit, this.minLimit), this.maxLimit);
+        }
+
+        private int get() {
+            return (int) limit;
+        }
+
+        private void onCall(long latencyNanos, boolean dropped) {
+            if (!adaptive) {
+                return;
+            }
+            if (dropped || latencyNanos > latencyThresholdNanos) {
+                limit = Math.max(limit * backoffRatio, minLimit);
+            } else {
+                limit = Math.min(limit + 1 / limit, maxLimit);
+            }
+        }
+
+    }
+
+    @Value
+    public static class BulkheadSnapshot {
+        private String name;
+        private int limit;
+        private int inFlight;
+        private int queued;
+        private long rejectedCalls;
+    }
+
+}
@@ -0,0 +1,125 @@
+/**
+ * The MIT License
+ * Copyright © 2018 Davi Monteiro
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.beethoven.engine.resilience;
+
+import io.beethoven.config.BeethovenProperties;
+import io.beethoven.config.BeethovenProperties.BulkheadLimits;
+import io.beethoven.engine.resilience.Bulkhead.BulkheadSnapshot;
+import lombok.NonNull;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+/**
+ * The bulkheads of the services called by the tasks, by target host, and of the workflows, by
+ * workflow name. A call holds a permit of both, so a single busy workflow cannot take every
+ * connection to a service.
+ *
+ * @author Davi Monteiro
+ */
+public class BulkheadRegistry {
+
+    private final BeethovenProperties.Bulkheads properties;
+
+    private final Map<String, Bulkhead> services = new ConcurrentHashMap<>();
+
+    private final Map<String, Bulkhead> workflows = new ConcurrentHashMap<>();
+
+    public BulkheadRegistry(@NonNull BeethovenProperties.Bulkheads properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * @return the bulkhead of the host, or null when the bulkheads are disabled
+     */
+    public Bulkhead findService(String host) {
+        if (!properties.getEnabled() || isNull(host)) {
+            return null;
+        }
+        Bulkhead bulkhead = services.get(host);
+        return nonNull(bulkhead) ? bulkhead : services.computeIfAbsent(host, this::createService);
+    }
+
+    /**
+     * @return the bulkhead of the workflow, or null when its calls are unbounded
+     */
+    public Bulkhead findWorkflow(String workflowName) {
+        if (!properties.getEnabled()) {
+            return null;
+        }
+        Bulkhead bulkhead = workflows.get(workflowName);
+        if (nonNull(bulkhead)) {
+            return bulkhead;
+        }
+        BulkheadLimits limits = findLimits(properties.getWorkflows(), properties.getWorkflow(), workflowName);
+        if (isNull(limits.getMaxConcurrentCalls())) {
+            return null;
+        }
+        return workflows.computeIfAbsent(workflowName,
+                name -> new Bulkhead(name, limits.getMaxConcurrentCalls(), limits.getMaxQueuedCalls(), null));
+    }
+
+    public Map<String, Map<String, BulkheadSnapshot>> snapshot() {
+        Map<String, Map<String, BulkheadSnapshot>> snapshots = new LinkedHashMap<>();
+        snapshots.put("services", snapshot(services));
+        snapshots.put("workflows", snapshot(workflows));
+        return snapshots;
+    }
+
+    private Bulkhead createService(String host) {
+        BulkheadLimits limits = findLimits(properties.getServices(), properties.getService(), host);
+        BeethovenProperties.AdaptiveLimit adaptiveLimit = properties.getAdaptiveLimit();
+        Bulkhead.Limit limit = null;
+        if (adaptiveLimit.getEnabled()) {
+            limit = new Bulkhead.Limit(limits.getMaxConcurrentCalls(),
+                    adaptiveLimit.getMinLimit(),
+                    limits.getMaxConcurrentCalls(),
+                    adaptiveLimit.getLatencyThreshold().toNanos(),
+                    adaptiveLimit.getBackoffRatio());
+        }
+        return new Bulkhead(host, limits.getMaxConcurrentCalls(), limits.getMaxQueuedCalls(), limit);
+    }
+
+    private static BulkheadLimits findLimits(Map<String, BulkheadLimits> overrides, BulkheadLimits defaults, String name) {
+        BulkheadLimits limits = overrides.get(name);
+        if (isNull(limits)) {
+            return defaults;
+        }
+        // A limit that is not overridden keeps its default
+        return new BulkheadLimits(
+                nonNull(limits.getMaxConcurrentCalls()) ? limits.getMaxConcurrentCalls() : defaults.getMaxConcurrentCalls(),
+                nonNull(limits.getMaxQueuedCalls()) ? limits.getMaxQueuedCalls() : defaults.getMaxQueuedCalls());
+    }
+
+    private static Map<String, BulkheadSnapshot> snapshot(Map<String, Bulkhead> bulkheads) {
+        Map<String, BulkheadSnapshot> snapshots = new TreeMap<>();
+        bulkheads.forEach((name, bulkhead) -> snapshots.put(name, bulkhead.snapshot()));
+        return snapshots;
+    }
+
+}
@@ -0,0 +1,173 @@
+/**
+ * The MIT License
+ * Copyright © 2018 Davi Monteiro
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.beethoven.engine.resilience;
+
+import lombok.Getter;
+import lombok.Value;
+
+import java.time.Duration;
+
+/**
+ * Stops the calls to a service that keeps failing. While closed, the breaker records the outcome
+ * of the last calls; when their failure rate reaches the threshold, it opens and rejects every
+ * call. Once the open duration expires, it lets a few probe calls through: if they all succeed,
+ * it closes again, otherwise it opens for another period.
+ *
+ * @author Davi Monteiro
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    @Getter
+    private final String name;
+
+    private final double failureRateThreshold;
+    private final int minimumCalls;
+    private final long openDurationNanos;
+    private final int probeCalls;
+
+    // The outcomes of the last calls while closed, true for a failure
+    private final boolean[] outcomes;
+    private int next;
+    private int calls;
+    private int failures;
+
+    private volatile State state = State.CLOSED;
+    private long openedAt;
+    private int probes;
+    private int successfulProbes;
+    private long rejectedCalls;
+
+    public CircuitBreaker(String name, double failureRateThreshold, int slidingWindowSize, int minimumCalls,
+                          Duration openDuration, int probeCalls) {
+        this.name = name;
+        this.failureRateThreshold = failureRateThreshold;
+        this.outcomes = new boolean[Math.max(slidingWindowSize, 1)];
+        this.minimumCalls = Math.max(Math.min(minimumCalls, outcomes.length), 1);
+        this.openDurationNanos = openDuration.toNanos();
+        this.probeCalls = Math.max(probeCalls, 1);
+    }
+
+    /**
+     * @return false when the call must not be sent
+     */
+    public boolean tryAcquire() {
+        if (state == State.CLOSED) {
+            return true;
+        }
+        synchronized (this) {
+            if (state == State.OPEN && System.nanoTime() - openedAt >= openDurationNanos) {
+                state = State.HALF_OPEN;
+                probes = 0;
+                successfulProbes = 0;
+            }
+            if (state == State.CLOSED || (state == State.HALF_OPEN && probes++ < probeCalls)) {
+                return true;
+            }
+            rejectedCalls++;
+            return false;
+        }
+    }
+
+    public synchronized void onSuccess() {
+        if (state == State.HALF_OPEN) {
+            if (++successfulProbes >= probeCalls) {
+                close();
+            }
+        } else if (state == State.CLOSED) {
+            record(false);
+        }
+    }
+
+    public synchronized void onFailure() {
+        if (state == State.HALF_OPEN) {
+            open();
+        } else if (state == State.CLOSED) {
+            record(true);
+            if (calls >= minimumCalls && failures >= failureRateThreshold * calls) {
+                open();
+            }
+        }
+    }
+
+    /**
+     * Releases an acquired call that was abandoned without an outcome.
+     */
+    public synchronized void onIgnored() {
+        if (state == State.HALF_OPEN && probes > successfulProbes) {
+            probes--;
+        }
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public synchronized CircuitBreakerSnapshot snapshot() {
+        double failureRate = calls > 0 ? (double) failures / calls : 0;
+        return new CircuitBreakerSnapshot(name, state, calls, failures, failureRate, rejectedCalls);
+    }
+
+    private void record(boolean failure) {
+        if (calls == outcomes.length) {
+            if (outcomes[next]) {
+                failures--;
+            }
+        } else {
+            calls++;
+        }
+        outcomes[next] = failure;
+        if (failure) {
+            failures++;
+        }
+        next = (next + 1) % outcomes.length;
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAt = System.nanoTime();
+    }
+
+    private void close() {
+        state = State.CLOSED;
+        next = 0;
+        calls = 0;
+        failures = 0;
+    }
+
+    @Value
+    public static class CircuitBreakerSnapshot {
+        private String name;
+        private State state;
+        private int calls;
+        private int failures;
+        private double failureRate;
+        private long rejectedCalls;
+    }
+
+}
@@ -0,0 +1,78 @@
+/**
+ * The MIT License
+ * Copyright © 2018 Davi Monteiro
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.beethoven.engine.resilience;
+
+import io.beethoven.config.BeethovenProperties;
+import io.beethoven.engine.resilience.CircuitBreaker.CircuitBreakerSnapshot;
+import lombok.NonNull;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+/**
+ * The circuit breakers of the services called by the tasks, by target host. With a load
+ * balanced client, the host is the name of the service.
+ *
+ * @author Davi Monteiro
+ */
+public class CircuitBreakerRegistry {
+
+    private final BeethovenProperties.CircuitBreakers properties;
+
+    private final Map<String, CircuitBreaker> circuitBreakers = new ConcurrentHashMap<>();
+
+    public CircuitBreakerRegistry(@NonNull BeethovenProperties.CircuitBreakers properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * @return the circuit breaker of the host, or null when the circuit breakers are disabled
+     */
+    public CircuitBreaker find(String host) {
+        if (!properties.getEnabled() || isNull(host)) {
+            return null;
+        }
+        CircuitBreaker circuitBreaker = circuitBreakers.get(host);
+        return nonNull(circuitBreaker) ? circuitBreaker : circuitBreakers.computeIfAbsent(host, this::create);
+    }
+
+    public Map<String, CircuitBreakerSnapshot> snapshot() {
+        Map<String, CircuitBreakerSnapshot> snapshots = new TreeMap<>();
+        circuitBreakers.forEach((host, circuitBreaker) -> snapshots.put(host, circuitBreaker.snapshot()));
+        return snapshots;
+    }
+
+    private CircuitBreaker create(String host) {
+        return new CircuitBreaker(host,
+                properties.getFailureRateThreshold(),
+                properties.getSlidingWindowSize(),
+                properties.getMinimumCalls(),
+                properties.getOpenDuration(),
+                properties.getProbeCalls());
+    }
+
+}
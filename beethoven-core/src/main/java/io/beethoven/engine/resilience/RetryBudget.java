@@ -0,0 +1,98 @@
+/**
+ * The MIT License
+ * Copyright © 2018 Davi Monteiro
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.beethoven.engine.resilience;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounds the retries to a ratio of the first attempts, so a struggling service does not receive
+ * a storm of retries on top of its regular load. Every first attempt deposits the ratio in the
+ * budget and every retry withdraws one; a minimum number of retries per second is always allowed.
+ * The balance is capped, so the retries saved up while the services are healthy cannot all be
+ * spent at once in an outage.
+ *
+ * @author Davi Monteiro
+ */
+public class RetryBudget {
+
+    // The balance is kept in thousandths of a retry
+    private static final long SCALE = 1000;
+
+    private static final long CAPACITY_SECONDS = 10;
+
+    private final long deposit;
+    private final long refillPerSecond;
+    private final long capacity;
+    private final AtomicLong balance = new AtomicLong();
+    private final AtomicLong lastRefill = new AtomicLong(System.nanoTime());
+
+    public RetryBudget(double ratio, int minRetriesPerSecond) {
+        this.deposit = Math.round(Math.max(ratio, 0) * SCALE);
+        this.refillPerSecond = Math.max(minRetriesPerSecond, 0) * SCALE;
+        this.capacity = Math.max(refillPerSecond * CAPACITY_SECONDS, SCALE);
+    }
+
+    public void deposit() {
+        add(deposit);
+    }
+
+    /**
+     * @return true when a retry may be sent
+     */
+    public boolean tryWithdraw() {
+        refill();
+        long current;
+        do {
+            current = balance.get();
+            if (current < SCALE) {
+                return false;
+            }
+        } while (!balance.compareAndSet(current, current - SCALE));
+        return true;
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        long last = lastRefill.get();
+        long elapsed = Math.min(now - last, TimeUnit.SECONDS.toNanos(CAPACITY_SECONDS));
+        long amount = elapsed * refillPerSecond / TimeUnit.SECONDS.toNanos(1);
+        if (amount > 0 && lastRefill.compareAndSet(last, now)) {
+            add(amount);
+        }
+    }
+
+    private void add(long amount) {
+        long current;
+        long next;
+        do {
+            current = balance.get();
+            next = Math.min(current + amount, capacity);
+            if (next == current) {
+                // Full: no write, so the deposits of a healthy engine do not contend
+                return;
+            }
+        } while (!balance.compareAndSet(current, next));
+    }
+
+}
@@ -22,62 +22,342 @@
  */
 package io.beethoven.repository;
 
+import io.beethoven.config.BeethovenProperties;
 import io.beethoven.dsl.ContextualInput;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
 import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
-import java.util.HashSet;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.atomic.LongAdder;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.singletonMap;
+import static java.util.Collections.unmodifiableMap;
+import static java.util.Objects.isNull;
 import static java.util.Objects.nonNull;
 
 /**
+ * Global inputs are indexed by workflow name and local inputs by workflow instance name, both
+ * mapping an input key (e.g. <code>${access_token}</code>) to its value. Global inputs are
+ * replaced as a whole on every operation, while local inputs are written concurrently by the
+ * task executions of an instance.
+ * <p/>
+ * Local inputs are released when their instance terminates, since a running or paused instance
+ * still needs them. The values of instances not accessed within the configured TTL are spilled
+ * to files by a periodic sweep, as are those of the least recently used instances whenever the
+ * estimated heap size exceeds the configured budget. Values larger than the off-heap threshold
+ * are kept as UTF-8 bytes in pooled direct memory, and values larger than the spill threshold in
+ * files, instead of on the heap. A value saved from bytes, such as a task response, is copied
+ * there straight from the buffers it was received in, and only decoded when it is small. The
+ * files are bounded by their own budget, beyond which values stay on the heap, and inputs not
+ * accessed within the maximum idle time are released whether their instance terminated or not.
+ * <p/>
+ * The names of the last released instances are remembered, so that a task response arriving
+ * after its instance terminated is dropped instead of creating its inputs again.
+ * <p/>
+ * Off-heap values are reference counted: the inputs hold one reference until their instance is
+ * released, and a request writing a value holds another one until it is sent, so the memory is
+ * freed once both are done. They are only read under the lock of their inputs, and released
+ * once removed from them. Files are never written, read or deleted under that lock; a spilled
+ * file is deleted only once no one is reading it.
+ *
  * @author Davi Monteiro
  */
+@Slf4j
 @Repository
 public class ContextualInputRepository {
 
-    private Map<String, Set<ContextualInput>> globalInputs = new ConcurrentHashMap<>();
-    private Map<String, Set<ContextualInput>> localInputs = new ConcurrentHashMap<>();
+    // Rough heap cost of a map entry and its strings, besides the characters themselves
+    private static final long ENTRY_OVERHEAD_BYTES = 96;
 
-    public void saveGlobalInputs(@NonNull String workflowName, @NonNull Set<ContextualInput> inputs) {
-        globalInputs.put(workflowName, inputs);
+    // After an eviction the heap size is brought back to this fraction of the budget
+    private static final double EVICTION_LOW_WATERMARK = 0.9;
+
+    private Map<String, Map<String, String>> globalInputs = new ConcurrentHashMap<>();
+    private Map<String, LocalInputs> localInputs = new ConcurrentHashMap<>();
+
+    // The names of the last released instances, oldest first
+    private final Set<String> releasedInstanceNames = ConcurrentHashMap.newKeySet();
+    private final Queue<String> releasedInstanceOrder = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger releasedInstanceCount = new AtomicInteger();
+
+    private final AtomicLong heapBytes = new AtomicLong();
+    private final AtomicLong spilledBytes = new AtomicLong();
+    private final AtomicLong spilledValues = new AtomicLong();
+    private final AtomicLong offHeapBytes = new AtomicLong();
+    private final AtomicLong offHeapValues = new AtomicLong();
+    private final LongAdder releasedInstances = new LongAdder();
+    private final LongAdder spilledIdleInstances = new LongAdder();
+    private final LongAdder spilledOverBudgetInstances = new LongAdder();
+    private final LongAdder expiredInstances = new LongAdder();
+    private final LongAdder droppedLateInputs = new LongAdder();
+    private final AtomicBoolean spillScheduled = new AtomicBoolean();
+
+    @Autowired
+    private BeethovenProperties beethovenProperties;
+
+    private ScheduledExecutorService sweeper;
+
+    @PostConstruct
+    public void initialize() {
+        long sweepInterval = beethovenProperties.getInputs().getSweepInterval().toMillis();
+        sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "beethoven-inputs-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sweeper.scheduleWithFixedDelay(this::sweepIdleInputs, sweepInterval, sweepInterval, TimeUnit.MILLISECONDS);
     }
 
-    public Optional<ContextualInput> findGlobalContextualInput(@NonNull String workflowName, String key) {
-        Set<ContextualInput> inputs = globalInputs.get(workflowName);
-        Optional<ContextualInput> contextualInput = Optional.empty();
+    @PreDestroy
+    public void destroy() {
+        sweeper.shutdownNow();
+        new ArrayList<>(localInputs.keySet()).forEach(this::release);
+    }
 
-        if (inputs != null && !inputs.isEmpty()) {
-            Optional<ContextualInput> first = inputs.stream().filter(input -> input.getKey().equals(key)).findFirst();
-            if (nonNull(first) && first.isPresent()) {
-                contextualInput = first;
+    public void saveGlobalInputs(@NonNull String workflowName, @NonNull Set<ContextualInput> inputs) {
+        Map<String, String> values = new HashMap<>();
+        for (ContextualInput input : inputs) {
+            if (nonNull(input.getKey()) && nonNull(input.getValue())) {
+                values.put(input.getKey(), input.getValue());
             }
         }
+        globalInputs.put(workflowName, unmodifiableMap(values));
+    }
+
+    public void saveGlobalInputs(@NonNull String workflowName, @NonNull Map<String, String> values) {
+        globalInputs.put(workflowName, unmodifiableMap(new HashMap<>(values)));
+    }
 
-        return contextualInput;
+    public Map<String, String> findGlobalInputs(@NonNull String workflowName) {
+        return globalInputs.getOrDefault(workflowName, emptyMap());
+    }
+
+    public Optional<ContextualInput> findGlobalContextualInput(@NonNull String workflowName, String key) {
+        Map<String, String> inputs = globalInputs.get(workflowName);
+        if (isNull(inputs) || isNull(key)) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(inputs.get(key)).map(value -> new ContextualInput(key, value));
     }
 
     public void saveLocalInput(@NonNull String workflowInstanceName, @NonNull ContextualInput input) {
-        Set<ContextualInput> inputs = localInputs.computeIfAbsent(workflowInstanceName, k -> new HashSet<>());
-        inputs.add(input);
+        Map<String, String> values = new HashMap<>();
+        values.put(input.getKey(), input.getValue());
+        saveLocalInputs(workflowInstanceName, values);
+    }
+
+    /**
+     * Saves a local input from its UTF-8 bytes, such as a task response as received. A large
+     * value is copied as is into direct memory or a file, and only a small one is decoded. The
+     * bytes are not retained, the caller still releases them.
+     */
+    public void saveLocalInput(@NonNull String workflowInstanceName, @NonNull String key, @NonNull ByteBuf value) {
+        if (releasedInstanceNames.contains(workflowInstanceName)) {
+            droppedLateInputs.increment();
+            return;
+        }
+        save(workflowInstanceName, singletonMap(key, store(key, value)));
+    }
+
+    public void saveLocalInputs(@NonNull String workflowInstanceName, @NonNull Map<String, String> values) {
+        if (releasedInstanceNames.contains(workflowInstanceName)) {
+            droppedLateInputs.increment();
+            return;
+        }
+
+        // Stored first, as a value may be written to a file, and a missing value removes the previous one
+        Map<String, StoredValue> storedValues = new HashMap<>();
+        for (Map.Entry<String, String> entry : values.entrySet()) {
+            if (nonNull(entry.getKey())) {
+                storedValues.put(entry.getKey(), nonNull(entry.getValue()) ? store(entry.getKey(), entry.getValue()) : null);
+            }
+        }
+        save(workflowInstanceName, storedValues);
+    }
+
+    private void save(String workflowInstanceName, Map<String, StoredValue> storedValues) {
+        long delta = 0;
+        boolean saved = false;
+        List<StoredValue> previousValues = new ArrayList<>();
+        while (true) {
+            LocalInputs inputs = localInputs.computeIfAbsent(workflowInstanceName, LocalInputs::new);
+            synchronized (inputs) {
+                if (releasedInstanceNames.contains(workflowInstanceName)) {
+                    // Released meanwhile, and possibly created again here, in which case they are removed
+                    if (!inputs.released) {
+                        inputs.released = true;
+                        localInputs.remove(workflowInstanceName, inputs);
+                    }
+                    break;
+                }
+                // A concurrent release detached these inputs, so they are created again
+                if (inputs.released) {
+                    continue;
+                }
+                delta = 0;
+                for (Map.Entry<String, StoredValue> entry : storedValues.entrySet()) {
+                    StoredValue storedValue = entry.getValue();
+                    StoredValue previous = nonNull(storedValue)
+                            ? inputs.values.put(entry.getKey(), storedValue)
+                            : inputs.values.remove(entry.getKey());
+                    if (nonNull(previous)) {
+                        previousValues.add(previous);
+                    }
+                    if (nonNull(storedValue)) {
+                        delta += storedValue.heapBytes;
+                    }
+                }
+                inputs.touch();
+                saved = true;
+                break;
+            }
+        }
+        if (!saved) {
+            // Dropped, as the instance was released meanwhile
+            droppedLateInputs.increment();
+            for (StoredValue storedValue : storedValues.values()) {
+                if (nonNull(storedValue)) {
+                    discard(storedValue);
+                }
+            }
+            return;
+        }
+        for (StoredValue previous : previousValues) {
+            delta -= discard(previous);
+        }
+
+        if (heapBytes.addAndGet(delta) > beethovenProperties.getInputs().getMaxBytes()
+                && spillScheduled.compareAndSet(false, true)) {
+            // Spilled by the sweeper, so the caller never waits for the files to be written
+            sweeper.execute(this::spillLeastRecentlyUsedInputs);
+        }
     }
 
     public Optional<ContextualInput> findLocalContextualInput(@NonNull String workflowInstanceName, @NonNull String key) {
-        Set<ContextualInput> inputs = localInputs.get(workflowInstanceName);
-        Optional<ContextualInput> contextualInput = Optional.empty();
+        LocalInputs inputs = localInputs.get(workflowInstanceName);
+        if (isNull(inputs)) {
+            return Optional.empty();
+        }
+        inputs.touch();
+        return Optional.ofNullable(read(inputs, key)).map(value -> new ContextualInput(key, value));
+    }
 
-        if (inputs != null && !inputs.isEmpty()) {
-            Optional<ContextualInput> first = inputs.stream().filter(input -> input.getKey().equals(key)).findFirst();
-            if (nonNull(first) && first.isPresent()) {
-                contextualInput = first;
+    /**
+     * @return the size in bytes of a local input kept off the heap, in direct memory or in a
+     * spilled file, or -1 when it is not
+     */
+    public long findOffHeapLocalInputSize(@NonNull String workflowInstanceName, @NonNull String key) {
+        LocalInputs inputs = localInputs.get(workflowInstanceName);
+        StoredValue storedValue = nonNull(inputs) ? inputs.values.get(key) : null;
+        if (isNull(storedValue)) {
+            return -1;
+        }
+        if (nonNull(storedValue.buffer)) {
+            return storedValue.buffer.readableBytes();
+        }
+        return nonNull(storedValue.file) ? storedValue.fileBytes : -1;
+    }
+
+    /**
+     * @return a retained view of the UTF-8 bytes of a local input kept off the heap, or null when
+     * it is not. The caller releases it, as writing it to a request does.
+     */
+    public ByteBuf retainOffHeapLocalInput(@NonNull String workflowInstanceName, @NonNull String key) {
+        LocalInputs inputs = localInputs.get(workflowInstanceName);
+        if (isNull(inputs)) {
+            return null;
+        }
+        synchronized (inputs) {
+            StoredValue storedValue = inputs.values.get(key);
+            if (inputs.released || isNull(storedValue) || isNull(storedValue.buffer)) {
+                return null;
             }
+            inputs.touch();
+            return storedValue.buffer.retainedDuplicate();
         }
+    }
 
-        return contextualInput;
+    /**
+     * @return the UTF-8 bytes of a local input spilled to a file, opened for reading, or null when
+     * it is not. The caller closes the channel, which still reads the file once it is deleted.
+     */
+    public FileChannel openSpilledLocalInput(@NonNull String workflowInstanceName, @NonNull String key) {
+        LocalInputs inputs = localInputs.get(workflowInstanceName);
+        StoredValue storedValue = nonNull(inputs) ? inputs.values.get(key) : null;
+        if (isNull(storedValue) || isNull(storedValue.file)) {
+            return null;
+        }
+        inputs.touch();
+        return storedValue.openFile();
+    }
+
+    /**
+     * Finds the values of the given keys in a single pass. Local inputs take precedence over the
+     * global ones and keys without a value are left out of the result.
+     * <p>
+     * The same precedence applies to the URI, the headers and the body of a request: a task
+     * response stored for the instance shadows a global input with the same key. Requests used
+     * to read a body from the global inputs first, so a workflow relying on a global input named
+     * after a task response now gets the response.
+     */
+    public Map<String, String> findInputs(@NonNull String workflowName, @NonNull String workflowInstanceName,
+                                          @NonNull Collection<String> keys) {
+        if (keys.isEmpty()) {
+            return emptyMap();
+        }
+
+        Map<String, String> global = globalInputs.getOrDefault(workflowName, emptyMap());
+        LocalInputs local = localInputs.get(workflowInstanceName);
+        if (nonNull(local)) {
+            local.touch();
+        }
+
+        Map<String, String> values = new HashMap<>();
+        for (String key : keys) {
+            String value = nonNull(local) ? read(local, key) : null;
+            if (isNull(value)) {
+                value = global.get(key);
+            }
+            if (nonNull(value)) {
+                values.put(key, value);
+            }
+        }
+        return values;
     }
 
     public void deleteGlobalContextualInput(@NonNull String workflowName) {
@@ -85,7 +365,354 @@ public class ContextualInputRepository {
     }
 
     public void deleteLocalContextualInput(@NonNull String workflowInstanceName) {
-        localInputs.remove(workflowInstanceName);
+        if (release(workflowInstanceName)) {
+            releasedInstances.increment();
+        }
+    }
+
+    public ContextualInputStatistics statistics() {
+        return new ContextualInputStatistics(
+                localInputs.size(),
+                heapBytes.get(),
+                spilledBytes.get(),
+                spilledValues.get(),
+                offHeapBytes.get(),
+                offHeapValues.get(),
+                releasedInstances.sum(),
+                spilledIdleInstances.sum(),
+                spilledOverBudgetInstances.sum(),
+                expiredInstances.sum(),
+                droppedLateInputs.sum());
+    }
+
+    /**
+     * Releases the inputs not accessed within the maximum idle time, and spills the values of
+     * those not accessed within the TTL.
+     */
+    private void sweepIdleInputs() {
+        try {
+            long now = System.currentTimeMillis();
+            long expiration = now - beethovenProperties.getInputs().getMaxIdleTime().toMillis();
+            long spillExpiration = now - beethovenProperties.getInputs().getTtl().toMillis();
+            for (LocalInputs inputs : new ArrayList<>(localInputs.values())) {
+                if (inputs.lastAccess < expiration) {
+                    if (release(inputs.workflowInstanceName)) {
+                        expiredInstances.increment();
+                        log.warn("The contextual inputs of {} were not accessed for {}, released them",
+                                inputs.workflowInstanceName, beethovenProperties.getInputs().getMaxIdleTime());
+                    }
+                } else if (inputs.lastAccess < spillExpiration && spill(inputs) > 0) {
+                    spilledIdleInstances.increment();
+                }
+            }
+        } catch (RuntimeException e) {
+            // An exception would cancel the periodic sweep
+            log.error("Failed to sweep idle contextual inputs", e);
+        }
+    }
+
+    private void spillLeastRecentlyUsedInputs() {
+        spillScheduled.set(false);
+        try {
+            long maxBytes = beethovenProperties.getInputs().getMaxBytes();
+            if (heapBytes.get() <= maxBytes) {
+                return;
+            }
+
+            List<LocalInputs> candidates = new ArrayList<>(localInputs.values());
+            candidates.sort(Comparator.comparingLong(inputs -> inputs.lastAccess));
+            long lowWatermark = (long) (maxBytes * EVICTION_LOW_WATERMARK);
+            for (LocalInputs inputs : candidates) {
+                if (heapBytes.get() <= lowWatermark) {
+                    break;
+                }
+                if (spill(inputs) > 0) {
+                    spilledOverBudgetInstances.increment();
+                    log.warn("Contextual inputs exceeded {} bytes, spilled the inputs of {}", maxBytes, inputs.workflowInstanceName);
+                }
+            }
+        } catch (RuntimeException e) {
+            log.error("Failed to spill the least recently used contextual inputs", e);
+        }
+    }
+
+    /**
+     * Writes the values of an instance kept on the heap to files, and returns the heap size freed.
+     */
+    private long spill(LocalInputs inputs) {
+        long freed = 0;
+        for (Map.Entry<String, StoredValue> entry : inputs.values.entrySet()) {
+            StoredValue heapValue = entry.getValue();
+            if (nonNull(heapValue.buffer) || nonNull(heapValue.file)) {
+                continue;
+            }
+            StoredValue spilledValue = spill(entry.getKey(), heapValue.value);
+            if (isNull(spilledValue)) {
+                // The spill directory can not be written, the values stay on the heap
+                break;
+            }
+            boolean replaced;
+            synchronized (inputs) {
+                // Unless the value was replaced, or released, meanwhile
+                replaced = inputs.values.replace(entry.getKey(), heapValue, spilledValue);
+            }
+            if (replaced) {
+                freed += heapValue.heapBytes - spilledValue.heapBytes;
+            } else {
+                discard(spilledValue);
+            }
+        }
+        heapBytes.addAndGet(-freed);
+        return freed;
+    }
+
+    private boolean release(String workflowInstanceName) {
+        // Remembered before the inputs are removed, so a concurrent write sees it once they are released
+        remember(workflowInstanceName);
+        LocalInputs inputs = localInputs.remove(workflowInstanceName);
+        if (isNull(inputs)) {
+            return false;
+        }
+
+        List<StoredValue> values;
+        synchronized (inputs) {
+            inputs.released = true;
+            values = new ArrayList<>(inputs.values.values());
+            inputs.values.clear();
+        }
+        long delta = 0;
+        for (StoredValue value : values) {
+            delta -= discard(value);
+        }
+        heapBytes.addAndGet(delta);
+        return true;
+    }
+
+    private void remember(String workflowInstanceName) {
+        if (!releasedInstanceNames.add(workflowInstanceName)) {
+            return;
+        }
+        releasedInstanceOrder.add(workflowInstanceName);
+        int maxReleasedInstances = beethovenProperties.getInputs().getMaxReleasedInstances();
+        while (releasedInstanceCount.incrementAndGet() > maxReleasedInstances) {
+            String oldest = releasedInstanceOrder.poll();
+            if (isNull(oldest)) {
+                releasedInstanceCount.decrementAndGet();
+                break;
+            }
+            releasedInstanceNames.remove(oldest);
+            releasedInstanceCount.addAndGet(-2);
+        }
+    }
+
+    private StoredValue store(String key, String value) {
+        long valueBytes = 2L * value.length();
+        Long offHeapThreshold = beethovenProperties.getInputs().getOffHeapThreshold();
+        if (nonNull(offHeapThreshold) && valueBytes >= offHeapThreshold) {
+            int size = ByteBufUtil.utf8Bytes(value);
+            if (offHeapBytes.addAndGet(size) <= beethovenProperties.getInputs().getMaxOffHeapBytes()) {
+                ByteBuf buffer = PooledByteBufAllocator.DEFAULT.directBuffer(size, size);
+                // Its exact size is reserved, instead of the worst case of three bytes per char
+                ByteBufUtil.reserveAndWriteUtf8(buffer, value, size);
+                offHeapValues.incrementAndGet();
+                return new StoredValue(null, null, 0, buffer, 2L * key.length() + ENTRY_OVERHEAD_BYTES);
+            }
+            // Full, the value is spilled or kept on the heap
+            offHeapBytes.addAndGet(-size);
+        }
+        Long spillThreshold = beethovenProperties.getInputs().getSpillThreshold();
+        if (nonNull(spillThreshold) && valueBytes >= spillThreshold) {
+            StoredValue spilledValue = spill(key, value);
+            if (nonNull(spilledValue)) {
+                return spilledValue;
+            }
+        }
+        return new StoredValue(value, null, 0, null, valueBytes + 2L * key.length() + ENTRY_OVERHEAD_BYTES);
+    }
+
+    /**
+     * Stores UTF-8 bytes as they are when the decoded value would be large enough to be kept off
+     * the heap, estimating its size as two bytes per char, or as a string otherwise.
+     */
+    private StoredValue store(String key, ByteBuf value) {
+        int size = value.readableBytes();
+        long valueBytes = 2L * size;
+        Long offHeapThreshold = beethovenProperties.getInputs().getOffHeapThreshold();
+        if (nonNull(offHeapThreshold) && valueBytes >= offHeapThreshold) {
+            if (offHeapBytes.addAndGet(size) <= beethovenProperties.getInputs().getMaxOffHeapBytes()) {
+                ByteBuf buffer = PooledByteBufAllocator.DEFAULT.directBuffer(size, size);
+                buffer.writeBytes(value, value.readerIndex(), size);
+                offHeapValues.incrementAndGet();
+                return new StoredValue(null, null, 0, buffer, 2L * key.length() + ENTRY_OVERHEAD_BYTES);
+            }
+            offHeapBytes.addAndGet(-size);
+        }
+        Long spillThreshold = beethovenProperties.getInputs().getSpillThreshold();
+        if (nonNull(spillThreshold) && valueBytes >= spillThreshold) {
+            StoredValue spilledValue = spill(key, value);
+            if (nonNull(spilledValue)) {
+                return spilledValue;
+            }
+        }
+        String decodedValue = value.toString(UTF_8);
+        return new StoredValue(decodedValue, null, 0, null,
+                2L * decodedValue.length() + 2L * key.length() + ENTRY_OVERHEAD_BYTES);
+    }
+
+    private StoredValue spill(String key, String value) {
+        return spill(key, Unpooled.wrappedBuffer(value.getBytes(UTF_8)));
+    }
+
+    /**
+     * @return the value written to a file of the spill directory, or null when it can not be written
+     */
+    private StoredValue spill(String key, ByteBuf value) {
+        int size = value.readableBytes();
+        if (spilledBytes.addAndGet(size) > beethovenProperties.getInputs().getMaxSpilledBytes()) {
+            // Full, the value stays on the heap
+            spilledBytes.addAndGet(-size);
+            return null;
+        }
+        try {
+            Path directory = Paths.get(beethovenProperties.getInputs().getSpillDirectory());
+            Files.createDirectories(directory);
+            Path file = Files.createTempFile(directory, "input", ".spill");
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                for (int written = 0; written < size; ) {
+                    written += value.getBytes(value.readerIndex() + written, channel, written, size - written);
+                }
+            }
+            spilledValues.incrementAndGet();
+            return new StoredValue(null, file, size, null, 2L * key.length() + ENTRY_OVERHEAD_BYTES);
+        } catch (IOException e) {
+            spilledBytes.addAndGet(-size);
+            log.warn("Failed to spill contextual input {}, keeping it on the heap", key, e);
+            return null;
+        }
+    }
+
+    /**
+     * Decodes a value kept off the heap into a string, which callers only do for the small values
+     * and for those bound inside a larger template: a whole request body bound to an input kept
+     * off the heap is written from its bytes instead.
+     */
+    private String read(LocalInputs inputs, String key) {
+        while (true) {
+            StoredValue storedValue = inputs.values.get(key);
+            if (isNull(storedValue)) {
+                return null;
+            }
+            if (nonNull(storedValue.buffer)) {
+                synchronized (inputs) {
+                    // Unless the value was replaced, or released, meanwhile
+                    if (inputs.values.get(key) == storedValue) {
+                        return storedValue.buffer.toString(UTF_8);
+                    }
+                }
+                continue;
+            }
+            if (isNull(storedValue.file)) {
+                return storedValue.value;
+            }
+            String value = storedValue.readFile();
+            if (nonNull(value)) {
+                return value;
+            }
+            // The file was deleted as the value was replaced, spilled or released, so it is looked up again
+        }
+    }
+
+    /**
+     * Frees the off-heap memory or deletes the spilled file of a value, and returns the heap size it held.
+     */
+    private long discard(StoredValue storedValue) {
+        if (nonNull(storedValue.buffer)) {
+            offHeapBytes.addAndGet(-storedValue.buffer.readableBytes());
+            offHeapValues.decrementAndGet();
+            storedValue.buffer.release();
+        }
+        if (nonNull(storedValue.file)) {
+            storedValue.deleteFile();
+            spilledBytes.addAndGet(-storedValue.fileBytes);
+            spilledValues.decrementAndGet();
+        }
+        return storedValue.heapBytes;
+    }
+
+    private static class LocalInputs {
+        private final String workflowInstanceName;
+        private final Map<String, StoredValue> values = new ConcurrentHashMap<>();
+        private volatile long lastAccess = System.currentTimeMillis();
+        private boolean released;
+
+        private LocalInputs(String workflowInstanceName) {
+            this.workflowInstanceName = workflowInstanceName;
+        }
+
+        private void touch() {
+            lastAccess = System.currentTimeMillis();
+        }
+    }
+
+    private static class StoredValue {
+        private final String value;
+        private final Path file;
+        private final long fileBytes;
+        private final ByteBuf buffer;
+        private final long heapBytes;
+
+        // Readers of the file hold the read lock, so it is only deleted once they are done
+        private final ReadWriteLock fileLock;
+        private boolean deleted;
+
+        private StoredValue(String value, Path file, long fileBytes, ByteBuf buffer, long heapBytes) {
+            this.value = value;
+            this.file = file;
+            this.fileBytes = fileBytes;
+            this.buffer = buffer;
+            this.heapBytes = heapBytes;
+            this.fileLock = nonNull(file) ? new ReentrantReadWriteLock() : null;
+        }
+
+        /**
+         * @return the spilled value, or null when its file was deleted
+         */
+        private String readFile() {
+            fileLock.readLock().lock();
+            try {
+                return deleted ? null : new String(Files.readAllBytes(file), UTF_8);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                fileLock.readLock().unlock();
+            }
+        }
+
+        /**
+         * @return the spilled file opened for reading, or null when it was deleted
+         */
+        private FileChannel openFile() {
+            fileLock.readLock().lock();
+            try {
+                return deleted ? null : FileChannel.open(file, StandardOpenOption.READ);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                fileLock.readLock().unlock();
+            }
+        }
+
+        private void deleteFile() {
+            fileLock.writeLock().lock();
+            try {
+                deleted = true;
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                log.warn("Failed to delete spilled contextual input {}", file, e);
+            } finally {
+                fileLock.writeLock().unlock();
+            }
+        }
     }
 
 }
@@ -0,0 +1,196 @@
+/**
+ * The MIT License
+ * Copyright © 2018 Davi Monteiro
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.beethoven.repository;
+
+import io.beethoven.dsl.CompiledHandler;
+import io.beethoven.dsl.Condition;
+import io.beethoven.dsl.Condition.ConditionFunction;
+import io.beethoven.dsl.Condition.ConditionJoin;
+import io.beethoven.dsl.Condition.ConditionTaskNameEqualsTo;
+import io.beethoven.dsl.Condition.ConditionTaskResponseEqualsTo;
+import io.beethoven.dsl.Condition.ConditionWorkflowNameEqualsTo;
+import io.beethoven.dsl.Handler;
+import io.beethoven.dsl.Handler.EventType;
+import io.beethoven.dsl.Join;
+import lombok.Getter;
+
+import java.util.*;
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static java.util.Collections.unmodifiableList;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+/**
+ * Immutable dispatch index over the handlers of a workflow.
+ * <p>
+ * Handlers are grouped by {@link EventType} and then by the literal argument of their
+ * {@code taskNameEqualsTo} (task events) or {@code workflowNameEqualsTo} (workflow events)
+ * condition. A lookup returns a prebuilt list, so the decider only evaluates the handlers
+ * that can actually match the event. Handlers are stored in their {@link CompiledHandler} form.
+ * A handler joining several tasks with {@code allOf} or {@code anyOf} is found under each of
+ * them, and its {@link Join} is given its own range of the join state of an instance.
+ *
+ * @author Davi Monteiro
+ */
+public class HandlerIndex {
+
+    public static final HandlerIndex EMPTY = new HandlerIndex(Collections.emptySet());
+
+    private final Map<EventType, Map<String, List<CompiledHandler>>> keyedHandlers = new EnumMap<>(EventType.class);
+    private final Map<EventType, List<CompiledHandler>> unkeyedHandlers = new EnumMap<>(EventType.class);
+
+    /**
+     * Whether a handler has a condition on the response of a task, which its completion event
+     * then has to carry.
+     */
+    @Getter
+    private final boolean responseInspected;
+
+    public HandlerIndex(Collection<Handler> handlers) {
+        Map<EventType, Map<String, List<CompiledHandler>>> keyed = new EnumMap<>(EventType.class);
+        Map<EventType, List<CompiledHandler>> unkeyed = new EnumMap<>(EventType.class);
+
+        // Identifies the layout of the joins of this index
+        Object generation = new Object();
+        int joinOffset = 0;
+        boolean responseInspected = false;
+        for (Handler handler : handlers) {
+            EventType eventType = handler.getEventType();
+            if (isNull(eventType)) {
+                continue;
+            }
+
+            responseInspected |= inspectsResponse(handler);
+            ConditionJoin conditionJoin = findJoin(handler);
+            Join join = nonNull(conditionJoin) ? new Join(conditionJoin, joinOffset, generation) : null;
+            if (nonNull(join)) {
+                joinOffset += join.getWidth();
+            }
+
+            CompiledHandler compiledHandler = new CompiledHandler(handler, join);
+            List<String> keys = dispatchKeys(handler);
+            if (keys.isEmpty()) {
+                unkeyed.computeIfAbsent(eventType, type -> new ArrayList<>()).add(compiledHandler);
+            }
+            for (String key : keys) {
+                keyed.computeIfAbsent(eventType, type -> new HashMap<>())
+                        .computeIfAbsent(key, k -> new ArrayList<>())
+                        .add(compiledHandler);
+            }
+        }
+
+        // Handlers without a dispatch key may match any event, so every keyed bucket carries them too
+        keyed.forEach((eventType, buckets) -> {
+            List<CompiledHandler> common = unkeyed.getOrDefault(eventType, emptyList());
+            Map<String, List<CompiledHandler>> frozenBuckets = new HashMap<>();
+            buckets.forEach((key, bucket) -> {
+                bucket.addAll(common);
+                frozenBuckets.put(key, unmodifiableList(bucket));
+            });
+            keyedHandlers.put(eventType, frozenBuckets);
+        });
+        unkeyed.forEach((eventType, bucket) -> unkeyedHandlers.put(eventType, unmodifiableList(bucket)));
+        this.responseInspected = responseInspected;
+    }
+
+    /**
+     * Finds the handlers that may match an event.
+     *
+     * @param eventType the type of the event
+     * @param key the task name for task events or the workflow name for workflow events
+     * @return the candidate handlers, never null
+     */
+    public List<CompiledHandler> find(EventType eventType, String key) {
+        Map<String, List<CompiledHandler>> buckets = keyedHandlers.get(eventType);
+        if (nonNull(buckets) && nonNull(key)) {
+            List<CompiledHandler> handlers = buckets.get(key);
+            if (nonNull(handlers)) {
+                return handlers;
+            }
+        }
+
+        List<CompiledHandler> handlers = unkeyedHandlers.get(eventType);
+        return nonNull(handlers) ? handlers : emptyList();
+    }
+
+    private static List<String> dispatchKeys(Handler handler) {
+        if (isNull(handler.getConditions())) {
+            return emptyList();
+        }
+
+        boolean taskEvent = handler.getEventType().isTaskEvent();
+        for (Condition condition : handler.getConditions()) {
+            ConditionFunction function = condition.getConditionFunction();
+            if (taskEvent && function instanceof ConditionTaskNameEqualsTo) {
+                String taskName = ((ConditionTaskNameEqualsTo) function).getTaskName();
+                if (nonNull(taskName)) {
+                    return singletonList(taskName);
+                }
+            } else if (taskEvent && function instanceof ConditionJoin) {
+                List<String> taskNames = ((ConditionJoin) function).getTaskNames();
+                if (nonNull(taskNames) && !taskNames.isEmpty()) {
+                    return taskNames;
+                }
+            } else if (!taskEvent && function instanceof ConditionWorkflowNameEqualsTo) {
+                String workflowName = ((ConditionWorkflowNameEqualsTo) function).getWorkflowName();
+                if (nonNull(workflowName)) {
+                    return singletonList(workflowName);
+                }
+            }
+        }
+
+        return emptyList();
+    }
+
+    private static boolean inspectsResponse(Handler handler) {
+        if (isNull(handler.getConditions()) || handler.getEventType() != EventType.TASK_COMPLETED) {
+            return false;
+        }
+
+        for (Condition condition : handler.getConditions()) {
+            if (condition.getConditionFunction() instanceof ConditionTaskResponseEqualsTo) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static ConditionJoin findJoin(Handler handler) {
+        if (isNull(handler.getConditions()) || !handler.getEventType().isTaskEvent()) {
+            return null;
+        }
+
+        for (Condition condition : handler.getConditions()) {
+            ConditionFunction function = condition.getConditionFunction();
+            if (function instanceof ConditionJoin && nonNull(((ConditionJoin) function).getTaskNames())) {
+                return (ConditionJoin) function;
+            }
+        }
+
+        return null;
+    }
+
+}
@@ -22,30 +22,52 @@
  */
 package io.beethoven.repository;
 
+import io.beethoven.config.BeethovenProperties;
+import io.beethoven.dsl.Handler;
+import io.beethoven.dsl.RequestTemplate;
+import io.beethoven.dsl.Task;
 import io.beethoven.dsl.Workflow;
+import io.beethoven.dsl.WorkflowAnalyzer;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
+import static java.util.Collections.emptyMap;
+import static java.util.Objects.nonNull;
 import static java.util.Objects.requireNonNull;
 
 /**
  * @author Davi Monteiro
  */
+@Slf4j
 @Repository
 public class WorkflowRepository {
 
     private Map<String, Workflow> workflows = new ConcurrentHashMap<>();
+    private Map<String, HandlerIndex> handlerIndexes = new ConcurrentHashMap<>();
+    private Map<String, Map<String, RequestTemplate>> requestTemplates = new ConcurrentHashMap<>();
 
     @Autowired
     private ContextualInputRepository contextualInputRepository;
 
+    // Given to the constructor, as the workflows may be saved before the fields are injected
+    private final BeethovenProperties.Parallelization parallelization;
+
+    private final WorkflowAnalyzer workflowAnalyzer = new WorkflowAnalyzer();
+
+    public WorkflowRepository(BeethovenProperties.Parallelization parallelization) {
+        this.parallelization = requireNonNull(parallelization);
+    }
+
     public void save(Workflow workflow) {
         requireNonNull(workflow);
+        reindex(workflow);
         workflows.put(workflow.getName(), workflow);
     }
 
@@ -59,6 +81,59 @@ public class WorkflowRepository {
         return workflows.get(name);
     }
 
+    public HandlerIndex findHandlerIndex(String workflowName) {
+        requireNonNull(workflowName);
+        return handlerIndexes.getOrDefault(workflowName, HandlerIndex.EMPTY);
+    }
+
+    public RequestTemplate findRequestTemplate(String workflowName, String taskName) {
+        requireNonNull(workflowName);
+        requireNonNull(taskName);
+        return requestTemplates.getOrDefault(workflowName, emptyMap()).get(taskName);
+    }
+
+    /**
+     * Rebuilds the compiled views of a workflow after its tasks or handlers have been changed.
+     * The new views replace the old ones in a single step, so readers never see a partial index.
+     */
+    public void reindex(String workflowName) {
+        requireNonNull(workflowName);
+        Workflow workflow = workflows.get(workflowName);
+        if (workflow != null) {
+            reindex(workflow);
+        }
+    }
+
+    private void reindex(Workflow workflow) {
+        Map<String, RequestTemplate> templates = new HashMap<>();
+        for (Task task : new ArrayList<>(workflow.getTasks())) {
+            RequestTemplate requestTemplate = new RequestTemplate(task);
+            if (!requestTemplate.isValid()) {
+                log.error("The task {} of the workflow {} will fail when executed: {}",
+                        task.getName(), workflow.getName(), requestTemplate.getError());
+            }
+            templates.put(task.getName(), requestTemplate);
+        }
+        requestTemplates.put(workflow.getName(), templates);
+        handlerIndexes.put(workflow.getName(), new HandlerIndex(findHandlers(workflow)));
+    }
+
+    /**
+     * The handlers of a workflow, or the handlers starting its tasks in parallel when it is
+     * parallelized. The workflow itself keeps the handlers it was defined with.
+     */
+    private List<Handler> findHandlers(Workflow workflow) {
+        if (parallelization.getEnabled()
+                && (parallelization.getWorkflows().isEmpty() || parallelization.getWorkflows().contains(workflow.getName()))) {
+            List<Handler> handlers = workflowAnalyzer.parallelize(workflow);
+            if (nonNull(handlers)) {
+                log.info("Parallelized the tasks of the workflow {}", workflow.getName());
+                return handlers;
+            }
+        }
+        return new ArrayList<>(workflow.getHandlers());
+    }
+
     public List<Workflow> findAll() {
         return new ArrayList<>(workflows.values());
     }
@@ -66,6 +141,8 @@ public class WorkflowRepository {
     public void delete(String name) {
         requireNonNull(name);
         workflows.remove(name);
+        handlerIndexes.remove(name);
+        requestTemplates.remove(name);
         contextualInputRepository.deleteGlobalContextualInput(name);
     }
 
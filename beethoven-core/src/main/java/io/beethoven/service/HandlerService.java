@@ -22,6 +22,7 @@
  */
 package io.beethoven.service;
 
+import io.beethoven.dsl.CompiledHandler;
 import io.beethoven.dsl.Handler;
 import io.beethoven.dsl.Workflow;
 import io.beethoven.repository.WorkflowRepository;
@@ -52,9 +53,20 @@ public class HandlerService {
         return handlers;
     }
 
+    /**
+     * Finds the handlers that may match an event using the dispatch index of the workflow.
+     *
+     * @param key the task name for task events or the workflow name for workflow events
+     */
+    public List<CompiledHandler> findByWorkflowNameAndEventType(String workflowName, EventType eventType, String key) {
+        return workflowRepository.findHandlerIndex(workflowName).find(eventType, key);
+    }
+
     public Handler save(String workflowName, Handler handler) {
         Workflow workflow = workflowRepository.findByName(workflowName);
-        return workflow.createHandler(handler);
+        Handler createdHandler = workflow.createHandler(handler);
+        workflowRepository.reindex(workflowName);
+        return createdHandler;
     }
 
     public Set<Handler> findAllByWorkflowName(String workflowName) {
@@ -69,12 +81,16 @@ public class HandlerService {
 
     public Handler update(String workflowName, String handlerName, Handler handler) {
         Workflow workflow = workflowRepository.findByName(workflowName);
-        return workflow.createHandler(handler);
+        workflow.getHandlers().removeIf(currentHandler -> currentHandler.getName().equals(handlerName));
+        Handler currentHandler = workflow.createHandler(handler);
+        workflowRepository.reindex(workflowName);
+        return currentHandler;
     }
 
     public void delete(String workflowName, String handlerName) {
         Workflow workflow = workflowRepository.findByName(workflowName);
         workflow.getHandlers().removeIf(handler -> handler.getName().equals(handlerName));
+        workflowRepository.reindex(workflowName);
     }
 
 }
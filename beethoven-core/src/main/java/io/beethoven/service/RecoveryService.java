@@ -0,0 +1,102 @@
+/**
+ * The MIT License
+ * Copyright © 2018 Davi Monteiro
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.beethoven.service;
+
+import io.beethoven.engine.WorkflowInstance;
+import io.beethoven.engine.core.ActorRegistry;
+import io.beethoven.engine.core.WorkflowActor.RecoverWorkflowCommand;
+import io.beethoven.engine.journal.Journal;
+import io.beethoven.engine.journal.JournalState;
+import io.beethoven.engine.metrics.EngineMetrics;
+import io.beethoven.repository.ContextualInputRepository;
+import io.beethoven.repository.WorkflowRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Objects.isNull;
+
+/**
+ * Rebuilds the workflow instances that were running, or paused, when the engine stopped, by
+ * replaying the {@link Journal}: its latest snapshot and the records appended after it. A task
+ * that was started but never completed is started again, so its request may be sent twice. The
+ * time the recovery took is reported by the {@link EngineMetrics}.
+ *
+ * @author Davi Monteiro
+ */
+@Slf4j
+@Service
+public class RecoveryService {
+
+    @Autowired
+    private Journal journal;
+
+    @Autowired
+    private WorkflowRepository workflowRepository;
+
+    @Autowired
+    private ContextualInputRepository contextualInputRepository;
+
+    @Autowired
+    private ActorRegistry actorRegistry;
+
+    @Autowired
+    private EngineMetrics engineMetrics;
+
+    /**
+     * Must be called once the actors are registered and before any workflow is scheduled.
+     *
+     * @return the number of recovered workflow instances
+     */
+    public int recover() {
+        long start = System.nanoTime();
+        JournalState state = new JournalState();
+        long records = journal.replay(state::apply);
+
+        state.getGlobalInputs().forEach(contextualInputRepository::saveGlobalInputs);
+
+        int recovered = 0;
+        for (WorkflowInstance workflowInstance : state.getInstances().values()) {
+            if (isNull(workflowRepository.findByName(workflowInstance.getWorkflowName()))) {
+                log.warn("Workflow {} no longer exists, instance {} is not recovered",
+                        workflowInstance.getWorkflowName(), workflowInstance.getWorkflowInstanceName());
+                continue;
+            }
+            contextualInputRepository.saveLocalInputs(workflowInstance.getWorkflowInstanceName(),
+                    state.getLocalInputs(workflowInstance.getWorkflowInstanceName()));
+            actorRegistry.tellWorkflow(new RecoverWorkflowCommand(workflowInstance));
+            recovered++;
+        }
+
+        long duration = System.nanoTime() - start;
+        engineMetrics.recovered(recovered, records, duration);
+        if (records > 0) {
+            log.info("Recovered {} workflow instances from {} journal records in {} ms", recovered, records,
+                    TimeUnit.NANOSECONDS.toMillis(duration));
+        }
+        return recovered;
+    }
+
+}
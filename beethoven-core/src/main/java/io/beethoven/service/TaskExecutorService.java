@@ -22,34 +22,95 @@
  */
 package io.beethoven.service;
 
-import akka.actor.ActorSystem;
+import io.beethoven.config.BeethovenProperties;
 import io.beethoven.dsl.*;
 import io.beethoven.engine.TaskInstance;
-import io.beethoven.engine.core.ActorPath;
+import io.beethoven.engine.TaskResponse;
+import io.beethoven.engine.core.ActorRegistry;
 import io.beethoven.engine.core.DeciderActor;
 import io.beethoven.engine.core.ReporterActor;
+import io.beethoven.engine.journal.Journal;
+import io.beethoven.engine.journal.JournalRecord;
+import io.beethoven.engine.metrics.EngineMetrics;
+import io.beethoven.engine.resilience.Bulkhead;
+import io.beethoven.engine.resilience.BulkheadFullException;
+import io.beethoven.engine.resilience.BulkheadRegistry;
+import io.beethoven.engine.resilience.CircuitBreaker;
+import io.beethoven.engine.resilience.CircuitBreakerOpenException;
+import io.beethoven.engine.resilience.CircuitBreakerRegistry;
+import io.beethoven.engine.resilience.RetryBudget;
 import io.beethoven.repository.ContextualInputRepository;
+import io.beethoven.repository.WorkflowRepository;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.util.Timeout;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ClientHttpConnector;
 import org.springframework.stereotype.Service;
-import org.springframework.web.reactive.function.BodyInserters;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.Disposable;
 import reactor.core.publisher.Flux;
-
+import reactor.core.publisher.Mono;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
-
-import static akka.actor.ActorRef.noSender;
-import static io.beethoven.engine.core.ActorPath.*;
-import static io.beethoven.engine.core.ActorPath.DECIDER_ACTOR;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static java.util.Collections.emptySet;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+import static org.springframework.web.reactive.function.BodyInserters.fromDataBuffers;
 import static org.springframework.web.reactive.function.BodyInserters.fromObject;
 
 /**
+ * Sends the http requests of the tasks. A response body is joined once whole in pooled buffers,
+ * and only decoded when the journal or a condition reads it, and a large request body is
+ * streamed from the bound inputs in pooled buffers. A failed request is retried according to the
+ * {@link RetryPolicy} of its task, as long as the {@link RetryBudget} allows it. A request to a
+ * host whose {@link CircuitBreaker} is open fails at once, without being sent. A request waits
+ * for a permit of the {@link Bulkhead} of its workflow and of its host before it is sent, and
+ * fails at once when their queue is full. A GET request that is slower than usual may be
+ * hedged: sent a second time, the first response is taken. A task that does not respond within
+ * its timeout times out: its http call is cancelled, which releases the connection, and a late
+ * response is ignored.
+ *
  * @author Davi Monteiro
  */
+@Slf4j
 @Service
 public class TaskExecutorService {
 
+    private static final int STREAMING_CHUNK_SIZE = 64 * 1024;
+
+    private static final NettyDataBufferFactory STREAMING_BUFFER_FACTORY =
+            new NettyDataBufferFactory(PooledByteBufAllocator.DEFAULT);
+
     @Autowired
     private ContextualInputRepository contextualInputRepository;
 
@@ -57,49 +118,466 @@ public class TaskExecutorService {
     private WebClient.Builder webClientBuilder;
 
     @Autowired
-    private ActorSystem actorSystem;
+    private ClientHttpConnector clientHttpConnector;
+
+    @Autowired
+    private WorkflowRepository workflowRepository;
+
+    @Autowired
+    private EngineMetrics engineMetrics;
+
+    @Autowired
+    private ActorRegistry actorRegistry;
+
+    @Autowired
+    private Journal journal;
+
+    @Autowired
+    private TimeoutService timeoutService;
+
+    @Autowired
+    private BeethovenProperties beethovenProperties;
+
+    @Autowired
+    private CircuitBreakerRegistry circuitBreakerRegistry;
+
+    @Autowired
+    private BulkheadRegistry bulkheadRegistry;
+
+    private WebClient webClient;
+
+    private RetryBudget retryBudget;
+
+    private RetryBudget hedgeBudget;
+
+    // The in-flight tasks that can still time out, by workflow instance name
+    private final Map<String, Set<TaskExecution>> executions = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void initialize() {
+        // A single client shares the pooled connections among all the task executions
+        webClient = webClientBuilder.clone()
+                .clientConnector(clientHttpConnector)
+                .build();
+
+        BeethovenProperties.Retries retries = beethovenProperties.getRetries();
+        retryBudget = new RetryBudget(retries.getBudgetRatio(), retries.getMinRetriesPerSecond());
+
+        // A hedged request is an extra request, bounded like the retries but on its own
+        BeethovenProperties.Hedging hedging = beethovenProperties.getHedging();
+        hedgeBudget = new RetryBudget(hedging.getBudgetRatio(), hedging.getMinHedgesPerSecond());
+    }
 
     public void execute(Task task, String workflowInstanceName) {
         TaskInstance taskInstance = buildTaskInstance(task, workflowInstanceName);
 
+        // Perform the request
+        journal.append(JournalRecord.taskStarted(taskInstance));
+        engineMetrics.httpCallStarted();
+        taskInstance.setStartNanos(System.nanoTime());
+        retryBudget.deposit();
+        TaskExecution execution = new TaskExecution(task, taskInstance, findRetryPolicy(task));
+        track(execution);
+        execution.timeout = timeoutService.schedule(timeoutService.findTaskTimeout(task), () -> handleTimeout(execution));
+
+        // The task must be known as started before any response, or fast failure, is reported
+        notifyDeciderActor(taskInstance);
+        notifyReporterActor(taskInstance);
+
+        attempt(execution);
+    }
+
+    /**
+     * Cancels the http calls of the in-flight tasks of a workflow instance that terminated.
+     * The tasks are counted as timed out, but no event is sent for them.
+     */
+    public void cancel(String workflowInstanceName) {
+        for (TaskExecution execution : executions.getOrDefault(workflowInstanceName, emptySet())) {
+            if (execution.timeOut()) {
+                untrack(execution);
+                if (nonNull(execution.timeout)) {
+                    execution.timeout.cancel();
+                }
+                if (nonNull(execution.circuitBreaker)) {
+                    execution.circuitBreaker.onIgnored();
+                }
+                releasePermits(execution, 0, false);
+                engineMetrics.taskTimedOut(
+                        execution.taskInstance.getWorkflowName(),
+                        execution.taskInstance.getTaskName(),
+                        System.nanoTime() - execution.taskInstance.getStartNanos());
+            }
+        }
+    }
+
+    private void track(TaskExecution execution) {
+        executions.compute(execution.taskInstance.getWorkflowInstanceName(), (workflowInstanceName, instanceExecutions) -> {
+            Set<TaskExecution> tracked = nonNull(instanceExecutions) ? instanceExecutions : ConcurrentHashMap.newKeySet();
+            tracked.add(execution);
+            return tracked;
+        });
+    }
+
+    /**
+     * @return false when the execution was no longer tracked
+     */
+    private boolean untrack(TaskExecution execution) {
+        AtomicBoolean untracked = new AtomicBoolean();
+        // The set of an instance is dropped with its last execution
+        executions.computeIfPresent(execution.taskInstance.getWorkflowInstanceName(), (workflowInstanceName, instanceExecutions) -> {
+            untracked.set(instanceExecutions.remove(execution));
+            return instanceExecutions.isEmpty() ? null : instanceExecutions;
+        });
+        return untracked.get();
+    }
+
+    public RetryPolicy findRetryPolicy(Task task) {
+        if (nonNull(task.getRetryPolicy())) {
+            return task.getRetryPolicy();
+        }
+        BeethovenProperties.Retries retries = beethovenProperties.getRetries();
+        RetryPolicy retryPolicy = retries.getTasks().get(task.getWorkflowName() + "." + task.getName());
+        return nonNull(retryPolicy) ? retryPolicy : retries.getPolicy();
+    }
+
+    private void attempt(TaskExecution execution) {
+        TaskInstance taskInstance = execution.taskInstance;
+        execution.attempts++;
+
+        RequestTemplate requestTemplate = findRequestTemplate(execution.task);
+        if (!requestTemplate.isValid()) {
+            // Only this task fails, the other tasks of its workflow are still executed
+            if (respond(execution)) {
+                handleFailureResponse(taskInstance, new IllegalArgumentException(requestTemplate.getError()));
+            }
+            return;
+        }
+        Map<String, String> inputs = findInputs(requestTemplate, taskInstance.getWorkflowInstanceName());
+        URI uri = requestTemplate.expandUri(inputs);
+
+        CircuitBreaker circuitBreaker = circuitBreakerRegistry.find(uri.getHost());
+        if (nonNull(circuitBreaker) && !circuitBreaker.tryAcquire()) {
+            // Fails fast, without spending a connection on a service known to be down
+            if (respond(execution)) {
+                handleFailureResponse(taskInstance, new CircuitBreakerOpenException(circuitBreaker.getName()));
+            }
+            return;
+        }
+        execution.circuitBreaker = circuitBreaker;
+
         // Build a http request
-        WebClient.RequestHeadersSpec request = buildHttpRequest(
-                task.getHttpRequest(),
-                task.getWorkflowName(),
-                workflowInstanceName);
+        WebClient.RequestHeadersSpec request = buildHttpRequest(requestTemplate, inputs, uri, taskInstance.getWorkflowInstanceName());
+        Duration hedgeDelay = findHedgeDelay(execution.task, requestTemplate);
 
-        // Perform the request
-        request.retrieve().bodyToFlux(String.class)
+        // Sent once it holds a permit of the bulkhead of its workflow, and then of its host
+        Bulkhead serviceBulkhead = bulkheadRegistry.findService(uri.getHost());
+        acquire(execution, bulkheadRegistry.findWorkflow(taskInstance.getWorkflowName()),
+                () -> acquire(execution, serviceBulkhead, () -> send(execution, request, hedgeDelay)));
+    }
+
+    /**
+     * @return the time after which the request of the task is hedged, or null when it is not
+     */
+    private Duration findHedgeDelay(Task task, RequestTemplate requestTemplate) {
+        // Only an idempotent request may be sent twice
+        if (requestTemplate.getMethod() != HttpMethod.GET) {
+            return null;
+        }
+        BeethovenProperties.Hedging hedging = beethovenProperties.getHedging();
+        Boolean enabled = hedging.getTasks().get(task.getWorkflowName() + "." + task.getName());
+        if (!(nonNull(enabled) ? enabled : hedging.getEnabled())) {
+            return null;
+        }
+        long latencyNanos = engineMetrics.attemptLatencyPercentile(task.getWorkflowName(), task.getName(),
+                hedging.getPercentile(), hedging.getMinSamples());
+        if (latencyNanos < 0) {
+            // Too few attempts observed to tell a slow one
+            return null;
+        }
+        hedgeBudget.deposit();
+        return Duration.ofNanos(Math.max(latencyNanos, hedging.getMinDelay().toNanos()));
+    }
+
+    /**
+     * Sends the request a second time when the first one has not responded after the delay, and
+     * takes whichever succeeds first. A failed second request is ignored, the first one still decides
+     * the outcome. With a load balanced client, the second request usually goes to another instance
+     * of the service. It holds no bulkhead permit.
+     */
+    private Mono<ByteBuf> hedge(TaskExecution execution, WebClient.RequestHeadersSpec request, Mono<ByteBuf> body,
+                               Duration delay) {
+        TaskInstance taskInstance = execution.taskInstance;
+        return hedge(body, delay,
+                () -> {
+                    if (!hedgeBudget.tryWithdraw()) {
+                        return Mono.never();
+                    }
+                    engineMetrics.hedgeSent(taskInstance.getWorkflowName(), taskInstance.getTaskName());
+                    return retrieve(request);
+                },
+                () -> engineMetrics.hedgeWon(taskInstance.getWorkflowName(), taskInstance.getTaskName()));
+    }
+
+    /**
+     * @param hedgedBody sends the second request once the delay elapsed
+     * @param hedgeWon   called when the second request responds before the first one
+     */
+    static <T> Mono<T> hedge(Mono<T> body, Duration delay, Supplier<Mono<T>> hedgedBody, Runnable hedgeWon) {
+        AtomicBoolean responded = new AtomicBoolean();
+        Mono<T> hedge = Mono.delay(delay)
+                .flatMap(tick -> hedgedBody.get()
+                        .doOnNext(response -> {
+                            if (responded.compareAndSet(false, true)) {
+                                hedgeWon.run();
+                            }
+                        })
+                        .onErrorResume(e -> Mono.never()));
+        return Mono.first(body.doOnEach(signal -> responded.set(true)), hedge);
+    }
+
+    /**
+     * The response body, with the network buffers it was received in joined as they arrive,
+     * without being copied. An empty body is an empty response. The body is only valid while it
+     * is emitted: it is released once the call completes or is cancelled, so a late response
+     * dropped by a hedge, or a call cancelled halfway, frees its buffers too.
+     */
+    private static Mono<ByteBuf> retrieve(WebClient.RequestHeadersSpec request) {
+        return Mono.<ByteBuf, CompositeByteBuf>using(
+                () -> PooledByteBufAllocator.DEFAULT.compositeDirectBuffer(Integer.MAX_VALUE),
+                body -> request.retrieve().bodyToFlux(DataBuffer.class)
+                        .doOnNext(buffer -> append(body, NettyDataBufferFactory.toByteBuf(buffer)))
+                        .then(Mono.just(body)),
+                TaskExecutorService::release,
+                false);
+    }
+
+    private static void append(CompositeByteBuf body, ByteBuf buffer) {
+        // The call may be cancelled by a timeout while a buffer arrives
+        synchronized (body) {
+            if (body.refCnt() > 0) {
+                body.addComponent(true, buffer);
+                return;
+            }
+        }
+        buffer.release();
+    }
+
+    private static void release(CompositeByteBuf body) {
+        synchronized (body) {
+            body.release();
+        }
+    }
+
+    private void acquire(TaskExecution execution, Bulkhead bulkhead, Runnable call) {
+        if (isNull(bulkhead)) {
+            call.run();
+            return;
+        }
+        Bulkhead.Caller caller = () -> {
+            if (!execution.addPermit(bulkhead)) {
+                // The task timed out while queued
+                return false;
+            }
+            call.run();
+            return true;
+        };
+        boolean acquired;
+        try {
+            acquired = bulkhead.acquire(caller);
+        } catch (BulkheadFullException e) {
+            // Sheds the call, the permits already held are released
+            if (nonNull(execution.circuitBreaker)) {
+                execution.circuitBreaker.onIgnored();
+                execution.circuitBreaker = null;
+            }
+            releasePermits(execution, 0, false);
+            if (respond(execution)) {
+                handleFailureResponse(execution.taskInstance, e);
+            }
+            return;
+        }
+        if (!acquired) {
+            execution.queued(bulkhead, caller);
+        } else if (!caller.onPermit()) {
+            bulkhead.release(0, false);
+        }
+    }
+
+    private void releasePermits(TaskExecution execution, long latencyNanos, boolean dropped) {
+        for (Bulkhead bulkhead : execution.drainPermits()) {
+            bulkhead.release(latencyNanos, dropped);
+        }
+    }
+
+    private void send(TaskExecution execution, WebClient.RequestHeadersSpec request, Duration hedgeDelay) {
+        TaskInstance taskInstance = execution.taskInstance;
+        Mono<ByteBuf> body = retrieve(request);
+        if (nonNull(hedgeDelay)) {
+            body = hedge(execution, request, body, hedgeDelay);
+        }
+
+        execution.attemptStartNanos = System.nanoTime();
+        execution.subscribe(body
                 .subscribe(
-                        response -> handleSuccessResponse(
-                                taskInstance,
-                                response),
+                        response -> {
+                            if (respond(execution)) {
+                                handleSuccessResponse(taskInstance, response);
+                            }
+                        },
+
+                        throwable -> {
+                            if (execution.isTimedOut()) {
+                                return;
+                            }
+                            completeAttempt(execution, throwable);
+                            if (!retry(execution, throwable) && respond(execution)) {
+                                handleFailureResponse(taskInstance, throwable);
+                            }
+                        },
+
+                        () -> {
+                            if (!execution.isTimedOut()) {
+                                completeAttempt(execution, null);
+                                engineMetrics.taskCompleted(
+                                        taskInstance.getWorkflowName(),
+                                        taskInstance.getTaskName(),
+                                        System.nanoTime() - taskInstance.getStartNanos());
+                            }
+                        }));
+    }
 
-                        throwable -> handleFailureResponse(
-                                taskInstance,
-                                throwable));
+    private void completeAttempt(TaskExecution execution, Throwable failure) {
+        long latencyNanos = System.nanoTime() - execution.attemptStartNanos;
+        engineMetrics.attemptCompleted(
+                execution.taskInstance.getWorkflowName(),
+                execution.taskInstance.getTaskName(),
+                latencyNanos);
+        execution.attemptStartNanos = 0;
+
+        CircuitBreaker circuitBreaker = execution.circuitBreaker;
+        if (nonNull(circuitBreaker)) {
+            execution.circuitBreaker = null;
+            if (isServiceFailure(failure)) {
+                circuitBreaker.onFailure();
+            } else {
+                circuitBreaker.onSuccess();
+            }
+        }
+        // Too many requests is the service asking to slow down
+        boolean dropped = isServiceFailure(failure) || (failure instanceof WebClientResponseException
+                && ((WebClientResponseException) failure).getRawStatusCode() == 429);
+        releasePermits(execution, latencyNanos, dropped);
+    }
 
-        notifyDeciderActor(taskInstance);
-        notifyReporterActor(taskInstance);
+    /**
+     * A client error is a mistake of the task, the service is up.
+     */
+    private static boolean isServiceFailure(Throwable failure) {
+        return nonNull(failure) && !(failure instanceof WebClientResponseException
+                && ((WebClientResponseException) failure).getRawStatusCode() < 500);
+    }
+
+    /**
+     * @return false when the failed attempt is not retried
+     */
+    private boolean retry(TaskExecution execution, Throwable failure) {
+        TaskInstance taskInstance = execution.taskInstance;
+        if (!execution.retryPolicy.isRetryable(execution.attempts, failure)) {
+            return false;
+        }
+        if (!retryBudget.tryWithdraw()) {
+            engineMetrics.retryRejected(taskInstance.getWorkflowName(), taskInstance.getTaskName());
+            return false;
+        }
+        engineMetrics.retryScheduled(taskInstance.getWorkflowName(), taskInstance.getTaskName());
+        log.debug("Retrying task {} of {} after attempt {}: {}", taskInstance.getTaskName(),
+                taskInstance.getWorkflowInstanceName(), execution.attempts, failure.toString());
+        execution.retry = timeoutService.schedule(execution.retryPolicy.backoff(execution.attempts), () -> {
+            if (!execution.isTimedOut()) {
+                attempt(execution);
+            }
+        });
+        if (isNull(execution.retry)) {
+            // No backoff
+            attempt(execution);
+        }
+        return true;
+    }
+
+    private boolean respond(TaskExecution execution) {
+        if (!execution.respond()) {
+            // The task already timed out
+            return false;
+        }
+        if (untrack(execution) && nonNull(execution.timeout)) {
+            execution.timeout.cancel();
+        }
+        return true;
     }
 
-    private void handleSuccessResponse(TaskInstance taskInstance, String response) {
+    private void handleTimeout(TaskExecution execution) {
+        if (!execution.timeOut()) {
+            return;
+        }
+        untrack(execution);
+
+        TaskInstance taskInstance = execution.taskInstance;
+        long latencyNanos = System.nanoTime() - taskInstance.getStartNanos();
+        engineMetrics.taskTimedOut(taskInstance.getWorkflowName(), taskInstance.getTaskName(), latencyNanos);
+        taskInstance.setFailure(new TimeoutException("Task " + taskInstance.getTaskName() + " timed out after "
+                + TimeUnit.NANOSECONDS.toMillis(latencyNanos) + " ms"));
+        if (execution.attemptStartNanos != 0) {
+            completeAttempt(execution, taskInstance.getFailure());
+        } else {
+            // The attempt was still waiting for a permit
+            if (nonNull(execution.circuitBreaker)) {
+                execution.circuitBreaker.onIgnored();
+            }
+            releasePermits(execution, 0, false);
+        }
+        journal.append(JournalRecord.taskTimedOut(taskInstance));
+        sendEvent(new DeciderActor.TaskTimeoutEvent(
+                taskInstance.getWorkflowName(),
+                taskInstance.getWorkflowInstanceName(),
+                taskInstance.getTaskName()));
+        sendEvent(new ReporterActor.ReportTaskTimeoutEvent(
+                taskInstance.getWorkflowName(),
+                taskInstance.getWorkflowInstanceName(),
+                taskInstance.getTaskName(),
+                taskInstance.getTaskInstanceName()));
+    }
+
+    private void handleSuccessResponse(TaskInstance taskInstance, ByteBuf body) {
+        // The response is only decoded when the journal keeps it or a handler inspects it
+        boolean responseInspected = workflowRepository.findHandlerIndex(taskInstance.getWorkflowName()).isResponseInspected();
+        String response = responseInspected || journal != Journal.NONE ? body.toString(StandardCharsets.UTF_8) : null;
         taskInstance.setResponse(response);
-        contextualInputRepository.saveLocalInput(taskInstance.getWorkflowInstanceName(), buildContextualInput(taskInstance));
+        journal.append(JournalRecord.taskCompleted(taskInstance));
+        if (nonNull(response)) {
+            contextualInputRepository.saveLocalInput(taskInstance.getWorkflowInstanceName(), buildContextualInput(taskInstance));
+        } else {
+            contextualInputRepository.saveLocalInput(taskInstance.getWorkflowInstanceName(), buildInputKey(taskInstance), body);
+        }
         sendEvent(new DeciderActor.TaskCompletedEvent(
                 taskInstance.getWorkflowName(),
                 taskInstance.getWorkflowInstanceName(),
-                taskInstance.getTaskName()));
+                taskInstance.getTaskName(),
+                responseInspected ? new TaskResponse(response) : null));
         sendEvent(new ReporterActor.ReportTaskCompletedEvent(
                 taskInstance.getWorkflowName(),
                 taskInstance.getWorkflowInstanceName(),
                 taskInstance.getTaskName(),
                 taskInstance.getTaskInstanceName(),
-                response));
+                body.readableBytes()));
     }
 
     private void handleFailureResponse(TaskInstance taskInstance, Throwable throwable) {
+        engineMetrics.taskFailed(
+                taskInstance.getWorkflowName(),
+                taskInstance.getTaskName(),
+                System.nanoTime() - taskInstance.getStartNanos());
         taskInstance.setFailure(throwable);
+        journal.append(JournalRecord.taskFailed(taskInstance));
         contextualInputRepository.saveLocalInput(taskInstance.getWorkflowInstanceName(), buildContextualInput(taskInstance));
         sendEvent(new DeciderActor.TaskFailedEvent(
                 taskInstance.getWorkflowName(),
@@ -114,123 +592,158 @@ public class TaskExecutorService {
     }
 
     private ContextualInput buildContextualInput(TaskInstance taskInstance) {
-        String inputKey = "${" + taskInstance.getTaskName() + ".response}";
-        return new ContextualInput(inputKey, taskInstance.getResponse());
+        return new ContextualInput(buildInputKey(taskInstance), taskInstance.getResponse());
     }
 
-    private WebClient.RequestHeadersSpec buildHttpRequest(HttpRequest httpRequest, String workflowName, String workflowInstanceName) {
-
-        WebClient.RequestHeadersSpec request = null;
-
-        switch (httpRequest.getMethod()) {
-            case GET:
-                request = buildGetRequest(httpRequest, workflowName, workflowInstanceName);
-                break;
-            case POST:
-                request = buildPostRequest(httpRequest, workflowName, workflowInstanceName);
-                break;
-            case PUT:
-                request = buildPutRequest(httpRequest, workflowName, workflowInstanceName);
-                break;
-            case DELETE:
-                request = buildDeleteRequest(httpRequest, workflowName, workflowInstanceName);
-                break;
-        }
-
-        return request;
+    private static String buildInputKey(TaskInstance taskInstance) {
+        return "${" + taskInstance.getTaskName() + ".response}";
     }
 
-    private WebClient.RequestHeadersSpec buildGetRequest(HttpRequest httpRequest, String workflowName, String workflowInstanceName) {
-        List<String> uriVariables = buildUriVariables(httpRequest.getUriVariables(), workflowName, workflowInstanceName);
-
-        WebClient.RequestHeadersSpec request = webClientBuilder.build().get()
-                .uri(httpRequest.getUrl(), uriVariables);
-        buildHeaders(request, httpRequest.getHeaders(), workflowName, workflowInstanceName);
-        buildQueryParams(request, httpRequest.getParams(), workflowName, workflowInstanceName);
-
-        return request;
+    /**
+     * Builds the http request of a task from the template compiled when its workflow was loaded,
+     * binding the inputs of the given workflow instance. The request is not sent.
+     */
+    public WebClient.RequestHeadersSpec buildHttpRequest(Task task, String workflowInstanceName) {
+        RequestTemplate requestTemplate = findRequestTemplate(task);
+        Map<String, String> inputs = findInputs(requestTemplate, workflowInstanceName);
+        return buildHttpRequest(requestTemplate, inputs, requestTemplate.expandUri(inputs), workflowInstanceName);
     }
 
-    private WebClient.RequestHeadersSpec buildPostRequest(HttpRequest httpRequest, String workflowName, String workflowInstanceName) {
-        List<String> uriVariables = buildUriVariables(httpRequest.getUriVariables(), workflowName, workflowInstanceName);
-        String body = buildBody(httpRequest.getBody(), workflowName, workflowInstanceName);
-
-        WebClient.RequestHeadersSpec request = webClientBuilder.build().post()
-                .uri(httpRequest.getUrl(), uriVariables)
-                .body(BodyInserters.fromPublisher(Flux.just(body), String.class));
-        buildHeaders(request, httpRequest.getHeaders(), workflowName, workflowInstanceName);
-        buildQueryParams(request, httpRequest.getParams(), workflowName, workflowInstanceName);
-
-        return request;
-    }
+    private WebClient.RequestHeadersSpec buildHttpRequest(RequestTemplate requestTemplate, Map<String, String> inputs,
+                                                          URI uri, String workflowInstanceName) {
+        WebClient.RequestBodySpec request = webClient.method(requestTemplate.getMethod())
+                .uri(uri);
+
+        String contentType = null;
+        for (RequestTemplate.NamedValue header : requestTemplate.getHeaders()) {
+            String value = header.bind(inputs);
+            request.header(header.getName(), value);
+            if (HttpHeaders.CONTENT_TYPE.equalsIgnoreCase(header.getName())) {
+                contentType = value;
+            }
+        }
 
-    private WebClient.RequestHeadersSpec buildPutRequest(HttpRequest httpRequest, String workflowName, String workflowInstanceName) {
-        List<String> uriVariables = buildUriVariables(httpRequest.getUriVariables(), workflowName, workflowInstanceName);
-        String body = buildBody(httpRequest.getBody(), workflowName, workflowInstanceName);
+        String bodyInputKey = requestTemplate.getBodyInputKey();
+        if (requestTemplate.hasBody() && nonNull(bodyInputKey) && !inputs.containsKey(bodyInputKey)) {
+            // The body is an input kept off the heap, which was not read with the others
+            long size = contextualInputRepository.findOffHeapLocalInputSize(workflowInstanceName, bodyInputKey);
+            if (size >= 0 && isUtf8(contentType)) {
+                request.contentLength(size);
+                if (isNull(contentType)) {
+                    request.contentType(new MediaType(MediaType.TEXT_PLAIN, StandardCharsets.UTF_8));
+                }
+                request.body(fromDataBuffers(streamOffHeap(workflowInstanceName, bodyInputKey, size)));
+                return request;
+            }
+            Map<String, String> bodyInputs = new HashMap<>(inputs);
+            contextualInputRepository.findLocalContextualInput(workflowInstanceName, bodyInputKey)
+                    .ifPresent(input -> bodyInputs.put(input.getKey(), input.getValue()));
+            inputs = bodyInputs;
+        }
 
-        WebClient.RequestHeadersSpec request = webClientBuilder.build().put()
-                .uri(httpRequest.getUrl(), uriVariables)
-                .body(fromObject(body));
-        buildHeaders(request, httpRequest.getHeaders(), workflowName, workflowInstanceName);
-        buildQueryParams(request, httpRequest.getParams(), workflowName, workflowInstanceName);
+        if (requestTemplate.hasBody()) {
+            String body = requestTemplate.bindBody(inputs);
+            if (body.length() >= beethovenProperties.getHttpClient().getStreamingThreshold() && isUtf8(contentType)) {
+                request.contentLength(ByteBufUtil.utf8Bytes(body));
+                if (isNull(contentType)) {
+                    request.contentType(new MediaType(MediaType.TEXT_PLAIN, StandardCharsets.UTF_8));
+                }
+                request.body(fromDataBuffers(stream(body)));
+            } else {
+                request.body(fromObject(body));
+            }
+        }
 
         return request;
     }
 
-    private WebClient.RequestHeadersSpec buildDeleteRequest(HttpRequest httpRequest, String workflowName, String workflowInstanceName) {
-        List<String> uriVariables = buildUriVariables(httpRequest.getUriVariables(), workflowName, workflowInstanceName);
-
-        WebClient.RequestHeadersSpec request = webClientBuilder.build().delete()
-                .uri(httpRequest.getUrl(), uriVariables);
-        buildHeaders(request, httpRequest.getHeaders(), workflowName, workflowInstanceName);
-        buildQueryParams(request, httpRequest.getParams(), workflowName, workflowInstanceName);
-
-        return request;
+    private static boolean isUtf8(String contentType) {
+        if (isNull(contentType)) {
+            return true;
+        }
+        try {
+            MediaType mediaType = MediaType.parseMediaType(contentType);
+            return isNull(mediaType.getCharset()) || StandardCharsets.UTF_8.equals(mediaType.getCharset());
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
     }
 
-    private String buildBody(String body, String workflowName, String workflowInstanceName) {
-        return contextualInputRepository.findGlobalContextualInput(workflowName, body)
-                .map(ContextualInput::getValue)
-                .orElseGet(
-                        () -> contextualInputRepository.findLocalContextualInput(workflowInstanceName, body)
-                                .map(ContextualInput::getValue)
-                                .orElse(body));
+    /**
+     * Encodes the body one chunk at a time, as it is written, straight into pooled buffers that
+     * the connection releases once sent. A large response bound to the body of the next task is
+     * never copied whole into a heap byte array.
+     */
+    private static Flux<DataBuffer> stream(String body) {
+        return Flux.generate(() -> 0, (start, sink) -> {
+            int end = Math.min(start + STREAMING_CHUNK_SIZE, body.length());
+            if (end < body.length() && Character.isHighSurrogate(body.charAt(end - 1))) {
+                // A surrogate pair is never split between two chunks
+                end--;
+            }
+            CharBuffer chunk = CharBuffer.wrap(body, start, end);
+            ByteBuf buffer = PooledByteBufAllocator.DEFAULT.buffer(ByteBufUtil.utf8MaxBytes(chunk));
+            ByteBufUtil.writeUtf8(buffer, chunk);
+            sink.next(STREAMING_BUFFER_FACTORY.wrap(buffer));
+            if (end == body.length()) {
+                sink.complete();
+            }
+            return end;
+        });
     }
 
-    private List<String> buildUriVariables(List<String> uriVariables, String workflowName, String workflowInstanceName) {
-        List<String> newVariables = new ArrayList<>();
-        for (String uriVariable : uriVariables) {
-            contextualInputRepository.findGlobalContextualInput(workflowName, uriVariable)
-                    .ifPresent(contextualInput -> newVariables.add(contextualInput.getValue()));
-
-            contextualInputRepository.findLocalContextualInput(workflowInstanceName, uriVariable)
-                    .ifPresent(contextualInput -> newVariables.add(contextualInput.getValue()));
-        }
-        return newVariables;
+    /**
+     * Writes an input kept off the heap as is, so its bytes are never decoded: from a view of its
+     * direct memory retained when the request is written and released by the connection once
+     * sent, or from its spilled file one chunk at a time.
+     */
+    private Flux<DataBuffer> streamOffHeap(String workflowInstanceName, String key, long size) {
+        return Flux.defer(() -> {
+            ByteBuf buffer = contextualInputRepository.retainOffHeapLocalInput(workflowInstanceName, key);
+            if (nonNull(buffer)) {
+                if (buffer.readableBytes() != size) {
+                    buffer.release();
+                    return Flux.error(replacedBeforeSent(workflowInstanceName, key));
+                }
+                return Flux.just(STREAMING_BUFFER_FACTORY.wrap(buffer));
+            }
+            FileChannel channel = contextualInputRepository.openSpilledLocalInput(workflowInstanceName, key);
+            if (isNull(channel)) {
+                return Flux.error(new IllegalStateException("The contextual input " + key + " of "
+                        + workflowInstanceName + " was released before being sent"));
+            }
+            try {
+                if (channel.size() != size) {
+                    channel.close();
+                    return Flux.error(replacedBeforeSent(workflowInstanceName, key));
+                }
+            } catch (IOException e) {
+                return Flux.error(e);
+            }
+            return DataBufferUtils.read(channel, STREAMING_BUFFER_FACTORY, STREAMING_CHUNK_SIZE);
+        });
     }
 
-    private void buildHeaders(WebClient.RequestHeadersSpec request, List<Header> headers, String workflowName, String workflowInstanceName) {
-        for (Header header : headers) {
-            request.header(header.getName(), header.getValue());
-
-            contextualInputRepository.findGlobalContextualInput(workflowName, header.getValue())
-                    .ifPresent(contextualInput -> request.header(header.getName(), contextualInput.getValue()));
-
-            contextualInputRepository.findLocalContextualInput(workflowInstanceName, header.getValue())
-                    .ifPresent(contextualInput -> request.header(header.getName(), contextualInput.getValue()));
-        }
+    private static IllegalStateException replacedBeforeSent(String workflowInstanceName, String key) {
+        return new IllegalStateException("The contextual input " + key + " of " + workflowInstanceName
+                + " was replaced before being sent");
     }
 
-    private void buildQueryParams(WebClient.RequestHeadersSpec request, List<Param> params, String workflowName, String workflowInstanceName) {
-        for (Param param : params) {
-            request.attribute(param.getName(), param.getValue());
-
-            contextualInputRepository.findGlobalContextualInput(workflowName, param.getValue())
-                    .ifPresent(contextualInput -> request.header(param.getName(), contextualInput.getValue()));
+    private RequestTemplate findRequestTemplate(Task task) {
+        RequestTemplate requestTemplate = workflowRepository.findRequestTemplate(task.getWorkflowName(), task.getName());
+        return nonNull(requestTemplate) ? requestTemplate : new RequestTemplate(task);
+    }
 
-            contextualInputRepository.findLocalContextualInput(workflowInstanceName, param.getValue())
-                    .ifPresent(contextualInput -> request.header(param.getName(), contextualInput.getValue()));
-        }
+    private Map<String, String> findInputs(RequestTemplate requestTemplate, String workflowInstanceName) {
+        // A body kept off the heap is written as is, so it is never read as a string
+        String bodyInputKey = requestTemplate.getBodyInputKey();
+        boolean offHeapBody = nonNull(bodyInputKey)
+                && !requestTemplate.getHeadInputKeys().contains(bodyInputKey)
+                && contextualInputRepository.findOffHeapLocalInputSize(workflowInstanceName, bodyInputKey) >= 0;
+        return contextualInputRepository.findInputs(
+                requestTemplate.getWorkflowName(),
+                workflowInstanceName,
+                offHeapBody ? requestTemplate.getHeadInputKeys() : requestTemplate.getInputKeys());
     }
 
     private TaskInstance buildTaskInstance(Task task, String workflowInstanceName) {
@@ -259,11 +772,121 @@ public class TaskExecutorService {
     }
 
     private void sendEvent(DeciderActor.TaskEvent taskEvent) {
-        actorSystem.actorSelection(DECIDER_ACTOR).tell(taskEvent, noSender());
+        actorRegistry.tellDecider(taskEvent);
     }
 
     private void sendEvent(ReporterActor.ReportTaskEvent reportTaskEvent) {
-        actorSystem.actorSelection(REPORT_ACTOR).tell(reportTaskEvent, noSender());
+        actorRegistry.tellReporter(reportTaskEvent);
+    }
+
+    /**
+     * An in-flight task. Either its response or its timeout comes first; the other one is ignored.
+     * Its attempts never overlap, each one starts once the previous one failed.
+     */
+    private static class TaskExecution {
+
+        private static final int RUNNING = 0;
+        private static final int RESPONDED = 1;
+        private static final int TIMED_OUT = 2;
+
+        private final Task task;
+        private final TaskInstance taskInstance;
+        private final RetryPolicy retryPolicy;
+        private final AtomicInteger state = new AtomicInteger(RUNNING);
+        private volatile Disposable subscription;
+        private volatile Timeout timeout;
+        private volatile Timeout retry;
+        private volatile CircuitBreaker circuitBreaker;
+        private volatile int attempts;
+        private volatile long attemptStartNanos;
+        // The bulkheads whose permits the current attempt holds
+        private final List<Bulkhead> permits = new ArrayList<>(2);
+        // The bulkhead in whose queue the current attempt waits for a permit
+        private Bulkhead queuedBulkhead;
+        private Bulkhead.Caller queuedCaller;
+
+        private TaskExecution(Task task, TaskInstance taskInstance, RetryPolicy retryPolicy) {
+            this.task = task;
+            this.taskInstance = taskInstance;
+            this.retryPolicy = retryPolicy;
+        }
+
+        private boolean respond() {
+            return state.compareAndSet(RUNNING, RESPONDED);
+        }
+
+        private boolean timeOut() {
+            if (!state.compareAndSet(RUNNING, TIMED_OUT)) {
+                return false;
+            }
+            // Releases the connection of the http call, or stops waiting to retry it
+            Disposable current = subscription;
+            if (nonNull(current)) {
+                current.dispose();
+            }
+            Timeout pendingRetry = retry;
+            if (nonNull(pendingRetry)) {
+                pendingRetry.cancel();
+            }
+            // Or leaves the queue of the bulkhead it waits on
+            dequeue();
+            return true;
+        }
+
+        private boolean isTimedOut() {
+            return state.get() == TIMED_OUT;
+        }
+
+        private synchronized boolean addPermit(Bulkhead bulkhead) {
+            queuedBulkhead = null;
+            queuedCaller = null;
+            // Once timed out, the permits have been released, or are about to be
+            if (isTimedOut()) {
+                return false;
+            }
+            permits.add(bulkhead);
+            return true;
+        }
+
+        private void queued(Bulkhead bulkhead, Bulkhead.Caller caller) {
+            synchronized (this) {
+                queuedBulkhead = bulkhead;
+                queuedCaller = caller;
+            }
+            // The task may have timed out before the caller was recorded
+            if (isTimedOut()) {
+                dequeue();
+            }
+        }
+
+        private void dequeue() {
+            Bulkhead bulkhead;
+            Bulkhead.Caller caller;
+            synchronized (this) {
+                bulkhead = queuedBulkhead;
+                caller = queuedCaller;
+                queuedBulkhead = null;
+                queuedCaller = null;
+            }
+            if (nonNull(bulkhead)) {
+                bulkhead.remove(caller);
+            }
+        }
+
+        private synchronized List<Bulkhead> drainPermits() {
+            List<Bulkhead> drained = new ArrayList<>(permits);
+            permits.clear();
+            return drained;
+        }
+
+        private void subscribe(Disposable subscription) {
+            this.subscription = subscription;
+            // The timeout may have expired before the subscription was set
+            if (isTimedOut()) {
+                subscription.dispose();
+            }
+        }
+
     }
 
 }
@@ -41,7 +41,9 @@ public class TaskService {
 
     public Task save(String workflowName, Task task) {
         Workflow workflow = workflowRepository.findByName(workflowName);
-        return workflow.createTask(task);
+        Task createdTask = workflow.createTask(task);
+        workflowRepository.reindex(workflowName);
+        return createdTask;
     }
 
     public Set<Task> findAll(String workflowName) {
@@ -55,12 +57,15 @@ public class TaskService {
     }
 
     public Task update(String workflowName, String taskName, Task task) {
+        Workflow workflow = workflowRepository.findByName(workflowName);
+        workflow.getTasks().removeIf(currentTask -> currentTask.getName().equals(taskName));
         return save(workflowName, task);
     }
 
     public void delete(String workflowName, String taskName) {
         Workflow workflow = workflowRepository.findByName(workflowName);
         workflow.getTasks().removeIf(task -> task.getName().equals(taskName));
+        workflowRepository.reindex(workflowName);
     }
 
 }
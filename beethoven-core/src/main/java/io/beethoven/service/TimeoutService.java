@@ -0,0 +1,111 @@
+/**
+ * The MIT License
+ * Copyright © 2018 Davi Monteiro
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.beethoven.service;
+
+import io.beethoven.config.BeethovenProperties;
+import io.beethoven.dsl.Task;
+import io.beethoven.dsl.Workflow;
+import io.beethoven.repository.WorkflowRepository;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+/**
+ * Resolves the timeouts of tasks and workflows and schedules them on a hashed-wheel timer, so
+ * scheduling and cancelling a timeout costs the same whatever the number of pending ones.
+ * A timeout declared in the model prevails over the ones configured by name, which prevail
+ * over the configured defaults.
+ *
+ * @author Davi Monteiro
+ */
+@Service
+public class TimeoutService {
+
+    private static final int TICKS_PER_WHEEL = 512;
+
+    @Autowired
+    private BeethovenProperties beethovenProperties;
+
+    @Autowired
+    private WorkflowRepository workflowRepository;
+
+    private Timer timer;
+
+    @PostConstruct
+    public void initialize() {
+        long tickDuration = Math.max(beethovenProperties.getTimeouts().getTickDuration().toMillis(), 1);
+        timer = new HashedWheelTimer(runnable -> {
+            Thread thread = new Thread(runnable, "beethoven-timeouts");
+            thread.setDaemon(true);
+            return thread;
+        }, tickDuration, TimeUnit.MILLISECONDS, TICKS_PER_WHEEL);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        timer.stop();
+    }
+
+    public Duration findTaskTimeout(Task task) {
+        if (nonNull(task.getTimeout())) {
+            return task.getTimeout();
+        }
+        BeethovenProperties.Timeouts timeouts = beethovenProperties.getTimeouts();
+        Duration timeout = timeouts.getTasks().get(task.getWorkflowName() + "." + task.getName());
+        return nonNull(timeout) ? timeout : timeouts.getTask();
+    }
+
+    public Duration findWorkflowTimeout(String workflowName) {
+        Workflow workflow = workflowRepository.findByName(workflowName);
+        if (nonNull(workflow) && nonNull(workflow.getTimeout())) {
+            return workflow.getTimeout();
+        }
+        BeethovenProperties.Timeouts timeouts = beethovenProperties.getTimeouts();
+        Duration timeout = timeouts.getWorkflows().get(workflowName);
+        return nonNull(timeout) ? timeout : timeouts.getWorkflow();
+    }
+
+    /**
+     * Runs the action on the timer thread once the delay expires, unless the returned timeout
+     * is cancelled before. The action must not block.
+     *
+     * @return the scheduled timeout, or null when the delay is not set or not positive
+     */
+    public Timeout schedule(Duration delay, Runnable action) {
+        if (isNull(delay) || delay.isZero() || delay.isNegative()) {
+            return null;
+        }
+        return timer.newTimeout(timeout -> action.run(), delay.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+}
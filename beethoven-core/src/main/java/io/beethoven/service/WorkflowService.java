@@ -22,14 +22,21 @@
  */
 package io.beethoven.service;
 
-import akka.actor.ActorSystem;
 import io.beethoven.api.dto.BeethovenOperation;
 import io.beethoven.api.dto.BeethovenOperation.Operation;
 import io.beethoven.dsl.Workflow;
+import io.beethoven.dsl.WorkflowAnalysis;
+import io.beethoven.dsl.WorkflowAnalyzer;
+import io.beethoven.engine.core.ActorRegistry;
 import io.beethoven.engine.core.WorkflowActor.CancelWorkflowCommand;
 import io.beethoven.engine.core.WorkflowActor.ScheduleWorkflowCommand;
 import io.beethoven.engine.core.WorkflowActor.StartWorkflowCommand;
 import io.beethoven.engine.core.WorkflowActor.StopWorkflowCommand;
+import io.beethoven.engine.journal.Journal;
+import io.beethoven.engine.journal.JournalRecord;
+import io.beethoven.engine.metrics.EngineMetrics;
+import io.beethoven.engine.metrics.EngineMetrics.TaskSnapshot;
+import io.beethoven.engine.metrics.EngineMetrics.WorkflowSnapshot;
 import io.beethoven.repository.ContextualInputRepository;
 import io.beethoven.repository.WorkflowRepository;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -37,8 +44,8 @@ import org.springframework.stereotype.Service;
 
 import java.util.List;
 
-import static akka.actor.ActorRef.noSender;
-import static io.beethoven.engine.core.ActorPath.WORKFLOW_ACTOR;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
 
 /**
  * @author Davi Monteiro
@@ -53,27 +60,31 @@ public class WorkflowService {
     private ContextualInputRepository contextualInputRepository;
 
     @Autowired
-    private ActorSystem actorSystem;
+    private ActorRegistry actorRegistry;
+
+    @Autowired
+    private Journal journal;
+
+    @Autowired
+    private EngineMetrics engineMetrics;
+
+    private final WorkflowAnalyzer workflowAnalyzer = new WorkflowAnalyzer();
 
     public void execute(String workflowName, BeethovenOperation operation) {
         contextualInputRepository.saveGlobalInputs(workflowName, operation.getInputs());
+        journal.append(JournalRecord.inputs(workflowName, contextualInputRepository.findGlobalInputs(workflowName)));
         switch (Operation.findById(operation.getOperation())) {
             case SCHEDULE:
-                actorSystem.actorSelection(WORKFLOW_ACTOR)
-                        .tell(new ScheduleWorkflowCommand(workflowName), noSender());
+                actorRegistry.tellWorkflow(new ScheduleWorkflowCommand(workflowName));
                 break;
             case START:
-                System.out.println();
-                actorSystem.actorSelection(WORKFLOW_ACTOR)
-                        .tell(new StartWorkflowCommand(workflowName, operation.getInstanceName()), noSender());
+                actorRegistry.tellWorkflow(new StartWorkflowCommand(workflowName, operation.getInstanceName()));
                 break;
             case STOP:
-                actorSystem.actorSelection(WORKFLOW_ACTOR)
-                        .tell(new StopWorkflowCommand(workflowName, operation.getInstanceName()), noSender());
+                actorRegistry.tellWorkflow(new StopWorkflowCommand(workflowName, operation.getInstanceName()));
                 break;
             case CANCEL:
-                actorSystem.actorSelection(WORKFLOW_ACTOR)
-                        .tell(new CancelWorkflowCommand(workflowName, operation.getInstanceName()), noSender());
+                actorRegistry.tellWorkflow(new CancelWorkflowCommand(workflowName, operation.getInstanceName()));
                 break;
         }
     }
@@ -91,6 +102,22 @@ public class WorkflowService {
         return workflowRepository.findByName(workflowName);
     }
 
+    /**
+     * Analyzes the dependencies between the tasks of a workflow, estimating its latencies from
+     * the mean latency of its tasks so far.
+     */
+    public WorkflowAnalysis analyze(String workflowName) {
+        Workflow workflow = workflowRepository.findByName(workflowName);
+        if (isNull(workflow)) {
+            return null;
+        }
+        WorkflowSnapshot snapshot = engineMetrics.snapshot(workflowName);
+        return workflowAnalyzer.analyze(workflow, taskName -> {
+            TaskSnapshot task = nonNull(snapshot) ? snapshot.getTasks().get(taskName) : null;
+            return nonNull(task) && task.getLatency().getCount() > 0 ? task.getLatency().getMean() : 0;
+        });
+    }
+
     public Workflow update(String workflowName, Workflow workflow) {
         return save(workflow);
     }
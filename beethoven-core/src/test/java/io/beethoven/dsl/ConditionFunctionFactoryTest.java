@@ -0,0 +1,68 @@
+/**
+ * The MIT License
+ * Copyright © 2018 Davi Monteiro
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.beethoven.dsl;
+
+import io.beethoven.dsl.Condition.ConditionTaskResponseEqualsTo;
+import io.beethoven.engine.TaskResponse;
+import io.beethoven.engine.core.DeciderActor.TaskCompletedEvent;
+import org.junit.Test;
+
+import static io.beethoven.dsl.ConditionFunctionFactory.TASK_RESPONSE_EQUALS_TO;
+import static io.beethoven.dsl.ConditionFunctionFactory.createCondition;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * @author Davi Monteiro
+ */
+public class ConditionFunctionFactoryTest {
+
+    @Test
+    public void matchesTheExpectedValueAtThePath() {
+        Condition condition = createCondition(TASK_RESPONSE_EQUALS_TO, "$.items[?(@.price == 10)].status == 'OK'");
+
+        assertThat(condition.toTaskPredicate().test(completed("{\"items\": [{\"price\": 10, \"status\": \"OK\"}]}"))).isTrue();
+        assertThat(condition.toTaskPredicate().test(completed("{\"items\": [{\"price\": 20, \"status\": \"OK\"}]}"))).isFalse();
+    }
+
+    @Test
+    public void rejectsAnInvalidPath() {
+        assertThatThrownBy(() -> createCondition(TASK_RESPONSE_EQUALS_TO, "$.items[ == 'OK'"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Invalid JSON path $.items[");
+    }
+
+    @Test
+    public void neverMatchesAnInvalidPathSetDirectly() {
+        ConditionTaskResponseEqualsTo conditionFunction = new ConditionTaskResponseEqualsTo();
+        conditionFunction.setJsonPath("$.items[");
+        conditionFunction.setExpectedValue("OK");
+
+        assertThat(conditionFunction.toTaskPredicate().test(completed("{\"items\": []}"))).isFalse();
+    }
+
+    private TaskCompletedEvent completed(String body) {
+        return new TaskCompletedEvent("checkoutProcess", "checkoutProcess-1", "payment", new TaskResponse(body));
+    }
+
+}
@@ -0,0 +1,90 @@
+/**
+ * The MIT License
+ * Copyright © 2018 Davi Monteiro
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.beethoven.dsl;
+
+import io.beethoven.dsl.Condition.ConditionJoin;
+import org.junit.Test;
+
+import java.util.BitSet;
+
+import static io.beethoven.dsl.ConditionFunctionFactory.ALL_OF;
+import static io.beethoven.dsl.ConditionFunctionFactory.ANY_OF;
+import static io.beethoven.dsl.ConditionFunctionFactory.createCondition;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Davi Monteiro
+ */
+public class JoinTest {
+
+    private final Object generation = new Object();
+
+    @Test
+    public void firesAnAllOfJoinOnceEveryTaskHappened() {
+        Join join = join(ALL_OF, "payment, shipping", 0);
+        BitSet bits = new BitSet();
+
+        assertThat(join.record(bits, "payment")).isFalse();
+        assertThat(join.record(bits, "payment")).isFalse();
+        assertThat(join.record(bits, "shipping")).isTrue();
+        assertThat(join.record(bits, "shipping")).isFalse();
+    }
+
+    @Test
+    public void firesAnAnyOfJoinOnlyOnce() {
+        Join join = join(ANY_OF, "payment, shipping", 0);
+        BitSet bits = new BitSet();
+
+        assertThat(join.record(bits, "shipping")).isTrue();
+        assertThat(join.record(bits, "payment")).isFalse();
+        assertThat(join.record(bits, "shipping")).isFalse();
+    }
+
+    @Test
+    public void ignoresTheTasksItDoesNotJoin() {
+        Join join = join(ANY_OF, "payment", 0);
+        BitSet bits = new BitSet();
+
+        assertThat(join.record(bits, "shipping")).isFalse();
+        assertThat(bits.isEmpty()).isTrue();
+    }
+
+    @Test
+    public void onlyUsesItsOwnRange() {
+        Join first = join(ALL_OF, "payment, shipping", 0);
+        Join second = join(ALL_OF, "payment, invoice", first.getWidth());
+        BitSet bits = new BitSet();
+
+        assertThat(first.getWidth()).isEqualTo(3);
+        assertThat(second.record(bits, "payment")).isFalse();
+        assertThat(first.record(bits, "shipping")).isFalse();
+        assertThat(first.record(bits, "payment")).isTrue();
+        assertThat(second.record(bits, "invoice")).isTrue();
+        assertThat(bits.cardinality()).isEqualTo(6);
+    }
+
+    private Join join(String function, String taskNames, int offset) {
+        return new Join((ConditionJoin) createCondition(function, taskNames).getConditionFunction(), offset, generation);
+    }
+
+}
@@ -0,0 +1,120 @@
+/**
+ * The MIT License
+ * Copyright © 2018 Davi Monteiro
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.beethoven.dsl;
+
+import org.junit.Test;
+import org.springframework.http.HttpMethod;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * @author Davi Monteiro
+ */
+public class RequestTemplateTest {
+
+    @Test
+    public void bindsTheInputsOfEveryPartOfTheRequest() {
+        Task task = task(HttpMethod.POST, "http://payment-service/v1/orders/{id}", Collections.singletonList("${order_id}"));
+        task.getHttpRequest().getParams().add(param("currency", "${currency}"));
+        task.getHttpRequest().getHeaders().add(header("Authorization", "Bearer ${access_token}"));
+        task.getHttpRequest().setBody("${order.response}");
+        RequestTemplate requestTemplate = new RequestTemplate(task);
+
+        Map<String, String> inputs = new HashMap<>();
+        inputs.put("${order_id}", "42");
+        inputs.put("${currency}", "R$ 10");
+        inputs.put("${access_token}", "secret");
+        inputs.put("${order.response}", "{}");
+
+        assertThat(requestTemplate.isValid()).isTrue();
+        assertThat(requestTemplate.getInputKeys())
+                .containsExactly("${order_id}", "${currency}", "${access_token}", "${order.response}");
+        assertThat(requestTemplate.getHeadInputKeys()).containsExactly("${order_id}", "${currency}", "${access_token}");
+        assertThat(requestTemplate.getBodyInputKey()).isEqualTo("${order.response}");
+        assertThat(requestTemplate.expandUri(inputs).toString())
+                .isEqualTo("http://payment-service/v1/orders/42?currency=R$%2010");
+        assertThat(requestTemplate.getHeaders().get(0).bind(inputs)).isEqualTo("Bearer secret");
+        assertThat(requestTemplate.bindBody(inputs)).isEqualTo("{}");
+    }
+
+    @Test
+    public void dropsTheBodyOfARequestThatCanNotCarryOne() {
+        Task task = task(HttpMethod.GET, "http://payment-service/v1/orders", Collections.emptyList());
+        task.getHttpRequest().setBody("${order.response}");
+        RequestTemplate requestTemplate = new RequestTemplate(task);
+
+        assertThat(requestTemplate.hasBody()).isFalse();
+        assertThat(requestTemplate.getBodyInputKey()).isNull();
+        assertThat(requestTemplate.getInputKeys()).isEmpty();
+    }
+
+    @Test
+    public void rejectsATaskMissingURIVariables() {
+        Task task = task(HttpMethod.GET, "http://payment-service/v1/orders/{id}/items/{item}", asList("${order_id}"));
+        RequestTemplate requestTemplate = new RequestTemplate(task);
+
+        assertThat(requestTemplate.isValid()).isFalse();
+        assertThat(requestTemplate.getError()).isEqualTo("Task payment declares 1 URI variables but its URL requires 2");
+        assertThatThrownBy(() -> requestTemplate.expandUri(Collections.emptyMap()))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage(requestTemplate.getError());
+    }
+
+    private Task task(HttpMethod method, String url, List<String> uriVariables) {
+        HttpRequest httpRequest = new HttpRequest();
+        httpRequest.setMethod(method);
+        httpRequest.setUrl(url);
+        httpRequest.setHeaders(new ArrayList<>());
+        httpRequest.setParams(new ArrayList<>());
+        httpRequest.setUriVariables(uriVariables);
+
+        Task task = new Task();
+        task.setName("payment");
+        task.setWorkflowName("checkoutProcess");
+        task.setHttpRequest(httpRequest);
+        return task;
+    }
+
+    private Param param(String name, String value) {
+        Param param = new Param();
+        param.setName(name);
+        param.setValue(value);
+        return param;
+    }
+
+    private Header header(String name, String value) {
+        Header header = new Header();
+        header.setName(name);
+        header.setValue(value);
+        return header;
+    }
+
+}
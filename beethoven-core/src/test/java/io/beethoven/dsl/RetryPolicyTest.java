@@ -0,0 +1,92 @@
+/**
+ * The MIT License
+ * Copyright © 2018 Davi Monteiro
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.beethoven.dsl;
+
+import org.junit.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Davi Monteiro
+ */
+public class RetryPolicyTest {
+
+    @Test
+    public void retriesUntilTheMaxAttempts() {
+        RetryPolicy retryPolicy = retryPolicy();
+        IOException failure = new ConnectException("Connection refused");
+
+        assertThat(retryPolicy.isRetryable(1, failure)).isTrue();
+        assertThat(retryPolicy.isRetryable(2, failure)).isTrue();
+        assertThat(retryPolicy.isRetryable(3, failure)).isFalse();
+    }
+
+    @Test
+    public void retriesOnlyTheRetryableFailures() {
+        RetryPolicy retryPolicy = retryPolicy();
+
+        assertThat(retryPolicy.isRetryable(1, responseException(503))).isTrue();
+        assertThat(retryPolicy.isRetryable(1, responseException(500))).isFalse();
+        assertThat(retryPolicy.isRetryable(1, new IllegalStateException(new ConnectException()))).isTrue();
+        assertThat(retryPolicy.isRetryable(1, new IllegalStateException())).isFalse();
+    }
+
+    @Test
+    public void capsTheExponentialBackoff() {
+        RetryPolicy retryPolicy = retryPolicy();
+        retryPolicy.setJitter(0);
+
+        assertThat(retryPolicy.backoff(1)).isEqualTo(Duration.ofMillis(100));
+        assertThat(retryPolicy.backoff(2)).isEqualTo(Duration.ofMillis(200));
+        assertThat(retryPolicy.backoff(3)).isEqualTo(Duration.ofMillis(400));
+        assertThat(retryPolicy.backoff(10)).isEqualTo(Duration.ofSeconds(2));
+    }
+
+    @Test
+    public void shortensTheBackoffByTheJitterAtMost() {
+        RetryPolicy retryPolicy = retryPolicy();
+
+        for (int i = 0; i < 100; i++) {
+            assertThat(retryPolicy.backoff(2)).isBetween(Duration.ofMillis(100), Duration.ofMillis(200));
+        }
+    }
+
+    private RetryPolicy retryPolicy() {
+        RetryPolicy retryPolicy = new RetryPolicy();
+        retryPolicy.setMaxAttempts(3);
+        return retryPolicy;
+    }
+
+    private WebClientResponseException responseException(int statusCode) {
+        return new WebClientResponseException("Failed", statusCode, "Failed", new HttpHeaders(), new byte[0],
+                StandardCharsets.UTF_8);
+    }
+
+}
@@ -0,0 +1,84 @@
+/**
+ * The MIT License
+ * Copyright © 2018 Davi Monteiro
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.beethoven.dsl;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Davi Monteiro
+ */
+public class TemplateValueTest {
+
+    @Test
+    public void splitsTheTextFromThePlaceholders() {
+        TemplateValue templateValue = TemplateValue.parse("{\"order\": ${order.response}, \"token\": \"${access_token}\"}");
+
+        Map<String, String> inputs = new HashMap<>();
+        inputs.put("${order.response}", "{\"id\": 1}");
+        inputs.put("${access_token}", "secret");
+
+        assertThat(templateValue.getInputKeys()).containsExactly("${order.response}", "${access_token}");
+        assertThat(templateValue.isConstant()).isFalse();
+        assertThat(templateValue.getSingleInputKey()).isNull();
+        assertThat(templateValue.bind(inputs)).isEqualTo("{\"order\": {\"id\": 1}, \"token\": \"secret\"}");
+    }
+
+    @Test
+    public void bindsAValueThatIsASinglePlaceholder() {
+        TemplateValue templateValue = TemplateValue.parse("${order.response}");
+
+        assertThat(templateValue.getSingleInputKey()).isEqualTo("${order.response}");
+        assertThat(templateValue.bind(Collections.singletonMap("${order.response}", "{}"))).isEqualTo("{}");
+    }
+
+    @Test
+    public void keepsThePlaceholdersWithoutAnInput() {
+        TemplateValue templateValue = TemplateValue.parse("Bearer ${access_token}");
+
+        assertThat(templateValue.bind(Collections.emptyMap())).isEqualTo("Bearer ${access_token}");
+    }
+
+    @Test
+    public void keepsAnUnclosedPlaceholderAsText() {
+        TemplateValue templateValue = TemplateValue.parse("${order.response} and ${payment");
+
+        assertThat(templateValue.getInputKeys()).containsExactly("${order.response}");
+        assertThat(templateValue.bind(Collections.singletonMap("${order.response}", "1"))).isEqualTo("1 and ${payment");
+    }
+
+    @Test
+    public void keepsAConstantAsIs() {
+        TemplateValue templateValue = TemplateValue.parse("application/json");
+
+        assertThat(templateValue.isConstant()).isTrue();
+        assertThat(templateValue.getSingleInputKey()).isNull();
+        assertThat(templateValue.bind(Collections.singletonMap("${access_token}", "secret"))).isEqualTo("application/json");
+    }
+
+}
@@ -0,0 +1,245 @@
+/**
+ * The MIT License
+ * Copyright © 2018 Davi Monteiro
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.beethoven.dsl;
+
+import io.beethoven.dsl.Condition.ConditionJoin;
+import io.beethoven.dsl.Condition.ConditionTaskNameEqualsTo;
+import io.beethoven.dsl.Handler.EventType;
+import org.junit.Test;
+import org.springframework.http.HttpMethod;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import static io.beethoven.dsl.ConditionFunctionFactory.ALL_OF;
+import static io.beethoven.dsl.ConditionFunctionFactory.ANY_OF;
+import static io.beethoven.dsl.ConditionFunctionFactory.TASK_NAME_EQUALS_TO;
+import static io.beethoven.dsl.ConditionFunctionFactory.WORKFLOW_NAME_EQUALS_TO;
+import static io.beethoven.dsl.ConditionFunctionFactory.createCondition;
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Davi Monteiro
+ */
+public class WorkflowAnalyzerTest {
+
+    private static final String WORKFLOW_NAME = "checkoutProcess";
+
+    private final WorkflowAnalyzer workflowAnalyzer = new WorkflowAnalyzer();
+
+    private final Map<String, Double> latencies = new HashMap<>();
+
+    @Test
+    public void startsAChainOfIndependentTasksTogether() {
+        Workflow workflow = workflow(task("order"), task("payment"), task("shipping"));
+        workflow.createHandler(handler("h0", EventType.WORKFLOW_SCHEDULED, WORKFLOW_NAME_EQUALS_TO, WORKFLOW_NAME, "order"));
+        workflow.createHandler(handler("h1", EventType.TASK_COMPLETED, TASK_NAME_EQUALS_TO, "order", "payment"));
+        workflow.createHandler(handler("h2", EventType.TASK_COMPLETED, TASK_NAME_EQUALS_TO, "payment", "shipping"));
+        latencies.put("order", 10.0);
+        latencies.put("payment", 10.0);
+        latencies.put("shipping", 10.0);
+
+        WorkflowAnalysis analysis = analyze(workflow);
+        assertThat(analysis.isParallelizable()).isTrue();
+        assertThat(analysis.getParallelizableTasks()).containsExactly("payment", "shipping");
+        assertThat(analysis.getDependencies().values()).allMatch(dependencies -> dependencies.isEmpty());
+        assertThat(analysis.getStages()).hasSize(1);
+        assertThat(analysis.getStartedCriticalPathLength()).isEqualTo(3);
+        assertThat(analysis.getExpectedLatencyMillis()).isEqualTo(30.0);
+        assertThat(analysis.getExpectedParallelLatencyMillis()).isEqualTo(10.0);
+        assertThat(analysis.getExpectedLatencyWinMillis()).isEqualTo(20.0);
+
+        List<Handler> handlers = workflowAnalyzer.parallelize(workflow);
+        assertThat(handlers).hasSize(1);
+        assertThat(handlers.get(0).getName()).isEqualTo("h0");
+        assertThat(handlers.get(0).getCommands()).extracting(Command::getTaskName)
+                .containsExactly("order", "payment", "shipping");
+    }
+
+    @Test
+    public void keepsATaskAfterTheTaskWhoseResponseItUses() {
+        Workflow workflow = workflow(task("order"), task("payment", "${order.response}"));
+        workflow.createHandler(handler("h0", EventType.WORKFLOW_SCHEDULED, WORKFLOW_NAME_EQUALS_TO, WORKFLOW_NAME, "order"));
+        workflow.createHandler(handler("h1", EventType.TASK_COMPLETED, TASK_NAME_EQUALS_TO, "order", "payment"));
+
+        WorkflowAnalysis analysis = analyze(workflow);
+        assertThat(analysis.getDependencies().get("payment")).containsExactly("order");
+        assertThat(analysis.getParallelizableTasks()).isEmpty();
+        assertThat(analysis.isParallelizable()).isFalse();
+        assertThat(analysis.getReason()).isEqualTo("every task already starts as soon as it can");
+        assertThat(analysis.getUnmeasuredTasks()).containsExactly("order", "payment");
+        assertThat(workflowAnalyzer.parallelize(workflow)).isNull();
+    }
+
+    @Test
+    public void startsATaskOnceTheTasksWhoseResponsesItUsesCompleted() {
+        Workflow workflow = workflow(task("order"), task("stock"),
+                task("payment", "${order.response}"), task("shipping", "{\"order\": ${order.response}, \"stock\": ${stock.response}}"));
+        workflow.createHandler(handler("h0", EventType.WORKFLOW_SCHEDULED, WORKFLOW_NAME_EQUALS_TO, WORKFLOW_NAME, "order"));
+        workflow.createHandler(handler("h1", EventType.TASK_COMPLETED, TASK_NAME_EQUALS_TO, "order", "stock"));
+        workflow.createHandler(handler("h2", EventType.TASK_COMPLETED, TASK_NAME_EQUALS_TO, "stock", "payment"));
+        workflow.createHandler(handler("h3", EventType.TASK_COMPLETED, TASK_NAME_EQUALS_TO, "payment", "shipping"));
+        latencies.put("order", 10.0);
+        latencies.put("stock", 20.0);
+        latencies.put("payment", 30.0);
+        latencies.put("shipping", 5.0);
+
+        WorkflowAnalysis analysis = analyze(workflow);
+        assertThat(analysis.getDependencies().get("shipping")).containsExactly("order", "stock");
+        assertThat(analysis.getParallelizableTasks()).containsExactly("payment", "shipping", "stock");
+        assertThat(analysis.getStages()).containsExactly(
+                new TreeSet<>(asList("order", "stock")),
+                new TreeSet<>(asList("payment", "shipping")));
+        assertThat(analysis.getCriticalPath()).containsExactly("order", "payment");
+        assertThat(analysis.getExpectedLatencyMillis()).isEqualTo(65.0);
+        assertThat(analysis.getExpectedParallelLatencyMillis()).isEqualTo(40.0);
+
+        Map<String, Handler> handlers = new HashMap<>();
+        for (Handler handler : workflowAnalyzer.parallelize(workflow)) {
+            handlers.put(handler.getName(), handler);
+        }
+        assertThat(handlers.keySet()).containsExactlyInAnyOrder("h0", "parallel-payment", "parallel-shipping");
+        assertThat(handlers.get("h0").getCommands()).extracting(Command::getTaskName).containsExactly("order", "stock");
+        Condition.ConditionFunction payment = handlers.get("parallel-payment").getConditions().get(0).getConditionFunction();
+        assertThat(((ConditionTaskNameEqualsTo) payment).getTaskName()).isEqualTo("order");
+        Condition.ConditionFunction shipping = handlers.get("parallel-shipping").getConditions().get(0).getConditionFunction();
+        assertThat(((ConditionJoin) shipping).isAll()).isTrue();
+        assertThat(((ConditionJoin) shipping).getTaskNames()).containsExactlyInAnyOrder("order", "stock");
+    }
+
+    @Test
+    public void rejectsACycleOfResponses() {
+        Workflow workflow = workflow(task("order"), task("payment", "${shipping.response}"), task("shipping", "${payment.response}"));
+        workflow.createHandler(handler("h0", EventType.WORKFLOW_SCHEDULED, WORKFLOW_NAME_EQUALS_TO, WORKFLOW_NAME, "order"));
+        workflow.createHandler(handler("h1", EventType.TASK_COMPLETED, TASK_NAME_EQUALS_TO, "order", "payment"));
+        workflow.createHandler(handler("h2", EventType.TASK_COMPLETED, TASK_NAME_EQUALS_TO, "payment", "shipping"));
+
+        WorkflowAnalysis analysis = analyze(workflow);
+        assertThat(analysis.isParallelizable()).isFalse();
+        assertThat(analysis.getReason()).contains("depends on its own response");
+        assertThat(workflowAnalyzer.parallelize(workflow)).isNull();
+    }
+
+    @Test
+    public void rejectsAHandlerStartingTasksOnAnotherEvent() {
+        Workflow workflow = workflow(task("order"), task("payment"), task("refund"));
+        workflow.createHandler(handler("h0", EventType.WORKFLOW_SCHEDULED, WORKFLOW_NAME_EQUALS_TO, WORKFLOW_NAME, "order"));
+        workflow.createHandler(handler("h1", EventType.TASK_COMPLETED, TASK_NAME_EQUALS_TO, "order", "payment"));
+        workflow.createHandler(handler("h2", EventType.TASK_FAILED, TASK_NAME_EQUALS_TO, "payment", "refund"));
+
+        WorkflowAnalysis analysis = analyze(workflow);
+        assertThat(analysis.isParallelizable()).isFalse();
+        assertThat(analysis.getReason()).isEqualTo("the handler h2 starts tasks on TASK_FAILED");
+        assertThat(workflowAnalyzer.parallelize(workflow)).isNull();
+    }
+
+    @Test
+    public void rejectsAHandlerDoingMoreThanStartingTasks() {
+        Workflow workflow = workflow(task("order"), task("payment"));
+        workflow.createHandler(handler("h0", EventType.WORKFLOW_SCHEDULED, WORKFLOW_NAME_EQUALS_TO, WORKFLOW_NAME, "order"));
+        Handler handler = handler("h1", EventType.TASK_COMPLETED, TASK_NAME_EQUALS_TO, "order", "payment");
+        handler.setCommands(asList(Command.startTask("payment"), Command.stopWorkflow(WORKFLOW_NAME)));
+        workflow.createHandler(handler);
+
+        assertThat(analyze(workflow).getReason()).isEqualTo("the handler h1 does not only start tasks");
+        assertThat(workflowAnalyzer.parallelize(workflow)).isNull();
+    }
+
+    @Test
+    public void rejectsAHandlerWaitingForAnyOfSeveralTasks() {
+        Workflow workflow = workflow(task("order"), task("stock"), task("payment", "${stock.response}"));
+        Handler rootHandler = handler("h0", EventType.WORKFLOW_SCHEDULED, WORKFLOW_NAME_EQUALS_TO, WORKFLOW_NAME, "order");
+        rootHandler.setCommands(asList(Command.startTask("order"), Command.startTask("stock")));
+        workflow.createHandler(rootHandler);
+        workflow.createHandler(handler("h1", EventType.TASK_COMPLETED, ANY_OF, "order,stock", "payment"));
+
+        WorkflowAnalysis analysis = analyze(workflow);
+        assertThat(analysis.isParallelizable()).isFalse();
+        assertThat(analysis.getReason()).isEqualTo("the handler h1 waits for any of several tasks");
+        // The order may complete first, before the stock whose response the payment uses
+        assertThat(analysis.getUnorderedTasks()).containsExactly("payment");
+        assertThat(workflowAnalyzer.parallelize(workflow)).isNull();
+    }
+
+    @Test
+    public void waitsForAllOfSeveralTasks() {
+        Workflow workflow = workflow(task("order"), task("stock"), task("payment", "${stock.response}"));
+        Handler rootHandler = handler("h0", EventType.WORKFLOW_SCHEDULED, WORKFLOW_NAME_EQUALS_TO, WORKFLOW_NAME, "order");
+        rootHandler.setCommands(asList(Command.startTask("order"), Command.startTask("stock")));
+        workflow.createHandler(rootHandler);
+        workflow.createHandler(handler("h1", EventType.TASK_COMPLETED, ALL_OF, "order,stock", "payment"));
+
+        WorkflowAnalysis analysis = analyze(workflow);
+        assertThat(analysis.getStartedAfter().get("payment")).containsExactly("order", "stock");
+        assertThat(analysis.getUnorderedTasks()).isEmpty();
+        assertThat(analysis.getParallelizableTasks()).containsExactly("payment");
+    }
+
+    private WorkflowAnalysis analyze(Workflow workflow) {
+        return workflowAnalyzer.analyze(workflow, taskName -> latencies.getOrDefault(taskName, 0.0));
+    }
+
+    private Workflow workflow(Task... tasks) {
+        Workflow workflow = new Workflow();
+        workflow.setName(WORKFLOW_NAME);
+        for (Task task : tasks) {
+            workflow.createTask(task);
+        }
+        return workflow;
+    }
+
+    private Task task(String name) {
+        return task(name, null);
+    }
+
+    private Task task(String name, String body) {
+        HttpRequest httpRequest = new HttpRequest();
+        httpRequest.setMethod(HttpMethod.POST);
+        httpRequest.setUrl("http://" + name + "-service/v1/" + name);
+        httpRequest.setHeaders(new ArrayList<>());
+        httpRequest.setParams(new ArrayList<>());
+        httpRequest.setUriVariables(new ArrayList<>());
+        httpRequest.setBody(body);
+
+        Task task = new Task();
+        task.setName(name);
+        task.setWorkflowName(WORKFLOW_NAME);
+        task.setHttpRequest(httpRequest);
+        return task;
+    }
+
+    private Handler handler(String name, EventType eventType, String condition, String arg, String taskName) {
+        Handler handler = new Handler();
+        handler.setName(name);
+        handler.setEventType(eventType);
+        handler.setConditions(Collections.singletonList(createCondition(condition, arg)));
+        handler.setCommands(Collections.singletonList(Command.startTask(taskName)));
+        return handler;
+    }
+
+}
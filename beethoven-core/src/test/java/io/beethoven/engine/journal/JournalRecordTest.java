@@ -0,0 +1,105 @@
+/**
+ * The MIT License
+ * Copyright © 2018 Davi Monteiro
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.beethoven.engine.journal;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.PooledByteBufAllocator;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Davi Monteiro
+ */
+public class JournalRecordTest {
+
+    @Test
+    public void decodesEveryFieldOfAnEncodedRecord() {
+        Map<String, String> inputs = new LinkedHashMap<>();
+        inputs.put("${access_token}", "Bearer ação");
+        inputs.put("${empty}", "");
+        JournalRecord record = new JournalRecord(JournalRecord.Type.WORKFLOW_INPUTS, 42L, "checkout",
+                null, null, null, "{\"status\":\"ok\"} ✓", inputs);
+
+        JournalRecord decoded = JournalRecord.decode(ByteBuffer.wrap(record.encode()));
+
+        assertThat(decoded).isEqualTo(record);
+    }
+
+    @Test
+    public void encodesTheSameFrameInDirectMemory() {
+        JournalRecord record = taskCompleted("checkout-1", "{\"items\":[1,2,3]}");
+
+        ByteBuf frame = record.encode(PooledByteBufAllocator.DEFAULT);
+        try {
+            assertThat(frame.isDirect()).isTrue();
+            assertThat(ByteBufUtil.getBytes(frame)).isEqualTo(record.encode());
+        } finally {
+            frame.release();
+        }
+    }
+
+    @Test
+    public void decodesConsecutiveRecordsUntilTheEndMarker() {
+        byte[] first = taskCompleted("checkout-1", "first").encode();
+        byte[] second = taskCompleted("checkout-2", "second").encode();
+        ByteBuffer buffer = ByteBuffer.allocate(first.length + second.length + 4);
+        buffer.put(first).put(second).putInt(0).flip();
+
+        assertThat(JournalRecord.decode(buffer).getValue()).isEqualTo("first");
+        assertThat(JournalRecord.decode(buffer).getValue()).isEqualTo("second");
+        assertThat(JournalRecord.decode(buffer)).isNull();
+        assertThat(buffer.position()).isEqualTo(first.length + second.length);
+    }
+
+    @Test
+    public void rejectsARecordWhoseBodyDoesNotMatchItsCrc() {
+        byte[] frame = taskCompleted("checkout-1", "response").encode();
+        frame[frame.length - 1] ^= 1;
+
+        ByteBuffer buffer = ByteBuffer.wrap(frame);
+
+        assertThat(JournalRecord.decode(buffer)).isNull();
+        assertThat(buffer.position()).isZero();
+    }
+
+    @Test
+    public void rejectsATornRecord() {
+        byte[] frame = taskCompleted("checkout-1", "response").encode();
+        ByteBuffer buffer = ByteBuffer.wrap(frame, 0, frame.length - 1).slice();
+
+        assertThat(JournalRecord.decode(buffer)).isNull();
+    }
+
+    static JournalRecord taskCompleted(String workflowInstanceName, String response) {
+        return new JournalRecord(JournalRecord.Type.TASK_COMPLETED, 42L, "checkout", workflowInstanceName,
+                "payment", "payment-1", response, Collections.emptyMap());
+    }
+
+}
@@ -0,0 +1,165 @@
+/**
+ * The MIT License
+ * Copyright © 2018 Davi Monteiro
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.beethoven.engine.journal;
+
+import io.beethoven.engine.WorkflowInstance;
+import io.beethoven.engine.WorkflowInstance.WorkflowStatus;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Davi Monteiro
+ */
+public class JournalSnapshotTest {
+
+    private static final int SEGMENT_SIZE = 1024;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private MappedFileJournal journal;
+
+    @After
+    public void close() {
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    @Test
+    public void deletesTheSegmentsCoveredByASnapshot() throws IOException {
+        journal = open();
+        for (int i = 0; i < 20; i++) {
+            schedule("checkout-" + i);
+        }
+        journal.flush();
+        assertThat(files(".journal").size()).isGreaterThan(1);
+
+        // Each running instance is rebuilt by its scheduling and its start
+        assertThat(journal.snapshot()).isEqualTo(40);
+
+        assertThat(files(".snapshot")).hasSize(1);
+        assertThat(files(".journal")).hasSize(1);
+        assertThat(replay().getInstances()).hasSize(20);
+    }
+
+    @Test
+    public void compactsTheTerminatedInstancesAway() throws IOException {
+        journal = open();
+        journal.append(inputs("Bearer x"));
+        schedule("checkout-1");
+        schedule("checkout-2");
+        append(JournalRecord.Type.TASK_STARTED, "checkout-1", "payment", null);
+        append(JournalRecord.Type.TASK_COMPLETED, "checkout-1", "payment", "paid");
+        append(JournalRecord.Type.WORKFLOW_COMPLETED, "checkout-1", null, null);
+        append(JournalRecord.Type.TASK_STARTED, "checkout-2", "payment", null);
+        append(JournalRecord.Type.TASK_COMPLETED, "checkout-2", "payment", "paid");
+        append(JournalRecord.Type.WORKFLOW_STOPPED, "checkout-2", null, null);
+        journal.flush();
+
+        // The global inputs, then the scheduling, start, stop and task of the paused instance
+        assertThat(journal.snapshot()).isEqualTo(1 + 5);
+
+        JournalState state = replay();
+        assertThat(state.getInstances()).containsOnlyKeys("checkout-2");
+        WorkflowInstance workflowInstance = state.getInstances().get("checkout-2");
+        assertThat(workflowInstance.getStatus()).isEqualTo(WorkflowStatus.PAUSED);
+        assertThat(workflowInstance.getTasks()).hasSize(1);
+        assertThat(state.getLocalInputs("checkout-2")).containsEntry("${payment.response}", "paid");
+        assertThat(state.getGlobalInputs().get("checkout")).containsEntry("${access_token}", "Bearer x");
+    }
+
+    @Test
+    public void replaysTheRecordsAppendedAfterTheLatestSnapshot() throws IOException {
+        journal = open();
+        schedule("checkout-1");
+        journal.flush();
+        journal.snapshot();
+
+        schedule("checkout-2");
+        append(JournalRecord.Type.WORKFLOW_FAILED, "checkout-1", null, null);
+        journal.flush();
+        journal.snapshot();
+        schedule("checkout-3");
+        journal.close();
+
+        journal = open();
+        assertThat(files(".snapshot")).hasSize(1);
+        assertThat(replay().getInstances()).containsOnlyKeys("checkout-2", "checkout-3");
+    }
+
+    @Test
+    public void takesNoSnapshotWhenNothingWasAppended() throws IOException {
+        journal = open();
+        schedule("checkout-1");
+        journal.flush();
+        journal.snapshot();
+
+        assertThat(journal.snapshot()).isZero();
+        assertThat(replay().getInstances()).containsOnlyKeys("checkout-1");
+    }
+
+    private MappedFileJournal open() {
+        return new MappedFileJournal(folder.getRoot().toPath(), SEGMENT_SIZE, Duration.ofMillis(1));
+    }
+
+    private void schedule(String workflowInstanceName) {
+        append(JournalRecord.Type.WORKFLOW_SCHEDULED, workflowInstanceName, null, null);
+        append(JournalRecord.Type.WORKFLOW_STARTED, workflowInstanceName, null, null);
+    }
+
+    private void append(JournalRecord.Type type, String workflowInstanceName, String taskName, String value) {
+        journal.append(new JournalRecord(type, System.currentTimeMillis(), "checkout", workflowInstanceName,
+                taskName, taskName == null ? null : taskName + "-1", value, Collections.emptyMap()));
+    }
+
+    private static JournalRecord inputs(String accessToken) {
+        return JournalRecord.inputs("checkout", Collections.singletonMap("${access_token}", accessToken));
+    }
+
+    private JournalState replay() {
+        JournalState state = new JournalState();
+        journal.replay(state::apply);
+        return state;
+    }
+
+    private List<Path> files(String suffix) throws IOException {
+        try (Stream<Path> paths = Files.list(folder.getRoot().toPath())) {
+            return paths.filter(path -> path.getFileName().toString().endsWith(suffix)).collect(Collectors.toList());
+        }
+    }
+
+}
@@ -0,0 +1,79 @@
+/**
+ * The MIT License
+ * Copyright © 2018 Davi Monteiro
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.beethoven.engine.journal;
+
+import io.beethoven.engine.WorkflowInstance;
+import io.beethoven.engine.WorkflowInstance.WorkflowStatus;
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Davi Monteiro
+ */
+public class JournalStateTest {
+
+    @Test
+    public void keepsAPausedInstanceWithItsInputs() {
+        JournalState state = new JournalState();
+        apply(state, JournalRecord.Type.WORKFLOW_SCHEDULED, null, null);
+        apply(state, JournalRecord.Type.WORKFLOW_STARTED, null, null);
+        apply(state, JournalRecord.Type.TASK_STARTED, "payment", null);
+        apply(state, JournalRecord.Type.TASK_COMPLETED, "payment", "paid");
+        apply(state, JournalRecord.Type.WORKFLOW_STOPPED, null, null);
+
+        WorkflowInstance workflowInstance = state.getInstances().get("checkout-1");
+        assertThat(workflowInstance.getStatus()).isEqualTo(WorkflowStatus.PAUSED);
+        assertThat(state.getLocalInputs("checkout-1")).containsEntry("${payment.response}", "paid");
+    }
+
+    @Test
+    public void resumesAPausedInstance() {
+        JournalState state = new JournalState();
+        apply(state, JournalRecord.Type.WORKFLOW_SCHEDULED, null, null);
+        apply(state, JournalRecord.Type.WORKFLOW_STOPPED, null, null);
+        apply(state, JournalRecord.Type.WORKFLOW_STARTED, null, null);
+
+        assertThat(state.getInstances().get("checkout-1").getStatus()).isEqualTo(WorkflowStatus.RUNNING);
+    }
+
+    @Test
+    public void forgetsATerminatedInstanceAndItsInputs() {
+        JournalState state = new JournalState();
+        apply(state, JournalRecord.Type.WORKFLOW_SCHEDULED, null, null);
+        apply(state, JournalRecord.Type.TASK_STARTED, "payment", null);
+        apply(state, JournalRecord.Type.TASK_COMPLETED, "payment", "paid");
+        apply(state, JournalRecord.Type.WORKFLOW_COMPLETED, null, null);
+
+        assertThat(state.getInstances()).isEmpty();
+        assertThat(state.getLocalInputs("checkout-1")).isEmpty();
+    }
+
+    static void apply(JournalState state, JournalRecord.Type type, String taskName, String value) {
+        state.apply(new JournalRecord(type, System.currentTimeMillis(), "checkout", "checkout-1", taskName,
+                taskName == null ? null : taskName + "-1", value, Collections.emptyMap()));
+    }
+
+}
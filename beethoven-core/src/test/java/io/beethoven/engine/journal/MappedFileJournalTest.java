@@ -0,0 +1,162 @@
+/**
+ * The MIT License
+ * Copyright © 2018 Davi Monteiro
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.beethoven.engine.journal;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static io.beethoven.engine.journal.JournalRecordTest.taskCompleted;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Davi Monteiro
+ */
+public class MappedFileJournalTest {
+
+    private static final int SEGMENT_SIZE = 1024;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private MappedFileJournal journal;
+
+    @After
+    public void close() {
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    @Test
+    public void replaysTheRecordsInTheOrderTheyWereAppended() {
+        journal = open();
+        append("first", "second", "third");
+
+        assertThat(replay()).containsExactly("first", "second", "third");
+    }
+
+    @Test
+    public void replaysTheRecordsWrittenBeforeARestart() {
+        journal = open();
+        append("first", "second");
+        journal.close();
+
+        journal = open();
+        append("third");
+
+        assertThat(replay()).containsExactly("first", "second", "third");
+    }
+
+    @Test
+    public void movesOnToTheNextSegmentWhenARecordDoesNotFit() throws IOException {
+        journal = open();
+        List<String> responses = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            responses.add("response-" + i);
+        }
+        append(responses.toArray(new String[0]));
+
+        assertThat(segments().size()).isGreaterThan(1);
+        assertThat(replay()).isEqualTo(responses);
+    }
+
+    @Test
+    public void writesARecordLargerThanASegmentInADedicatedSegment() throws IOException {
+        char[] chars = new char[4 * SEGMENT_SIZE];
+        Arrays.fill(chars, 'x');
+        String large = new String(chars);
+
+        journal = open();
+        append("before", large, "after");
+        journal.close();
+
+        journal = open();
+        append("restarted");
+
+        assertThat(replay()).containsExactly("before", large, "after", "restarted");
+        assertThat(segments().stream().filter(segment -> size(segment) > SEGMENT_SIZE).count()).isEqualTo(1);
+    }
+
+    @Test
+    public void resumesAppendingAfterTheLastIntactRecord() throws IOException {
+        journal = open();
+        append("first", "second");
+        journal.close();
+
+        // Tears the second record, as a crash in the middle of its write would
+        Path segment = segments().get(0);
+        int firstSize = taskCompleted("checkout-1", "first").encode().length;
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            file.seek(firstSize + JournalRecord.HEADER_SIZE + 1);
+            file.write(0xff);
+        }
+
+        journal = open();
+        append("third");
+
+        assertThat(replay()).containsExactly("first", "third");
+    }
+
+    private MappedFileJournal open() {
+        return new MappedFileJournal(folder.getRoot().toPath(), SEGMENT_SIZE, Duration.ofMillis(1));
+    }
+
+    private void append(String... responses) {
+        for (String response : responses) {
+            journal.append(taskCompleted("checkout-1", response));
+        }
+        journal.flush();
+    }
+
+    private List<String> replay() {
+        List<String> responses = new ArrayList<>();
+        journal.replay(record -> responses.add(record.getValue()));
+        return responses;
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> paths = Files.list(folder.getRoot().toPath())) {
+            return paths.filter(path -> path.getFileName().toString().endsWith(".journal"))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static long size(Path path) {
+        return path.toFile().length();
+    }
+
+}
@@ -0,0 +1,86 @@
+/**
+ * The MIT License
+ * Copyright © 2018 Davi Monteiro
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.beethoven.engine.resilience;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * @author Davi Monteiro
+ */
+public class BulkheadTest {
+
+    @Test
+    public void queuesTheCallsBeyondTheLimit() {
+        Bulkhead bulkhead = new Bulkhead("orders", 1, 1, null);
+        AtomicInteger permits = new AtomicInteger();
+        Bulkhead.Caller caller = () -> permits.incrementAndGet() > 0;
+
+        assertThat(bulkhead.acquire(caller)).isTrue();
+        assertThat(bulkhead.acquire(caller)).isFalse();
+        assertThatThrownBy(() -> bulkhead.acquire(caller)).isInstanceOf(BulkheadFullException.class);
+
+        bulkhead.release(1, false);
+        assertThat(permits.get()).isEqualTo(1);
+        assertThat(bulkhead.snapshot().getInFlight()).isEqualTo(1);
+        assertThat(bulkhead.snapshot().getRejectedCalls()).isEqualTo(1);
+    }
+
+    @Test
+    public void removesAQueuedCall() {
+        Bulkhead bulkhead = new Bulkhead("orders", 1, 1, null);
+        AtomicInteger permits = new AtomicInteger();
+        Bulkhead.Caller caller = () -> permits.incrementAndGet() > 0;
+        bulkhead.acquire(caller);
+        bulkhead.acquire(caller);
+
+        bulkhead.remove(caller);
+
+        assertThat(bulkhead.snapshot().getQueued()).isZero();
+        assertThat(bulkhead.acquire(caller)).isFalse();
+        bulkhead.remove(caller);
+        bulkhead.release(1, false);
+        assertThat(permits.get()).isZero();
+        assertThat(bulkhead.snapshot().getInFlight()).isZero();
+    }
+
+    @Test
+    public void handsOnThePermitOfACallThatNoLongerNeedsIt() {
+        Bulkhead bulkhead = new Bulkhead("orders", 1, 2, null);
+        AtomicInteger permits = new AtomicInteger();
+        bulkhead.acquire(() -> true);
+        bulkhead.acquire(() -> false);
+        bulkhead.acquire(() -> permits.incrementAndGet() > 0);
+
+        bulkhead.release(1, false);
+
+        assertThat(permits.get()).isEqualTo(1);
+        assertThat(bulkhead.snapshot().getInFlight()).isEqualTo(1);
+        assertThat(bulkhead.snapshot().getQueued()).isZero();
+    }
+
+}
@@ -0,0 +1,137 @@
+/**
+ * The MIT License
+ * Copyright © 2018 Davi Monteiro
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.beethoven.engine.resilience;
+
+import io.beethoven.engine.resilience.CircuitBreaker.State;
+import org.junit.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Davi Monteiro
+ */
+public class CircuitBreakerTest {
+
+    @Test
+    public void staysClosedBelowTheMinimumCalls() {
+        CircuitBreaker circuitBreaker = circuitBreaker(Duration.ofMinutes(1));
+        circuitBreaker.onFailure();
+        circuitBreaker.onFailure();
+        circuitBreaker.onFailure();
+
+        assertThat(circuitBreaker.getState()).isEqualTo(State.CLOSED);
+        assertThat(circuitBreaker.tryAcquire()).isTrue();
+    }
+
+    @Test
+    public void opensWhenTheFailureRateReachesTheThreshold() {
+        CircuitBreaker circuitBreaker = circuitBreaker(Duration.ofMinutes(1));
+        circuitBreaker.onSuccess();
+        circuitBreaker.onSuccess();
+        circuitBreaker.onFailure();
+        circuitBreaker.onFailure();
+
+        assertThat(circuitBreaker.getState()).isEqualTo(State.OPEN);
+        assertThat(circuitBreaker.tryAcquire()).isFalse();
+        assertThat(circuitBreaker.snapshot().getRejectedCalls()).isEqualTo(1);
+    }
+
+    @Test
+    public void forgetsTheOutcomesOutsideTheWindow() {
+        CircuitBreaker circuitBreaker = circuitBreaker(Duration.ofMinutes(1));
+        circuitBreaker.onFailure();
+        circuitBreaker.onSuccess();
+        circuitBreaker.onSuccess();
+        circuitBreaker.onSuccess();
+        circuitBreaker.onSuccess();
+        circuitBreaker.onFailure();
+
+        assertThat(circuitBreaker.snapshot().getCalls()).isEqualTo(4);
+        assertThat(circuitBreaker.snapshot().getFailures()).isEqualTo(1);
+        assertThat(circuitBreaker.getState()).isEqualTo(State.CLOSED);
+    }
+
+    @Test
+    public void letsTheProbesThroughOnceTheOpenDurationExpires() {
+        CircuitBreaker circuitBreaker = openCircuitBreaker();
+
+        assertThat(circuitBreaker.tryAcquire()).isTrue();
+        assertThat(circuitBreaker.getState()).isEqualTo(State.HALF_OPEN);
+        assertThat(circuitBreaker.tryAcquire()).isTrue();
+        assertThat(circuitBreaker.tryAcquire()).isFalse();
+    }
+
+    @Test
+    public void closesWhenEveryProbeSucceeds() {
+        CircuitBreaker circuitBreaker = openCircuitBreaker();
+        circuitBreaker.tryAcquire();
+        circuitBreaker.tryAcquire();
+        circuitBreaker.onSuccess();
+        circuitBreaker.onSuccess();
+
+        assertThat(circuitBreaker.getState()).isEqualTo(State.CLOSED);
+        assertThat(circuitBreaker.snapshot().getCalls()).isZero();
+    }
+
+    @Test
+    public void reopensWhenAProbeFails() {
+        CircuitBreaker circuitBreaker = new CircuitBreaker("orders", 0.5, 4, 4, Duration.ZERO, 2);
+        fail(circuitBreaker, 4);
+        circuitBreaker.tryAcquire();
+        circuitBreaker.onSuccess();
+        circuitBreaker.onFailure();
+
+        assertThat(circuitBreaker.getState()).isEqualTo(State.OPEN);
+    }
+
+    @Test
+    public void releasesAnIgnoredProbe() {
+        CircuitBreaker circuitBreaker = openCircuitBreaker();
+        circuitBreaker.tryAcquire();
+        circuitBreaker.tryAcquire();
+        circuitBreaker.onIgnored();
+
+        assertThat(circuitBreaker.tryAcquire()).isTrue();
+        assertThat(circuitBreaker.tryAcquire()).isFalse();
+    }
+
+    private CircuitBreaker circuitBreaker(Duration openDuration) {
+        return new CircuitBreaker("orders", 0.5, 4, 4, openDuration, 2);
+    }
+
+    private CircuitBreaker openCircuitBreaker() {
+        CircuitBreaker circuitBreaker = circuitBreaker(Duration.ZERO);
+        fail(circuitBreaker, 4);
+        assertThat(circuitBreaker.getState()).isEqualTo(State.OPEN);
+        return circuitBreaker;
+    }
+
+    private void fail(CircuitBreaker circuitBreaker, int calls) {
+        for (int i = 0; i < calls; i++) {
+            circuitBreaker.onFailure();
+        }
+    }
+
+}
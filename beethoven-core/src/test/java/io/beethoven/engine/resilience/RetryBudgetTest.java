@@ -0,0 +1,86 @@
+/**
+ * The MIT License
+ * Copyright © 2018 Davi Monteiro
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.beethoven.engine.resilience;
+
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Davi Monteiro
+ */
+public class RetryBudgetTest {
+
+    @Test
+    public void depositsTheRatioOfEveryFirstAttempt() {
+        RetryBudget retryBudget = new RetryBudget(0.5, 0);
+        retryBudget.deposit();
+
+        assertThat(retryBudget.tryWithdraw()).isFalse();
+
+        retryBudget.deposit();
+
+        assertThat(retryBudget.tryWithdraw()).isTrue();
+        assertThat(retryBudget.tryWithdraw()).isFalse();
+    }
+
+    @Test
+    public void capsTheBalanceOfTheDeposits() {
+        // Without a minimum, the balance is capped to a single retry
+        RetryBudget retryBudget = new RetryBudget(1.0, 0);
+        for (int i = 0; i < 100; i++) {
+            retryBudget.deposit();
+        }
+
+        assertThat(retryBudget.tryWithdraw()).isTrue();
+        assertThat(retryBudget.tryWithdraw()).isFalse();
+    }
+
+    @Test
+    public void capsTheRefillOfTheMinimumRetries() {
+        RetryBudget retryBudget = new RetryBudget(0, 2);
+        // A minute without retries only saves up ten seconds of them
+        AtomicLong lastRefill = (AtomicLong) ReflectionTestUtils.getField(retryBudget, "lastRefill");
+        lastRefill.set(System.nanoTime() - TimeUnit.MINUTES.toNanos(1));
+
+        int withdrawn = 0;
+        while (retryBudget.tryWithdraw()) {
+            withdrawn++;
+        }
+
+        assertThat(withdrawn).isEqualTo(20);
+    }
+
+    @Test
+    public void neverAllowsARetryWithoutABudget() {
+        RetryBudget retryBudget = new RetryBudget(0, 0);
+        retryBudget.deposit();
+
+        assertThat(retryBudget.tryWithdraw()).isFalse();
+    }
+
+}
@@ -0,0 +1,266 @@
+/**
+ * The MIT License
+ * Copyright © 2018 Davi Monteiro
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.beethoven.repository;
+
+import io.beethoven.config.BeethovenProperties;
+import io.beethoven.dsl.ContextualInput;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Davi Monteiro
+ */
+public class ContextualInputRepositoryTest {
+
+    private static final String KEY = "${payment.response}";
+
+    @Rule
+    public TemporaryFolder spillDirectory = new TemporaryFolder();
+
+    private BeethovenProperties beethovenProperties;
+    private ContextualInputRepository contextualInputRepository;
+
+    @Before
+    public void setUp() {
+        beethovenProperties = new BeethovenProperties();
+        beethovenProperties.getInputs().setSpillDirectory(spillDirectory.getRoot().getPath());
+        // Swept by the tests themselves
+        beethovenProperties.getInputs().setSweepInterval(Duration.ofHours(1));
+        contextualInputRepository = new ContextualInputRepository();
+        ReflectionTestUtils.setField(contextualInputRepository, "beethovenProperties", beethovenProperties);
+        contextualInputRepository.initialize();
+    }
+
+    @After
+    public void tearDown() {
+        contextualInputRepository.destroy();
+    }
+
+    @Test
+    public void findsTheInputsOfARequestInASinglePass() {
+        Map<String, String> globalInputs = new HashMap<>();
+        globalInputs.put("${access_token}", "global");
+        globalInputs.put("${currency}", "BRL");
+        contextualInputRepository.saveGlobalInputs("checkout", globalInputs);
+        Map<String, String> localInputs = new HashMap<>();
+        localInputs.put("${access_token}", "local");
+        localInputs.put(KEY, "paid");
+        contextualInputRepository.saveLocalInputs("checkout-1", localInputs);
+
+        Map<String, String> inputs = contextualInputRepository.findInputs("checkout", "checkout-1",
+                Arrays.asList("${access_token}", "${currency}", KEY, "${shipping.response}"));
+
+        assertThat(inputs).hasSize(3)
+                .containsEntry("${access_token}", "local")
+                .containsEntry("${currency}", "BRL")
+                .containsEntry(KEY, "paid");
+        assertThat(contextualInputRepository.findGlobalContextualInput("checkout", "${access_token}"))
+                .hasValue(new ContextualInput("${access_token}", "global"));
+        assertThat(contextualInputRepository.findLocalContextualInput("checkout-1", "${access_token}"))
+                .hasValue(new ContextualInput("${access_token}", "local"));
+        assertThat(contextualInputRepository.findLocalContextualInput("checkout-2", KEY)).isEmpty();
+    }
+
+    @Test
+    public void keepsTheInputsOfConcurrentTasks() throws InterruptedException {
+        int tasks = 8;
+        int responses = 1000;
+        ExecutorService executor = Executors.newFixedThreadPool(tasks);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> writers = new ArrayList<>();
+            for (int task = 0; task < tasks; task++) {
+                String key = "${task" + task + ".response}";
+                writers.add(executor.submit(() -> {
+                    start.await();
+                    for (int response = 0; response < responses; response++) {
+                        contextualInputRepository.saveLocalInput("checkout-1", new ContextualInput(key, String.valueOf(response)));
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> writer : writers) {
+                writer.get();
+            }
+        } catch (ExecutionException e) {
+            throw new AssertionError(e.getCause());
+        } finally {
+            executor.shutdown();
+        }
+
+        List<String> keys = new ArrayList<>();
+        for (int task = 0; task < tasks; task++) {
+            keys.add("${task" + task + ".response}");
+        }
+        Map<String, String> inputs = contextualInputRepository.findInputs("checkout", "checkout-1", keys);
+        assertThat(inputs).hasSize(tasks);
+        assertThat(inputs.values()).containsOnly(String.valueOf(responses - 1));
+    }
+
+    @Test
+    public void dropsTheInputsOfAReleasedInstance() {
+        contextualInputRepository.saveLocalInputs("checkout-1", Collections.singletonMap(KEY, "paid"));
+        contextualInputRepository.deleteLocalContextualInput("checkout-1");
+
+        contextualInputRepository.saveLocalInputs("checkout-1", Collections.singletonMap(KEY, "late"));
+
+        assertThat(find("checkout-1")).isEmpty();
+        assertThat(contextualInputRepository.statistics().getInstances()).isZero();
+        assertThat(contextualInputRepository.statistics().getDroppedLateInputs()).isEqualTo(1);
+    }
+
+    @Test
+    public void forgetsTheOldestReleasedInstances() {
+        beethovenProperties.getInputs().setMaxReleasedInstances(2);
+        for (int i = 1; i <= 3; i++) {
+            contextualInputRepository.deleteLocalContextualInput("checkout-" + i);
+        }
+
+        contextualInputRepository.saveLocalInputs("checkout-1", Collections.singletonMap(KEY, "paid"));
+        contextualInputRepository.saveLocalInputs("checkout-3", Collections.singletonMap(KEY, "paid"));
+
+        assertThat(find("checkout-1")).containsEntry(KEY, "paid");
+        assertThat(find("checkout-3")).isEmpty();
+    }
+
+    @Test
+    public void releasesTheInputsIdleForTooLong() {
+        beethovenProperties.getInputs().setMaxIdleTime(Duration.ZERO);
+        contextualInputRepository.saveLocalInputs("checkout-1", Collections.singletonMap(KEY, "paid"));
+
+        sweep();
+
+        assertThat(find("checkout-1")).isEmpty();
+        assertThat(contextualInputRepository.statistics().getExpiredInstances()).isEqualTo(1);
+        assertThat(contextualInputRepository.statistics().getHeapBytes()).isZero();
+    }
+
+    @Test
+    public void spillsTheIdleInputs() {
+        beethovenProperties.getInputs().setTtl(Duration.ZERO);
+        contextualInputRepository.saveLocalInputs("checkout-1", Collections.singletonMap(KEY, "paid"));
+
+        sweep();
+
+        assertThat(contextualInputRepository.statistics().getSpilledValues()).isEqualTo(1);
+        assertThat(find("checkout-1")).containsEntry(KEY, "paid");
+
+        contextualInputRepository.deleteLocalContextualInput("checkout-1");
+        assertThat(spillDirectory.getRoot().list()).isEmpty();
+    }
+
+    @Test
+    public void keepsTheValuesOnTheHeapOnceTheSpillDirectoryIsFull() {
+        beethovenProperties.getInputs().setSpillThreshold(0L);
+        beethovenProperties.getInputs().setMaxSpilledBytes(6L);
+        contextualInputRepository.saveLocalInputs("checkout-1", Collections.singletonMap(KEY, "paid"));
+        contextualInputRepository.saveLocalInputs("checkout-2", Collections.singletonMap(KEY, "paid"));
+
+        assertThat(contextualInputRepository.statistics().getSpilledBytes()).isEqualTo(4);
+        assertThat(find("checkout-1")).containsEntry(KEY, "paid");
+        assertThat(find("checkout-2")).containsEntry(KEY, "paid");
+    }
+
+    @Test
+    public void copiesALargeResponseOffTheHeapAsIs() {
+        beethovenProperties.getInputs().setOffHeapThreshold(8L);
+        ByteBuf response = Unpooled.copiedBuffer("{\"paid\":true}", StandardCharsets.UTF_8);
+        contextualInputRepository.saveLocalInput("checkout-1", KEY, response);
+
+        assertThat(response.refCnt()).isEqualTo(1);
+        assertThat(contextualInputRepository.statistics().getOffHeapBytes()).isEqualTo(13);
+        assertThat(contextualInputRepository.findOffHeapLocalInputSize("checkout-1", KEY)).isEqualTo(13);
+        ByteBuf value = contextualInputRepository.retainOffHeapLocalInput("checkout-1", KEY);
+        try {
+            assertThat(value).isEqualTo(response);
+        } finally {
+            value.release();
+            response.release();
+        }
+    }
+
+    @Test
+    public void spillsALargeResponseAsIs() throws IOException {
+        beethovenProperties.getInputs().setSpillThreshold(8L);
+        ByteBuf response = Unpooled.copiedBuffer("{\"paid\":true}", StandardCharsets.UTF_8);
+        contextualInputRepository.saveLocalInput("checkout-1", KEY, response);
+        response.release();
+
+        assertThat(contextualInputRepository.statistics().getSpilledBytes()).isEqualTo(13);
+        try (FileChannel channel = contextualInputRepository.openSpilledLocalInput("checkout-1", KEY)) {
+            assertThat(channel.size()).isEqualTo(13);
+        }
+        assertThat(find("checkout-1")).containsEntry(KEY, "{\"paid\":true}");
+    }
+
+    @Test
+    public void decodesASmallResponse() {
+        beethovenProperties.getInputs().setOffHeapThreshold(64L);
+        ByteBuf response = Unpooled.copiedBuffer("{\"paid\":true}", StandardCharsets.UTF_8);
+        contextualInputRepository.saveLocalInput("checkout-1", KEY, response);
+        response.release();
+
+        assertThat(contextualInputRepository.findOffHeapLocalInputSize("checkout-1", KEY)).isEqualTo(-1);
+        assertThat(find("checkout-1")).containsEntry(KEY, "{\"paid\":true}");
+    }
+
+    private void sweep() {
+        // Lets the clock move past the last access
+        try {
+            Thread.sleep(5);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        ReflectionTestUtils.invokeMethod(contextualInputRepository, "sweepIdleInputs");
+    }
+
+    private Map<String, String> find(String workflowInstanceName) {
+        return contextualInputRepository.findInputs("checkout", workflowInstanceName, Collections.singleton(KEY));
+    }
+
+}
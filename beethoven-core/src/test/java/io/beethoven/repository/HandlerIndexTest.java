@@ -0,0 +1,117 @@
+/**
+ * The MIT License
+ * Copyright © 2018 Davi Monteiro
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.beethoven.repository;
+
+import io.beethoven.dsl.Command;
+import io.beethoven.dsl.CompiledHandler;
+import io.beethoven.dsl.Handler;
+import io.beethoven.dsl.Handler.EventType;
+import io.beethoven.dsl.Join;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static io.beethoven.dsl.ConditionFunctionFactory.ALL_OF;
+import static io.beethoven.dsl.ConditionFunctionFactory.ANY_OF;
+import static io.beethoven.dsl.ConditionFunctionFactory.TASK_NAME_EQUALS_TO;
+import static io.beethoven.dsl.ConditionFunctionFactory.TASK_RESPONSE_EQUALS_TO;
+import static io.beethoven.dsl.ConditionFunctionFactory.createCondition;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Davi Monteiro
+ */
+public class HandlerIndexTest {
+
+    @Test
+    public void appendsTheUnkeyedHandlersToEveryKeyedBucket() {
+        HandlerIndex handlerIndex = new HandlerIndex(Arrays.asList(
+                handler("h0", TASK_RESPONSE_EQUALS_TO, "$.status == 'PAID'"),
+                handler("h1", TASK_NAME_EQUALS_TO, "payment"),
+                handler("h2", TASK_NAME_EQUALS_TO, "shipping")));
+
+        assertThat(handlerIndex.find(EventType.TASK_COMPLETED, "payment")).extracting(CompiledHandler::getName)
+                .containsExactly("h1", "h0");
+        assertThat(handlerIndex.find(EventType.TASK_COMPLETED, "shipping")).extracting(CompiledHandler::getName)
+                .containsExactly("h2", "h0");
+        assertThat(handlerIndex.find(EventType.TASK_COMPLETED, "invoice")).extracting(CompiledHandler::getName)
+                .containsExactly("h0");
+        assertThat(handlerIndex.find(EventType.TASK_COMPLETED, null)).extracting(CompiledHandler::getName)
+                .containsExactly("h0");
+        assertThat(handlerIndex.find(EventType.TASK_FAILED, "payment")).isEmpty();
+        assertThat(handlerIndex.isResponseInspected()).isTrue();
+    }
+
+    @Test
+    public void findsAJoinUnderEachOfItsTasks() {
+        HandlerIndex handlerIndex = new HandlerIndex(Collections.singletonList(
+                handler("h0", ALL_OF, "payment, shipping")));
+
+        CompiledHandler payment = handlerIndex.find(EventType.TASK_COMPLETED, "payment").get(0);
+        CompiledHandler shipping = handlerIndex.find(EventType.TASK_COMPLETED, "shipping").get(0);
+
+        assertThat(payment).isSameAs(shipping);
+        assertThat(payment.getJoin().getTaskNames()).containsExactly("payment", "shipping");
+        assertThat(handlerIndex.find(EventType.TASK_COMPLETED, "invoice")).isEmpty();
+    }
+
+    @Test
+    public void laysOutTheJoinsOneAfterTheOther() {
+        HandlerIndex handlerIndex = new HandlerIndex(Arrays.asList(
+                handler("h0", ALL_OF, "payment, shipping"),
+                handler("h1", TASK_NAME_EQUALS_TO, "payment"),
+                handler("h2", ANY_OF, "payment, invoice, shipping")));
+
+        List<CompiledHandler> handlers = handlerIndex.find(EventType.TASK_COMPLETED, "payment");
+        Join first = handlers.get(0).getJoin();
+        Join second = handlers.get(2).getJoin();
+
+        assertThat(handlers.get(1).getJoin()).isNull();
+        assertThat(first.getOffset()).isZero();
+        assertThat(second.getOffset()).isEqualTo(first.getWidth());
+        assertThat(second.getWidth()).isEqualTo(4);
+        assertThat(second.getGeneration()).isSameAs(first.getGeneration());
+    }
+
+    @Test
+    public void givesANewGenerationToEachIndex() {
+        List<Handler> handlers = Collections.singletonList(handler("h0", ALL_OF, "payment, shipping"));
+
+        Join join = new HandlerIndex(handlers).find(EventType.TASK_COMPLETED, "payment").get(0).getJoin();
+        Join reindexed = new HandlerIndex(handlers).find(EventType.TASK_COMPLETED, "payment").get(0).getJoin();
+
+        assertThat(reindexed.getGeneration()).isNotSameAs(join.getGeneration());
+    }
+
+    private Handler handler(String name, String condition, String arg) {
+        Handler handler = new Handler();
+        handler.setName(name);
+        handler.setEventType(EventType.TASK_COMPLETED);
+        handler.setConditions(Collections.singletonList(createCondition(condition, arg)));
+        handler.setCommands(Collections.singletonList(Command.startTask("notification")));
+        return handler;
+    }
+
+}
@@ -0,0 +1,113 @@
+/**
+ * The MIT License
+ * Copyright © 2018 Davi Monteiro
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.beethoven.repository;
+
+import io.beethoven.config.BeethovenProperties;
+import io.beethoven.dsl.Command;
+import io.beethoven.dsl.CompiledHandler;
+import io.beethoven.dsl.Handler;
+import io.beethoven.dsl.Handler.EventType;
+import io.beethoven.dsl.HttpRequest;
+import io.beethoven.dsl.Task;
+import io.beethoven.dsl.Workflow;
+import org.junit.Test;
+import org.springframework.http.HttpMethod;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static io.beethoven.dsl.ConditionFunctionFactory.TASK_NAME_EQUALS_TO;
+import static io.beethoven.dsl.ConditionFunctionFactory.WORKFLOW_NAME_EQUALS_TO;
+import static io.beethoven.dsl.ConditionFunctionFactory.createCondition;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Davi Monteiro
+ */
+public class WorkflowRepositoryTest {
+
+    private static final String WORKFLOW_NAME = "checkoutProcess";
+
+    @Test
+    public void loadsTheWorkflowsAtStartup() {
+        // As the auto-configuration does, before any field is injected
+        WorkflowRepository workflowRepository = new WorkflowRepository(new BeethovenProperties().getParallelization());
+        workflowRepository.saveAll(Collections.singletonList(workflow()));
+
+        assertThat(workflowRepository.findByName(WORKFLOW_NAME)).isNotNull();
+        assertThat(workflowRepository.findRequestTemplate(WORKFLOW_NAME, "payment").isValid()).isTrue();
+        assertThat(workflowRepository.findHandlerIndex(WORKFLOW_NAME).find(EventType.WORKFLOW_SCHEDULED, WORKFLOW_NAME))
+                .hasSize(1);
+    }
+
+    @Test
+    public void parallelizesTheWorkflowsAtStartup() {
+        BeethovenProperties.Parallelization parallelization = new BeethovenProperties().getParallelization();
+        parallelization.setEnabled(true);
+        WorkflowRepository workflowRepository = new WorkflowRepository(parallelization);
+        workflowRepository.saveAll(Collections.singletonList(workflow()));
+
+        // Neither task uses the response of the other one, so both start with the workflow
+        List<CompiledHandler> handlers = workflowRepository.findHandlerIndex(WORKFLOW_NAME)
+                .find(EventType.WORKFLOW_SCHEDULED, WORKFLOW_NAME);
+        assertThat(handlers).hasSize(1);
+        assertThat(handlers.get(0).getCommands()).hasSize(2);
+        assertThat(workflowRepository.findByName(WORKFLOW_NAME).getHandlers()).hasSize(2);
+    }
+
+    private Workflow workflow() {
+        Workflow workflow = new Workflow();
+        workflow.setName(WORKFLOW_NAME);
+        workflow.createTask(task("payment"));
+        workflow.createTask(task("shipping"));
+        workflow.createHandler(handler("h0", EventType.WORKFLOW_SCHEDULED, WORKFLOW_NAME_EQUALS_TO, WORKFLOW_NAME, "payment"));
+        workflow.createHandler(handler("h1", EventType.TASK_COMPLETED, TASK_NAME_EQUALS_TO, "payment", "shipping"));
+        return workflow;
+    }
+
+    private Task task(String name) {
+        HttpRequest httpRequest = new HttpRequest();
+        httpRequest.setMethod(HttpMethod.GET);
+        httpRequest.setUrl("http://" + name + "-service/v1/" + name);
+        httpRequest.setHeaders(new ArrayList<>());
+        httpRequest.setParams(new ArrayList<>());
+        httpRequest.setUriVariables(new ArrayList<>());
+
+        Task task = new Task();
+        task.setName(name);
+        task.setWorkflowName(WORKFLOW_NAME);
+        task.setHttpRequest(httpRequest);
+        return task;
+    }
+
+    private Handler handler(String name, EventType eventType, String condition, String arg, String taskName) {
+        Handler handler = new Handler();
+        handler.setName(name);
+        handler.setEventType(eventType);
+        handler.setConditions(Collections.singletonList(createCondition(condition, arg)));
+        handler.setCommands(Collections.singletonList(Command.startTask(taskName)));
+        return handler;
+    }
+
+}
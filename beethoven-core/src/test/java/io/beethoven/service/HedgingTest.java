@@ -0,0 +1,104 @@
+/**
+ * The MIT License
+ * Copyright © 2018 Davi Monteiro
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.beethoven.service;
+
+import org.junit.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Davi Monteiro
+ */
+public class HedgingTest {
+
+    private static final Duration DELAY = Duration.ofMillis(100);
+
+    private final AtomicInteger hedgesSent = new AtomicInteger();
+    private final AtomicInteger hedgesWon = new AtomicInteger();
+
+    @Test
+    public void neverOverridesTheFailureOfTheFirstRequest() {
+        IOException failure = new IOException("Connection reset");
+
+        StepVerifier.withVirtualTime(() -> hedge(
+                Mono.delay(Duration.ofMillis(150)).then(Mono.error(failure)),
+                Mono.delay(Duration.ofMillis(100)).thenReturn("hedge")))
+                .thenAwait(Duration.ofMillis(300))
+                .expectErrorSatisfies(e -> assertThat(e).isSameAs(failure))
+                .verify();
+
+        assertThat(hedgesSent.get()).isEqualTo(1);
+        assertThat(hedgesWon.get()).isZero();
+    }
+
+    @Test
+    public void ignoresTheFailureOfTheSecondRequest() {
+        StepVerifier.withVirtualTime(() -> hedge(
+                Mono.delay(Duration.ofMillis(300)).thenReturn("first"),
+                Mono.error(new IOException("Connection refused"))))
+                .thenAwait(Duration.ofMillis(300))
+                .expectNext("first")
+                .verifyComplete();
+
+        assertThat(hedgesSent.get()).isEqualTo(1);
+        assertThat(hedgesWon.get()).isZero();
+    }
+
+    @Test
+    public void takesTheSecondRequestWhenItRespondsFirst() {
+        StepVerifier.withVirtualTime(() -> hedge(
+                Mono.delay(Duration.ofMillis(500)).thenReturn("first"),
+                Mono.delay(Duration.ofMillis(50)).thenReturn("hedge")))
+                .thenAwait(Duration.ofMillis(150))
+                .expectNext("hedge")
+                .verifyComplete();
+
+        assertThat(hedgesWon.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void sendsNoSecondRequestWhenTheFirstOneRespondsInTime() {
+        StepVerifier.withVirtualTime(() -> hedge(
+                Mono.delay(Duration.ofMillis(50)).thenReturn("first"),
+                Mono.just("hedge")))
+                .thenAwait(DELAY)
+                .expectNext("first")
+                .verifyComplete();
+
+        assertThat(hedgesSent.get()).isZero();
+    }
+
+    private Mono<String> hedge(Mono<String> body, Mono<String> hedgedBody) {
+        return TaskExecutorService.hedge(body, DELAY, () -> {
+            hedgesSent.incrementAndGet();
+            return hedgedBody;
+        }, hedgesWon::incrementAndGet);
+    }
+
+}